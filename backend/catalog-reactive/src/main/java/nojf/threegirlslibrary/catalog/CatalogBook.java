@@ -0,0 +1,26 @@
+package nojf.threegirlslibrary.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A row of the books table, serialized like the main backend's Book entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogBook {
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+    private String genre;
+    private String description;
+    private String coverImageUrl;
+    private Integer publishedYear;
+    private Integer totalCopies;
+    private Integer availableCopies;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
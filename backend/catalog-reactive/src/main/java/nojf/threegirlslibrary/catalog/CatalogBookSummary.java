@@ -0,0 +1,25 @@
+package nojf.threegirlslibrary.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A book in lists, serialized like the main backend's BookSummary: no description or timestamps
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogBookSummary {
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+    private String genre;
+    private String coverImageUrl;
+    private Integer publishedYear;
+    private Integer totalCopies;
+    private Integer availableCopies;
+    
+    public boolean isAvailable() {
+        return availableCopies != null && availableCopies > 0;
+    }
+}
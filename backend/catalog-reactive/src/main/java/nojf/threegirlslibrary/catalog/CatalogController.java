@@ -0,0 +1,131 @@
+package nojf.threegirlslibrary.catalog;
+
+import lombok.RequiredArgsConstructor;
+import nojf.threegirlslibrary.search.FullTextQueries;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking versions of the catalog GETs of the main backend's BookController, with the
+ * same paths, parameters and JSON: lists hold book summaries, only /books/{id} has the
+ * description. Paged endpoints can also be streamed: with Accept: application/x-ndjson every
+ * matching book is written as one JSON line, read from MySQL only as fast as the client
+ * takes them.
+ */
+@RestController
+@RequestMapping("/books")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class CatalogController {
+    
+    // Rows requested from the driver at a time while streaming
+    private static final int STREAM_PREFETCH = 256;
+    
+    private final CatalogRepository catalogRepository;
+    
+    // like = LIKE '%keyword%' over title/author/genre/isbn, fulltext = MySQL MATCH ... AGAINST
+    @Value("${library.search.engine:like}")
+    private String searchEngine;
+    
+    // boolean = every word required, prefix matching; natural = MySQL natural language relevance
+    @Value("${library.search.fulltext-mode:boolean}")
+    private String fullTextMode;
+    
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PageResponse<CatalogBookSummary>> getAllBooks(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "title") String sortBy) {
+        
+        checkPage(page, size);
+        return Mono.zip(catalogRepository.findAll(sortProperty(sortBy), (long) page * size, size).collectList(),
+                        catalogRepository.count())
+            .map(result -> new PageResponse<>(result.getT1(), page, size, result.getT2()));
+    }
+    
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CatalogBookSummary> streamAllBooks(@RequestParam(defaultValue = "title") String sortBy) {
+        return catalogRepository.findAll(sortProperty(sortBy), 0, -1).limitRate(STREAM_PREFETCH);
+    }
+    
+    @GetMapping("/{id}")
+    public Mono<CatalogBook> getBookById(@PathVariable Long id) {
+        return catalogRepository.findById(id)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                String.format("Book not found with id: '%s'", id))));
+    }
+    
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PageResponse<CatalogBookSummary>> searchBooks(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        
+        checkPage(page, size);
+        long offset = (long) page * size;
+        String fullTextQuery = fullTextQuery(keyword);
+        Mono<Long> total = fullTextQuery != null
+            ? catalogRepository.countFullText(fullTextQuery, fullTextSqlMode())
+            : catalogRepository.countLike(keyword);
+        return Mono.zip(search(keyword, offset, size).collectList(), total)
+            .map(result -> new PageResponse<>(result.getT1(), page, size, result.getT2()));
+    }
+    
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CatalogBookSummary> streamSearch(@RequestParam String keyword) {
+        return search(keyword, 0, -1).limitRate(STREAM_PREFETCH);
+    }
+    
+    @GetMapping("/genres")
+    public Flux<String> getAllGenres() {
+        return catalogRepository.findAllGenres();
+    }
+    
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<MessageResponse> handleStatus(ResponseStatusException ex) {
+        return ResponseEntity.status(ex.getStatusCode()).body(new MessageResponse(ex.getReason()));
+    }
+    
+    private Flux<CatalogBookSummary> search(String keyword, long offset, int limit) {
+        String fullTextQuery = fullTextQuery(keyword);
+        if (fullTextQuery != null) {
+            return catalogRepository.searchFullText(fullTextQuery, fullTextSqlMode(), offset, limit);
+        }
+        return catalogRepository.searchLike(keyword, offset, limit);
+    }
+    
+    // Null when the LIKE search applies, as in BookService.searchBooks
+    private String fullTextQuery(String keyword) {
+        if (!"fulltext".equalsIgnoreCase(searchEngine)) {
+            return null;
+        }
+        if ("natural".equalsIgnoreCase(fullTextMode)) {
+            return keyword;
+        }
+        String query = FullTextQueries.toBooleanQuery(keyword);
+        return query.isEmpty() ? null : query;
+    }
+    
+    private String fullTextSqlMode() {
+        return "natural".equalsIgnoreCase(fullTextMode) ? "NATURAL LANGUAGE" : "BOOLEAN";
+    }
+    
+    private static String sortProperty(String sortBy) {
+        if (!CatalogRepository.SORT_COLUMNS.containsKey(sortBy)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort books by '" + sortBy + "'");
+        }
+        return sortBy;
+    }
+    
+    private static void checkPage(int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page must be >= 0 and size >= 1");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package nojf.threegirlslibrary.catalog;
+
+import io.asyncer.r2dbc.mysql.MySqlConnectionConfiguration;
+import io.asyncer.r2dbc.mysql.MySqlConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+// R2DBC pool on the same MySQL schema as the main backend (which owns the Flyway migrations)
+@Configuration
+public class CatalogDatabaseConfig {
+    
+    @Value("${catalog.database.host:localhost}")
+    private String host;
+    
+    @Value("${catalog.database.port:3306}")
+    private int port;
+    
+    @Value("${catalog.database.name:three_girls_library}")
+    private String database;
+    
+    @Value("${catalog.database.username:root}")
+    private String username;
+    
+    @Value("${catalog.database.password:}")
+    private String password;
+    
+    @Value("${catalog.database.pool-size:20}")
+    private int poolSize;
+    
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionPool(ReactorResourceFactory reactorResourceFactory) {
+        // The driver runs on the same event loop as the HTTP server, so a query result is handed
+        // to the response without a thread switch and there is one set of I/O threads to size
+        MySqlConnectionConfiguration configuration = MySqlConnectionConfiguration.builder()
+            .host(host)
+            .port(port)
+            .database(database)
+            .user(username)
+            .password(password)
+            .connectionTimeZone("UTC")
+            .loopResources(reactorResourceFactory.getLoopResources())
+            .build();
+        
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(MySqlConnectionFactory.from(configuration))
+            .initialSize(Math.min(10, poolSize))
+            .maxSize(poolSize)
+            .maxIdleTime(Duration.ofMinutes(30))
+            .validationQuery("SELECT 1")
+            .build());
+    }
+    
+    @Bean
+    public DatabaseClient databaseClient(ConnectionPool connectionPool) {
+        return DatabaseClient.create(connectionPool);
+    }
+}
@@ -0,0 +1,133 @@
+package nojf.threegirlslibrary.catalog;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Same queries as BookRepository in the main backend, on R2DBC
+@Repository
+@RequiredArgsConstructor
+public class CatalogRepository {
+    
+    // Sortable Book properties -> columns; anything else is rejected rather than put into SQL
+    static final Map<String, String> SORT_COLUMNS = Map.of(
+        "id", "id",
+        "title", "title",
+        "author", "author",
+        "isbn", "isbn",
+        "genre", "genre",
+        "publishedYear", "published_year",
+        "availableCopies", "available_copies",
+        "createdAt", "created_at");
+    
+    // The columns of CatalogBookSummary; lists leave out the description
+    private static final String SUMMARY_COLUMNS =
+        "id, title, author, isbn, genre, cover_image_url, published_year, total_copies, available_copies";
+    
+    private static final String LIKE_MATCH =
+        "LOWER(title) LIKE CONCAT('%', LOWER(:keyword), '%') OR " +
+        "LOWER(author) LIKE CONCAT('%', LOWER(:keyword), '%') OR " +
+        "LOWER(genre) LIKE CONCAT('%', LOWER(:keyword), '%') OR " +
+        "LOWER(isbn) LIKE CONCAT('%', LOWER(:keyword), '%')";
+    
+    private final DatabaseClient databaseClient;
+    
+    public Mono<CatalogBook> findById(long id) {
+        return databaseClient.sql("SELECT * FROM books WHERE id = :id")
+            .bind("id", id)
+            .map(CatalogRepository::toBook)
+            .one();
+    }
+    
+    // limit < 0 reads to the end, for streaming
+    public Flux<CatalogBookSummary> findAll(String sortBy, long offset, int limit) {
+        return databaseClient.sql("SELECT " + SUMMARY_COLUMNS + " FROM books " +
+                                  "ORDER BY " + SORT_COLUMNS.get(sortBy) + ", id" + limitClause(offset, limit))
+            .map(CatalogRepository::toSummary)
+            .all();
+    }
+    
+    public Mono<Long> count() {
+        return databaseClient.sql("SELECT COUNT(*) FROM books")
+            .map(row -> row.get(0, Long.class))
+            .one();
+    }
+    
+    public Flux<CatalogBookSummary> searchLike(String keyword, long offset, int limit) {
+        return databaseClient.sql("SELECT " + SUMMARY_COLUMNS + " FROM books WHERE " + LIKE_MATCH +
+                                  " ORDER BY id" + limitClause(offset, limit))
+            .bind("keyword", keyword)
+            .map(CatalogRepository::toSummary)
+            .all();
+    }
+    
+    public Mono<Long> countLike(String keyword) {
+        return databaseClient.sql("SELECT COUNT(*) FROM books WHERE " + LIKE_MATCH)
+            .bind("keyword", keyword)
+            .map(row -> row.get(0, Long.class))
+            .one();
+    }
+    
+    // mode is "BOOLEAN" or "NATURAL LANGUAGE"; needs the V3 FULLTEXT index
+    public Flux<CatalogBookSummary> searchFullText(String query, String mode, long offset, int limit) {
+        String match = "MATCH(title, author, description) AGAINST (:query IN " + mode + " MODE)";
+        return databaseClient.sql("SELECT " + SUMMARY_COLUMNS + " FROM books WHERE " + match +
+                                  " ORDER BY " + match + " DESC, id" + limitClause(offset, limit))
+            .bind("query", query)
+            .map(CatalogRepository::toSummary)
+            .all();
+    }
+    
+    public Mono<Long> countFullText(String query, String mode) {
+        return databaseClient.sql("SELECT COUNT(*) FROM books WHERE " +
+                                  "MATCH(title, author, description) AGAINST (:query IN " + mode + " MODE)")
+            .bind("query", query)
+            .map(row -> row.get(0, Long.class))
+            .one();
+    }
+    
+    public Flux<String> findAllGenres() {
+        return databaseClient.sql("SELECT DISTINCT genre FROM books WHERE genre IS NOT NULL")
+            .map(row -> row.get(0, String.class))
+            .all();
+    }
+    
+    private static String limitClause(long offset, int limit) {
+        return limit < 0 ? "" : " LIMIT " + limit + " OFFSET " + offset;
+    }
+    
+    private static CatalogBookSummary toSummary(Readable row) {
+        return new CatalogBookSummary(
+            row.get("id", Long.class),
+            row.get("title", String.class),
+            row.get("author", String.class),
+            row.get("isbn", String.class),
+            row.get("genre", String.class),
+            row.get("cover_image_url", String.class),
+            row.get("published_year", Integer.class),
+            row.get("total_copies", Integer.class),
+            row.get("available_copies", Integer.class));
+    }
+    
+    private static CatalogBook toBook(Readable row) {
+        return new CatalogBook(
+            row.get("id", Long.class),
+            row.get("title", String.class),
+            row.get("author", String.class),
+            row.get("isbn", String.class),
+            row.get("genre", String.class),
+            row.get("description", String.class),
+            row.get("cover_image_url", String.class),
+            row.get("published_year", Integer.class),
+            row.get("total_copies", Integer.class),
+            row.get("available_copies", Integer.class),
+            row.get("created_at", LocalDateTime.class),
+            row.get("updated_at", LocalDateTime.class));
+    }
+}
@@ -0,0 +1,10 @@
+package nojf.threegirlslibrary.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MessageResponse {
+    private String message;
+}
@@ -0,0 +1,34 @@
+package nojf.threegirlslibrary.catalog;
+
+import lombok.Data;
+
+import java.util.List;
+
+// The fields of Spring Data's Page JSON that the frontend reads
+@Data
+public class PageResponse<T> {
+    private final List<T> content;
+    private final int number;
+    private final int size;
+    private final long totalElements;
+    
+    public int getTotalPages() {
+        return size == 0 ? 1 : (int) Math.ceil((double) totalElements / size);
+    }
+    
+    public int getNumberOfElements() {
+        return content.size();
+    }
+    
+    public boolean isFirst() {
+        return number == 0;
+    }
+    
+    public boolean isLast() {
+        return number + 1 >= getTotalPages();
+    }
+    
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+}
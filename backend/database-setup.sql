@@ -9,6 +9,10 @@
 --   1. Open MySQL command line or MySQL Workbench
 --   2. Run this script: mysql -u root -p < database-setup.sql
 --   3. Or copy and paste into MySQL Workbench and execute
+--
+-- Schema changes after this script live in
+-- src/main/resources/db/migration and are applied by Flyway
+-- when the application starts (this script counts as V1).
 -- ============================================================
 
 -- ============================================================
@@ -0,0 +1,38 @@
+package nojf.threegirlslibrary.search;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * MySQL FULLTEXT query building shared by BookService and the reactive catalog, so the same
+ * keyword finds the same books on both read paths.
+ */
+public final class FullTextQueries {
+    
+    // MySQL defaults of innodb_ft_min_token_size and INFORMATION_SCHEMA.INNODB_FT_DEFAULT_STOPWORD
+    private static final int MIN_TOKEN_SIZE = 3;
+    private static final Set<String> STOPWORDS = Set.of(
+        "a", "about", "an", "are", "as", "at", "be", "by", "com", "de", "en", "for", "from", "how", "i", "in",
+        "is", "it", "la", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where", "who",
+        "will", "with", "und", "www");
+    
+    private FullTextQueries() {
+    }
+    
+    // "the harry pot" -> "+harry* +pot*", with user-typed boolean operators removed. InnoDB does not
+    // index stopwords or words shorter than innodb_ft_min_token_size, so a required one would match
+    // nothing; they are left out, and callers fall back to LIKE when nothing is left.
+    public static String toBooleanQuery(String keyword) {
+        StringBuilder query = new StringBuilder();
+        for (String term : keyword.replaceAll("[+\\-<>()~*\"@]", " ").trim().split("\\s+")) {
+            if (term.length() < MIN_TOKEN_SIZE || STOPWORDS.contains(term.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append('+').append(term).append('*');
+        }
+        return query.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package nojf.threegirlslibrary.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.entity.User;
+import nojf.threegirlslibrary.repository.BookRepository;
+import nojf.threegirlslibrary.repository.UserRepository;
+import nojf.threegirlslibrary.util.BatchLoader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Coalescing of concurrent GET /books/{id} and GET /users/{id} lookups into IN queries
+@Configuration
+public class BatchingConfig {
+    
+    @Value("${library.batching.window:PT0.002S}")
+    private Duration window;
+    
+    @Value("${library.batching.max-batch-size:100}")
+    private int maxBatchSize;
+    
+    // Each thread runs one batch query at a time, so keep this below the Hikari pool size
+    @Value("${library.batching.threads:4}")
+    private int threads;
+    
+    // Not a bean: a ScheduledExecutorService bean would replace the scheduler of @Scheduled jobs
+    private ScheduledExecutorService executor;
+    
+    @PostConstruct
+    void init() {
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    @Bean
+    public BatchLoader<Long, Book> bookLoader(BookRepository bookRepository) {
+        return new BatchLoader<>(ids -> {
+            Map<Long, Book> books = new HashMap<>();
+            bookRepository.findAllWithDescriptionById(ids).forEach(book -> books.put(book.getId(), book));
+            return books;
+        }, window, maxBatchSize, executor);
+    }
+    
+    @Bean
+    public BatchLoader<Long, User> userLoader(UserRepository userRepository) {
+        return new BatchLoader<>(ids -> {
+            Map<Long, User> users = new HashMap<>();
+            userRepository.findAllById(ids).forEach(user -> users.put(user.getId(), user));
+            return users;
+        }, window, maxBatchSize, executor);
+    }
+}
@@ -0,0 +1,50 @@
+package nojf.threegirlslibrary.config;
+
+import lombok.Data;
+import nojf.threegirlslibrary.entity.User;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "library.loan-policy")
+public class LoanPolicyProperties {
+    
+    // Books a patron may have out at once, by role; roles not listed (or 0) are unlimited
+    private Map<User.Role, Integer> maxActiveLoans = new HashMap<>(Map.of(User.Role.PATRON, 5));
+    
+    // Borrowing is refused while unpaid penalties exceed this, in cents; -1 never refuses
+    private long maxUnpaidPenaltyCents = 1000;
+    
+    // Loan period of every book whose genre has none of its own
+    private int defaultLoanDays = 14;
+    
+    // Loan periods by book genre, e.g. shorter for new releases
+    private Map<String, Integer> genreLoanDays = new HashMap<>();
+    
+    // Lock stripes of the per-patron counters (power of two)
+    private int counterStripes = 64;
+    
+    // Least recently borrowing patrons are dropped beyond this and reloaded on their next borrow
+    private int maxTrackedPatrons = 100_000;
+    
+    // Counters are reloaded from the database this often, for writes made by other instances
+    private Duration reconcileInterval = Duration.ofMinutes(10);
+    
+    // Patrons per query while reconciling
+    private int reconcileChunkSize = 1000;
+    
+    public int maxActiveLoansFor(User.Role role) {
+        Integer max = role != null ? maxActiveLoans.get(role) : null;
+        return max != null ? max : 0;
+    }
+    
+    public int loanDaysFor(String genre) {
+        Integer days = genre != null ? genreLoanDays.get(genre) : null;
+        return days != null ? days : defaultLoanDays;
+    }
+}
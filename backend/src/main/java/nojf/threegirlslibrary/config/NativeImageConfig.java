@@ -0,0 +1,70 @@
+package nojf.threegirlslibrary.config;
+
+import nojf.threegirlslibrary.dto.AuthResponse;
+import nojf.threegirlslibrary.dto.BookRequest;
+import nojf.threegirlslibrary.dto.LoanRequest;
+import nojf.threegirlslibrary.dto.LoginRequest;
+import nojf.threegirlslibrary.dto.MessageResponse;
+import nojf.threegirlslibrary.dto.RegisterRequest;
+import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.entity.Loan;
+import nojf.threegirlslibrary.entity.Penalty;
+import nojf.threegirlslibrary.entity.User;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+// Reachability metadata for the GraalVM native image (./gradlew nativeCompile -Pnative).
+// Spring AOT covers beans and JPA mappings, the GraalVM metadata repository covers the MySQL driver.
+@Configuration
+@ImportRuntimeHints(NativeImageConfig.LibraryRuntimeHints.class)
+public class NativeImageConfig {
+    
+    static class LibraryRuntimeHints implements RuntimeHintsRegistrar {
+        
+        // jjwt-api finds its implementation classes by name at runtime
+        private static final String[] JJWT_CLASSES = {
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationPolicyBuilder",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+        };
+        
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (String className : JJWT_CLASSES) {
+                hints.reflection().registerType(TypeReference.of(className),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.ACCESS_DECLARED_FIELDS);
+            }
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+            
+            // Entities and DTOs are serialized by Jackson through Lombok-generated accessors
+            BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+            bindings.registerReflectionHints(hints.reflection(),
+                Book.class, Loan.class, Penalty.class, User.class,
+                AuthResponse.class, BookRequest.class, LoanRequest.class,
+                LoginRequest.class, MessageResponse.class, RegisterRequest.class);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package nojf.threegirlslibrary.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "library.penalties")
+public class PenaltyProperties {
+    
+    // Used for every book whose genre has no schedule of its own
+    private FeeSchedule defaultSchedule = new FeeSchedule();
+    
+    // Fee schedules by book genre, e.g. reference works or new releases
+    private Map<String, FeeSchedule> genres = new HashMap<>();
+    
+    // Loans per INSERT ... SELECT statement of the nightly accrual job
+    private int accrualChunkSize = 50_000;
+    
+    public FeeSchedule scheduleFor(String genre) {
+        FeeSchedule schedule = genre != null ? genres.get(genre) : null;
+        return schedule != null ? schedule : defaultSchedule;
+    }
+    
+    // All amounts in cents, so fees are computed with long arithmetic and no rounding
+    @Data
+    public static class FeeSchedule {
+        private long dailyRateCents = 100;
+        
+        // Days after the due date that are free; fees accrue for the days after that
+        private int graceDays = 0;
+        
+        // Upper limit of one fee, 0 for no limit
+        private long maxFeeCents = 0;
+        
+        public long feeCents(long daysLate) {
+            long chargeableDays = daysLate - graceDays;
+            if (chargeableDays <= 0) {
+                return 0;
+            }
+            long fee = chargeableDays * dailyRateCents;
+            return maxFeeCents > 0 ? Math.min(fee, maxFeeCents) : fee;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package nojf.threegirlslibrary.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "library.rate-limit")
+public class RateLimitProperties {
+    
+    private boolean enabled = true;
+    
+    // Use the first X-Forwarded-For address as client IP (only behind a trusted proxy)
+    private boolean trustForwardedFor = false;
+    
+    // Idle buckets are swept once more than this many clients are tracked
+    private int maxTrackedClients = 100_000;
+    
+    // Minimum time between two sweeps, so a full map is not scanned on every request
+    private Duration sweepInterval = Duration.ofSeconds(1);
+    
+    // Limits per route group: auth, search, circulation, admin, default
+    private Map<String, Limit> groups = new HashMap<>();
+    
+    private Shedding shedding = new Shedding();
+    
+    @Data
+    public static class Limit {
+        private double requestsPerSecond = 10;
+        private int burst = 20;
+    }
+    
+    @Data
+    public static class Shedding {
+        private boolean enabled = true;
+        private int initialConcurrency = 200;
+        private int minConcurrency = 10;
+        private int maxConcurrency = 1000;
+        private long p99ThresholdMillis = 500;
+        private int minSamples = 50;
+        private int maxThreadsAwaitingConnection = 5;
+        private long windowMillis = 1000;
+    }
+}
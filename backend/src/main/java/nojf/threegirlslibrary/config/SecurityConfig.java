@@ -1,6 +1,8 @@
 package nojf.threegirlslibrary.config;
 
+import nojf.threegirlslibrary.security.IdempotencyFilter;
 import nojf.threegirlslibrary.security.JwtAuthenticationFilter;
+import nojf.threegirlslibrary.security.RateLimitFilter;
 import nojf.threegirlslibrary.security.UserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -29,6 +31,8 @@ public class SecurityConfig {
     
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final IdempotencyFilter idempotencyFilter;
     
     @Bean
     public PasswordEncoder passwordEncoder() {
@@ -70,7 +74,9 @@ public class SecurityConfig {
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/books/**").permitAll()
                         .anyRequest().authenticated())
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
+                .addFilterAfter(idempotencyFilter, RateLimitFilter.class);
         
         return http.build();
     }
@@ -1,9 +1,23 @@
 package nojf.threegirlslibrary.controller;
 
+import nojf.threegirlslibrary.dto.BookChangesResponse;
+import nojf.threegirlslibrary.dto.BookFacetResponse;
 import nojf.threegirlslibrary.dto.BookRequest;
+import nojf.threegirlslibrary.dto.BookSummary;
 import nojf.threegirlslibrary.dto.MessageResponse;
+import nojf.threegirlslibrary.dto.RelatedBookResponse;
+import nojf.threegirlslibrary.dto.SearchCacheStats;
+import nojf.threegirlslibrary.dto.TrendingBookResponse;
 import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.service.AvailabilityStreamService;
+import nojf.threegirlslibrary.service.BookEnrichmentService;
 import nojf.threegirlslibrary.service.BookService;
+import nojf.threegirlslibrary.service.CatalogChangeFeedService;
+import nojf.threegirlslibrary.service.CatalogFacetService;
+import nojf.threegirlslibrary.service.CoverStorageService;
+import nojf.threegirlslibrary.service.RecommendationService;
+import nojf.threegirlslibrary.service.SearchResultCache;
+import nojf.threegirlslibrary.service.TrendingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -11,9 +25,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -24,41 +41,122 @@ import java.util.List;
 public class BookController {
     
     private final BookService bookService;
+    private final BookEnrichmentService bookEnrichmentService;
+    private final CoverStorageService coverStorageService;
+    private final RecommendationService recommendationService;
+    private final TrendingService trendingService;
+    private final AvailabilityStreamService availabilityStreamService;
+    private final CatalogFacetService catalogFacetService;
+    private final CatalogChangeFeedService catalogChangeFeedService;
+    private final SearchResultCache searchResultCache;
     
     @GetMapping
-    public ResponseEntity<Page<Book>> getAllBooks(
+    public ResponseEntity<Page<BookSummary>> getAllBooks(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "title") String sortBy) {
         
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy));
-        Page<Book> books = bookService.getAllBooks(pageable);
+        Page<BookSummary> books = bookService.getAllBooks(pageable);
+        return ResponseEntity.ok(books);
+    }
+    
+    // GET /books?ids=1,2,3, one query for all of them
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<Book>> getBooksByIds(@RequestParam List<Long> ids) {
+        List<Book> books = bookService.getBooksByIds(ids);
         return ResponseEntity.ok(books);
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<Book> getBookById(@PathVariable Long id) {
-        Book book = bookService.getBookById(id);
+        Book book = bookService.loadBookById(id);
+        trendingService.recordView(id);
         return ResponseEntity.ok(book);
     }
     
+    // Server-Sent Events with availableCopies changes, see AvailabilityStreamService
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAvailability() {
+        SseEmitter emitter = availabilityStreamService.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingBookResponse>> getTrendingBooks(
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<TrendingBookResponse> trending = trendingService.getTrending(window, Math.min(limit, 50));
+        return ResponseEntity.ok(trending);
+    }
+    
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<RelatedBookResponse>> getRelatedBooks(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<RelatedBookResponse> related = recommendationService.getRelatedBooks(id, Math.min(limit, 50));
+        return ResponseEntity.ok(related);
+    }
+    
     @GetMapping("/search")
-    public ResponseEntity<Page<Book>> searchBooks(
+    public ResponseEntity<Page<BookSummary>> searchBooks(
             @RequestParam String keyword,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Book> books = bookService.searchBooks(keyword, pageable);
+        Page<BookSummary> books = fuzzy
+            ? bookService.fuzzySearchBooks(keyword, pageable)
+            : bookService.searchBooks(keyword, pageable);
         return ResponseEntity.ok(books);
     }
     
+    // Hit ratio of the search result cache
+    @GetMapping("/search/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SearchCacheStats> getSearchCacheStats() {
+        return ResponseEntity.ok(searchResultCache.getStats());
+    }
+    
     @GetMapping("/available")
-    public ResponseEntity<List<Book>> getAvailableBooks() {
-        List<Book> books = bookService.getAvailableBooks();
+    public ResponseEntity<List<BookSummary>> getAvailableBooks() {
+        List<BookSummary> books = bookService.getAvailableBooks();
         return ResponseEntity.ok(books);
     }
     
+    // GET /books/facets?keyword=harry&genre=Fiction&decade=1990&authorInitial=R&available=true
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacetResponse> getFacets(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) Integer decade,
+            @RequestParam(required = false) String authorInitial,
+            @RequestParam(required = false) Boolean available) {
+        
+        BookFacetResponse facets = catalogFacetService.getFacets(keyword, genre, decade, authorInitial, available);
+        if (facets == null) {
+            // Still loading the catalog after a restart
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+        return ResponseEntity.ok(facets);
+    }
+    
+    // GET /books/changes?since=0&limit=500, repeat with the returned version while hasMore
+    @GetMapping("/changes")
+    public ResponseEntity<BookChangesResponse> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        
+        BookChangesResponse changes = catalogChangeFeedService.getChanges(since, limit);
+        return ResponseEntity.ok(changes);
+    }
+    
     @GetMapping("/genres")
     public ResponseEntity<List<String>> getAllGenres() {
         List<String> genres = bookService.getAllGenres();
@@ -72,6 +170,27 @@ public class BookController {
         return ResponseEntity.status(HttpStatus.CREATED).body(book);
     }
     
+    @PostMapping("/enrich")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MessageResponse> enrichBooks() {
+        bookEnrichmentService.startEnrichment();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .body(new MessageResponse("Book enrichment started"));
+    }
+    
+    @PostMapping(value = "/{id}/cover", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Book> uploadCover(
+            @PathVariable Long id,
+            @RequestParam("file") MultipartFile file) {
+        
+        bookService.getBookById(id);
+        String hash = coverStorageService.store(file);
+        // Relative to the API base URL, so stored URLs survive host, port and proxy changes
+        Book book = bookService.updateCoverImageUrl(id, "/books/covers/" + hash);
+        return ResponseEntity.ok(book);
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Book> updateBook(
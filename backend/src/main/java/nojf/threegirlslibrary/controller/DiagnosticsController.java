@@ -0,0 +1,103 @@
+package nojf.threegirlslibrary.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import nojf.threegirlslibrary.dto.DiagnosticsSummary;
+import nojf.threegirlslibrary.dto.MessageResponse;
+import nojf.threegirlslibrary.dto.RecordingInfo;
+import nojf.threegirlslibrary.exception.BadRequestException;
+import nojf.threegirlslibrary.service.DiagnosticsService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+// JDK Flight Recorder data for latency investigations; .jfr files open in JDK Mission Control
+@RestController
+@RequestMapping("/diagnostics")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class DiagnosticsController {
+    
+    private static final String JFR_CONTENT_TYPE = "application/octet-stream";
+    
+    private final DiagnosticsService diagnosticsService;
+    
+    // The last N minutes of the continuous recording
+    @GetMapping("/dump")
+    public void dump(@RequestParam(defaultValue = "5") int minutes, HttpServletResponse response) throws IOException {
+        if (!diagnosticsService.isRecording()) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Flight recording is off");
+            return;
+        }
+        send(diagnosticsService.dump(window(minutes)), "library-last-" + minutes + "m.jfr", response);
+    }
+    
+    @GetMapping("/hotspots")
+    public ResponseEntity<DiagnosticsSummary> getHotspots(
+            @RequestParam(defaultValue = "5") int minutes,
+            @RequestParam(defaultValue = "10") int top) throws IOException {
+        
+        if (!diagnosticsService.isRecording()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(diagnosticsService.summarize(window(minutes), Math.max(1, top)));
+    }
+    
+    // duration in ISO-8601 (PT2M); without it the recording runs until stopped
+    @PostMapping("/recordings")
+    public ResponseEntity<RecordingInfo> startRecording(
+            @RequestParam(defaultValue = "profile") String settings,
+            @RequestParam(required = false) Duration duration) {
+        
+        RecordingInfo recording = diagnosticsService.startRecording(settings, duration);
+        return ResponseEntity.status(HttpStatus.CREATED).body(recording);
+    }
+    
+    @GetMapping("/recordings")
+    public ResponseEntity<List<RecordingInfo>> getRecordings() {
+        return ResponseEntity.ok(diagnosticsService.getRecordings());
+    }
+    
+    @PostMapping("/recordings/{id}/stop")
+    public ResponseEntity<RecordingInfo> stopRecording(@PathVariable Long id) {
+        return ResponseEntity.ok(diagnosticsService.stopRecording(id));
+    }
+    
+    @GetMapping("/recordings/{id}/file")
+    public void getRecordingFile(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        send(diagnosticsService.dumpRecording(id), "library-recording-" + id + ".jfr", response);
+    }
+    
+    @DeleteMapping("/recordings/{id}")
+    public ResponseEntity<MessageResponse> deleteRecording(@PathVariable Long id) {
+        diagnosticsService.deleteRecording(id);
+        return ResponseEntity.ok(new MessageResponse("Recording deleted"));
+    }
+    
+    private static Duration window(int minutes) {
+        if (minutes < 1) {
+            throw new BadRequestException("minutes must be at least 1");
+        }
+        return Duration.ofMinutes(minutes);
+    }
+    
+    private static void send(Path file, String filename, HttpServletResponse response) throws IOException {
+        try {
+            response.setContentType(JFR_CONTENT_TYPE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+            response.setContentLengthLong(Files.size(file));
+            Files.copy(file, response.getOutputStream());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
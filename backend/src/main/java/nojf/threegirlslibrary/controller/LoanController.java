@@ -1,11 +1,15 @@
 package nojf.threegirlslibrary.controller;
 
+import nojf.threegirlslibrary.dto.LoanHistoryResponse;
 import nojf.threegirlslibrary.dto.LoanRequest;
 import nojf.threegirlslibrary.dto.MessageResponse;
 import nojf.threegirlslibrary.entity.Loan;
+import nojf.threegirlslibrary.service.LoanArchiveService;
 import nojf.threegirlslibrary.service.LoanService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,6 +25,7 @@ import java.util.List;
 public class LoanController {
     
     private final LoanService loanService;
+    private final LoanArchiveService loanArchiveService;
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -41,6 +46,18 @@ public class LoanController {
         return ResponseEntity.ok(loans);
     }
     
+    // Paged, newest first, including loans already moved to the archive
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<Page<LoanHistoryResponse>> getLoanHistory(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        Page<LoanHistoryResponse> history =
+            loanArchiveService.getLoanHistory(userId, PageRequest.of(page, Math.min(size, 100)));
+        return ResponseEntity.ok(history);
+    }
+    
     @GetMapping("/user/{userId}/active")
     public ResponseEntity<List<Loan>> getActiveLoansByUserId(@PathVariable Long userId) {
         List<Loan> loans = loanService.getActiveLoansByUserId(userId);
@@ -4,6 +4,8 @@ import nojf.threegirlslibrary.dto.MessageResponse;
 import nojf.threegirlslibrary.entity.User;
 import nojf.threegirlslibrary.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -25,9 +27,29 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
     
+    // GET /users?ids=1,2,3, one query for all of them
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<User>> getUsersByIds(@RequestParam List<Long> ids) {
+        List<User> users = userService.getUsersByIds(ids);
+        return ResponseEntity.ok(users);
+    }
+    
+    // GET /users/search?q=smith&status=SUSPENDED&role=PATRON; q matches name, email or phone
+    @GetMapping("/search")
+    public ResponseEntity<Page<User>> searchUsers(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(required = false) User.Status status,
+            @RequestParam(required = false) User.Role role,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        Page<User> users = userService.searchUsers(q, status, role, PageRequest.of(page, Math.min(size, 100)));
+        return ResponseEntity.ok(users);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        User user = userService.getUserById(id);
+        User user = userService.loadUserById(id);
         return ResponseEntity.ok(user);
     }
     
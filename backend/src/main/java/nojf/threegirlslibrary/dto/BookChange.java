@@ -0,0 +1,15 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import nojf.threegirlslibrary.entity.Book;
+
+// One entry of GET /books/changes: the book as it is now (UPSERT) or a tombstone (DELETE, book null)
+@Data
+@AllArgsConstructor
+public class BookChange {
+    private Long version;
+    private String type;
+    private Long bookId;
+    private Book book;
+}
@@ -0,0 +1,15 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// version is the since to send next time; hasMore means call again right away
+@Data
+@AllArgsConstructor
+public class BookChangesResponse {
+    private Long version;
+    private Boolean hasMore;
+    private List<BookChange> changes;
+}
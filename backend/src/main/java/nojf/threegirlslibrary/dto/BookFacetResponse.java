@@ -0,0 +1,17 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+// Counts for GET /books/facets; each facet ignores its own filter so other values stay selectable
+@Data
+@AllArgsConstructor
+public class BookFacetResponse {
+    private Long total;
+    private Map<String, Long> genres;
+    private Map<String, Long> publishedDecades;
+    private Map<String, Long> authorInitials;
+    private Map<String, Long> availability;
+}
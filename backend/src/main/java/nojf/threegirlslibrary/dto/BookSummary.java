@@ -0,0 +1,28 @@
+package nojf.threegirlslibrary.dto;
+
+// Book as shown in lists: everything but the description, which only the details view needs.
+// A closed projection, so Spring Data selects just these columns.
+public interface BookSummary {
+    
+    Long getId();
+    
+    String getTitle();
+    
+    String getAuthor();
+    
+    String getIsbn();
+    
+    String getGenre();
+    
+    String getCoverImageUrl();
+    
+    Integer getPublishedYear();
+    
+    Integer getTotalCopies();
+    
+    Integer getAvailableCopies();
+    
+    default boolean isAvailable() {
+        return getAvailableCopies() != null && getAvailableCopies() > 0;
+    }
+}
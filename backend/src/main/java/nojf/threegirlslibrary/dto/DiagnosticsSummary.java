@@ -0,0 +1,47 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+// GET /diagnostics/hotspots: the heaviest entries of each kind within [from, to], largest total first
+@Data
+@AllArgsConstructor
+public class DiagnosticsSummary {
+    private Instant from;
+    private Instant to;
+    
+    // total = estimated bytes allocated, by allocated class and by allocating method
+    private List<Hotspot> allocationByClass;
+    private List<Hotspot> allocationBySite;
+    
+    // total = milliseconds blocked on a monitor (synchronized), by monitor class and by waiting method
+    private List<Hotspot> monitorContentionByClass;
+    private List<Hotspot> monitorContentionBySite;
+    
+    // total = milliseconds parked (locks, queues, connection pool), by parked-on class
+    private List<Hotspot> threadParkByClass;
+    
+    // Latency of each library event (borrow, return, search, JWT authentication)
+    private List<Operation> operations;
+    
+    @Data
+    @AllArgsConstructor
+    public static class Hotspot {
+        private String name;
+        private Long events;
+        private Double total;
+    }
+    
+    @Data
+    @AllArgsConstructor
+    public static class Operation {
+        private String name;
+        private Long count;
+        private Double p50Millis;
+        private Double p99Millis;
+        private Double maxMillis;
+    }
+}
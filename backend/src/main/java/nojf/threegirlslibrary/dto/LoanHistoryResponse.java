@@ -0,0 +1,24 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One loan of a patron's history, from the loans table or from the archive
+@Data
+@AllArgsConstructor
+public class LoanHistoryResponse {
+    private Long id;
+    private Long bookId;
+    private String bookTitle;
+    private String bookAuthor;
+    private LocalDateTime borrowedAt;
+    private LocalDateTime dueDate;
+    private LocalDateTime returnedAt;
+    private String status;
+    private BigDecimal penaltyAmount;
+    private String penaltyStatus;
+    private boolean archived;
+}
@@ -0,0 +1,20 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// A JFR recording started through POST /diagnostics/recordings
+@Data
+@AllArgsConstructor
+public class RecordingInfo {
+    private Long id;
+    private String name;
+    private String state;       // NEW, RUNNING, STOPPED or CLOSED
+    private String settings;    // default or profile
+    private Instant startTime;
+    private Duration duration;  // null = until stopped
+    private Long sizeBytes;
+}
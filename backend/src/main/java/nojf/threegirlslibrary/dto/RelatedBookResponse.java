@@ -0,0 +1,12 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RelatedBookResponse {
+    private Long bookId;
+    private Integer coBorrowCount;
+    private Double score;
+}
@@ -0,0 +1,17 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// GET /books/search/cache; coalesced = lookups that waited for an identical search in flight
+@Data
+@AllArgsConstructor
+public class SearchCacheStats {
+    private Boolean enabled;
+    private Long catalogVersion;
+    private Integer entries;
+    private Long hits;
+    private Long coalesced;
+    private Long misses;
+    private Double hitRatio;
+}
@@ -0,0 +1,11 @@
+package nojf.threegirlslibrary.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TrendingBookResponse {
+    private Long bookId;
+    private Double score;
+}
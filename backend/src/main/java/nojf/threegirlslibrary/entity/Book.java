@@ -6,8 +6,10 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.Hibernate;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -17,7 +19,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "books")
-@Data
+@Getter
+@Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Book {
@@ -44,6 +47,9 @@ public class Book {
     @Column
     private String genre;
     
+    // Only read by book details; lazy with bytecode enhancement (see build.gradle), so loading a
+    // book to borrow, return or edit it does not drag the TEXT column along
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "TEXT")
     private String description;
     
@@ -96,4 +102,26 @@ public class Book {
             throw new IllegalStateException("All copies already returned");
         }
     }
+    
+    // Identity only: never touches loans or lazy fields, and stays stable across persist
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) {
+            return false;
+        }
+        return id != null && id.equals(((Book) o).getId());
+    }
+    
+    @Override
+    public int hashCode() {
+        return Hibernate.getClass(this).hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return "Book(id=" + id + ", title=" + title + ", isbn=" + isbn + ")";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package nojf.threegirlslibrary.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Response of a request sent with an Idempotency-Key, replayed to retries of the same request
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    
+    // "user:<id>|<Idempotency-Key>", so clients cannot see each other's responses
+    @Id
+    @Column(name = "scope_key", length = 300)
+    private String scopeKey;
+    
+    // SHA-256 of method, path and body, to catch a key reused for a different request
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+    
+    @Column(nullable = false)
+    private Integer status;
+    
+    @Column(name = "content_type")
+    private String contentType;
+    
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] body;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+}
@@ -1,5 +1,6 @@
 package nojf.threegirlslibrary.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,7 +11,11 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "loans")
+@Table(name = "loans", indexes = {
+    @Index(name = "idx_loans_user_status", columnList = "user_id, status"),
+    @Index(name = "idx_loans_status_due_date", columnList = "status, due_date"),
+    @Index(name = "idx_loans_user_book_status", columnList = "user_id, book_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,6 +29,8 @@ public class Loan {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
+    // Loan views only show the title; serializing the description would load it book by book
+    @JsonIgnoreProperties("description")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
@@ -0,0 +1,40 @@
+package nojf.threegirlslibrary.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One Open Library lookup, keyed by ISBN without dashes
+@Entity
+@Table(name = "open_library_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenLibraryCacheEntry {
+    
+    @Id
+    @Column(length = 20)
+    private String isbn;
+    
+    @Column(nullable = false)
+    private Boolean found;
+    
+    @Column(columnDefinition = "TEXT")
+    private String description;
+    
+    @Column(name = "cover_image_url", length = 500)
+    private String coverImageUrl;
+    
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+}
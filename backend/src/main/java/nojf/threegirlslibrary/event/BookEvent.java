@@ -0,0 +1,21 @@
+package nojf.threegirlslibrary.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Published by BookService when an admin adds, changes or deletes a book; loans publish LoanEvent instead.
+// availableCopies is null for DELETED.
+@Getter
+@AllArgsConstructor
+@ToString
+public class BookEvent {
+    
+    private final Type type;
+    private final Long bookId;
+    private final Integer availableCopies;
+    
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
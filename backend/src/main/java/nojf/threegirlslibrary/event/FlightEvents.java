@@ -0,0 +1,81 @@
+package nojf.threegirlslibrary.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the library's hot paths, recorded by the continuous recording of
+ * DiagnosticsService (unlike the Spring application events next to them, these never reach a
+ * listener). Each one times its method with begin() and commit(); a disabled event costs about
+ * nothing. No stack traces, they would cost more than the events themselves.
+ */
+public final class FlightEvents {
+    
+    private FlightEvents() {
+    }
+    
+    @Name("nojf.library.Borrow")
+    @Label("Borrow Book")
+    @Description("LoanService.borrowBook, without the commit")
+    @Category({"Library", "Loans"})
+    @StackTrace(false)
+    public static class Borrow extends Event {
+        @Label("User Id")
+        public long userId;
+        
+        @Label("Book Id")
+        public long bookId;
+        
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+    
+    @Name("nojf.library.Return")
+    @Label("Return Book")
+    @Description("LoanService.returnBook, without the commit")
+    @Category({"Library", "Loans"})
+    @StackTrace(false)
+    public static class Return extends Event {
+        @Label("Loan Id")
+        public long loanId;
+        
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+    
+    @Name("nojf.library.Search")
+    @Label("Search Books")
+    @Description("BookService.searchBooks and fuzzySearchBooks")
+    @Category({"Library", "Books"})
+    @StackTrace(false)
+    public static class Search extends Event {
+        @Label("Keyword")
+        public String keyword;
+        
+        @Label("Fuzzy")
+        public boolean fuzzy;
+        
+        @Label("Page")
+        public int page;
+        
+        @Label("Matches")
+        public long matches;
+    }
+    
+    @Name("nojf.library.JwtAuthentication")
+    @Label("JWT Authentication")
+    @Description("Token parsing and validation in JwtAuthenticationFilter, without the rest of the chain")
+    @Category({"Library", "Security"})
+    @StackTrace(false)
+    public static class JwtAuthentication extends Event {
+        @Label("Path")
+        public String path;
+        
+        @Label("Authenticated")
+        public boolean authenticated;
+    }
+}
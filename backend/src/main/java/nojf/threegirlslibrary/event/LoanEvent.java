@@ -0,0 +1,31 @@
+package nojf.threegirlslibrary.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// Published by LoanService; listeners use @TransactionalEventListener so they only see committed loans
+@Getter
+@AllArgsConstructor
+@ToString
+public class LoanEvent {
+    
+    private final Type type;
+    private final Long loanId;
+    private final Long userId;
+    private final Long bookId;
+    private final Integer availableCopies;
+    
+    // So listeners can price late fees without loading the loan
+    private final LocalDateTime dueDate;
+    private final String genre;
+    
+    // Unpaid penalty left by a late return, 0 otherwise
+    private final long penaltyCents;
+    
+    public enum Type {
+        BORROWED, RETURNED
+    }
+}
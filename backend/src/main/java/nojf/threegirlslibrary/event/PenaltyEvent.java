@@ -0,0 +1,20 @@
+package nojf.threegirlslibrary.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Published by PenaltyService; listeners use @TransactionalEventListener so they only see committed changes
+@Getter
+@AllArgsConstructor
+@ToString
+public class PenaltyEvent {
+    
+    private final Type type;
+    private final Long penaltyId;
+    private final Long userId;
+    
+    public enum Type {
+        WAIVED
+    }
+}
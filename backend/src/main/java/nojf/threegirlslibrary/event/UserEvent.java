@@ -0,0 +1,34 @@
+package nojf.threegirlslibrary.event;
+
+import lombok.Getter;
+import lombok.ToString;
+import nojf.threegirlslibrary.entity.User;
+
+// Published by AuthService and UserService when an account is created, changed or deleted.
+// Carries a copy of the searchable fields so listeners never touch the (by then detached) entity.
+@Getter
+@ToString
+public class UserEvent {
+    
+    private final Type type;
+    private final Long userId;
+    private final String fullName;
+    private final String email;
+    private final String phone;
+    private final User.Role role;
+    private final User.Status status;
+    
+    public UserEvent(Type type, User user) {
+        this.type = type;
+        this.userId = user.getId();
+        this.fullName = user.getFullName();
+        this.email = user.getEmail();
+        this.phone = user.getPhone();
+        this.role = user.getRole();
+        this.status = user.getStatus();
+    }
+    
+    public enum Type {
+        REGISTERED, UPDATED, DELETED
+    }
+}
@@ -1,19 +1,38 @@
 package nojf.threegirlslibrary.repository;
 
+import jakarta.persistence.QueryHint;
+import nojf.threegirlslibrary.dto.BookSummary;
 import nojf.threegirlslibrary.entity.Book;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.StreamSupport;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
     
+    String SUMMARY_COLUMNS = "id, title, author, isbn, genre, cover_image_url AS coverImageUrl, " +
+                             "published_year AS publishedYear, total_copies AS totalCopies, " +
+                             "available_copies AS availableCopies";
+    
+    String SEARCH_CONDITION = "LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                              "LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                              "LOWER(b.genre) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                              "LOWER(b.isbn) LIKE LOWER(CONCAT('%', :keyword, '%'))";
+    
     Optional<Book> findByIsbn(String isbn);
     
     Boolean existsByIsbn(String isbn);
@@ -24,15 +43,90 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     
     List<Book> findByGenre(String genre);
     
-    List<Book> findByAvailableCopiesGreaterThan(Integer copies);
+    // List queries return BookSummary, so the description is never read for a page of books
+    Page<BookSummary> findAllProjectedBy(Pageable pageable);
+    
+    List<BookSummary> findByAvailableCopiesGreaterThan(Integer copies);
+    
+    List<BookSummary> findProjectedByIdIn(Collection<Long> ids);
+    
+    @Query(value = "SELECT b.id AS id, b.title AS title, b.author AS author, b.isbn AS isbn, b.genre AS genre, " +
+                   "b.coverImageUrl AS coverImageUrl, b.publishedYear AS publishedYear, " +
+                   "b.totalCopies AS totalCopies, b.availableCopies AS availableCopies FROM Book b WHERE " +
+                   SEARCH_CONDITION,
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE " + SEARCH_CONDITION)
+    Page<BookSummary> searchBooks(@Param("keyword") String keyword, Pageable pageable);
+    
+    // Still matches on description through the FULLTEXT index, it just is not returned
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM books WHERE " +
+                   "MATCH(title, author, description) AGAINST (:query IN BOOLEAN MODE) " +
+                   "ORDER BY MATCH(title, author, description) AGAINST (:query IN BOOLEAN MODE) DESC, id",
+           countQuery = "SELECT COUNT(*) FROM books WHERE " +
+                        "MATCH(title, author, description) AGAINST (:query IN BOOLEAN MODE)",
+           nativeQuery = true)
+    Page<BookSummary> fullTextSearchBooksBoolean(@Param("query") String query, Pageable pageable);
     
-    @Query("SELECT b FROM Book b WHERE " +
-           "LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(b.genre) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(b.isbn) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    Page<Book> searchBooks(@Param("keyword") String keyword, Pageable pageable);
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM books WHERE " +
+                   "MATCH(title, author, description) AGAINST (:query IN NATURAL LANGUAGE MODE) " +
+                   "ORDER BY MATCH(title, author, description) AGAINST (:query IN NATURAL LANGUAGE MODE) DESC, id",
+           countQuery = "SELECT COUNT(*) FROM books WHERE " +
+                        "MATCH(title, author, description) AGAINST (:query IN NATURAL LANGUAGE MODE)",
+           nativeQuery = true)
+    Page<BookSummary> fullTextSearchBooksNatural(@Param("query") String query, Pageable pageable);
+    
+    @Query("SELECT b.id, b.description FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findDescriptions(@Param("ids") Collection<Long> ids);
+    
+    // Loaded read-only: no snapshots kept, and the description filled in below is never flushed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids")
+    List<Book> findAllReadOnlyById(@Param("ids") Collection<Long> ids);
+    
+    // Whole books for responses that show them: the lazy description of all of them in one
+    // query rather than one per book, and usable once the books are detached
+    @Transactional(readOnly = true)
+    default List<Book> findAllWithDescriptionById(Iterable<Long> ids) {
+        List<Long> idList = StreamSupport.stream(ids.spliterator(), false).toList();
+        if (idList.isEmpty()) {
+            return List.of();
+        }
+        List<Book> books = findAllReadOnlyById(idList);
+        if (!books.isEmpty()) {
+            Map<Long, String> descriptions = new HashMap<>();
+            findDescriptions(books.stream().map(Book::getId).toList())
+                .forEach(row -> descriptions.put((Long) row[0], (String) row[1]));
+            books.forEach(book -> book.setDescription(descriptions.get(book.getId())));
+        }
+        return books;
+    }
+    
+    // [id, title, author, isbn, genre, publishedYear, availableCopies] after afterId, for CatalogFacetService
+    @Query("SELECT b.id, b.title, b.author, b.isbn, b.genre, b.publishedYear, b.availableCopies " +
+           "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<Object[]> findFacetFieldsAfter(@Param("afterId") Long afterId, Pageable pageable);
     
     @Query("SELECT DISTINCT b.genre FROM Book b WHERE b.genre IS NOT NULL")
     List<String> findAllGenres();
+    
+    // ISBNs of books still missing a description or cover, paged by ISBN for BookEnrichmentService
+    @Query("SELECT DISTINCT b.isbn FROM Book b WHERE b.isbn > :after AND " +
+           "(b.description IS NULL OR b.description = '' OR b.coverImageUrl IS NULL OR b.coverImageUrl = '') " +
+           "ORDER BY b.isbn")
+    List<String> findIsbnsMissingMetadata(@Param("after") String after, Pageable pageable);
+    
+    // Only fills empty fields, so descriptions and covers entered by admins are never overwritten
+    @Modifying
+    @Transactional
+    @Query("UPDATE Book b SET " +
+           "b.description = CASE WHEN b.description IS NULL OR b.description = '' " +
+           "THEN :description ELSE b.description END, " +
+           "b.coverImageUrl = CASE WHEN b.coverImageUrl IS NULL OR b.coverImageUrl = '' " +
+           "THEN :coverImageUrl ELSE b.coverImageUrl END, " +
+           "b.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE b.isbn = :isbn AND (" +
+           "(:description IS NOT NULL AND (b.description IS NULL OR b.description = '')) OR " +
+           "(:coverImageUrl IS NOT NULL AND (b.coverImageUrl IS NULL OR b.coverImageUrl = '')))")
+    int fillMissingMetadata(@Param("isbn") String isbn,
+                            @Param("description") String description,
+                            @Param("coverImageUrl") String coverImageUrl);
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -32,4 +33,34 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     Long countActiveLoansByUserId(@Param("userId") Long userId);
     
     Boolean existsByUserIdAndBookIdAndStatus(Long userId, Long bookId, Loan.Status status);
+    
+    // Includes loans moved to loan_history by LoanArchiveService
+    @Query(value = "SELECT user_id, book_id FROM loans " +
+                   "WHERE user_id >= :fromUserId AND user_id < :toUserId " +
+                   "UNION SELECT user_id, book_id FROM loan_history " +
+                   "WHERE user_id >= :fromUserId AND user_id < :toUserId",
+           nativeQuery = true)
+    List<Object[]> findUserBookPairs(@Param("fromUserId") Long fromUserId,
+                                     @Param("toUserId") Long toUserId);
+    
+    // Due date and genre of each overdue loan still out whose penalty has not been waived
+    @Query("SELECT l.dueDate, b.genre FROM Loan l JOIN l.book b LEFT JOIN l.penalty p " +
+           "WHERE l.user.id = :userId AND l.returnedAt IS NULL AND l.dueDate < :now " +
+           "AND (p.id IS NULL OR p.status = 'UNPAID')")
+    List<Object[]> findAccruingLoans(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    // User id, loan id, book id, due date, genre and penalty status (or null) of the loans still out
+    @Query("SELECT l.user.id, l.id, b.id, l.dueDate, b.genre, p.status FROM Loan l JOIN l.book b " +
+           "LEFT JOIN l.penalty p WHERE l.user.id IN :userIds AND l.returnedAt IS NULL")
+    List<Object[]> findOpenLoansOfUsers(@Param("userIds") Collection<Long> userIds);
+    
+    @Query(value = "SELECT MIN(user_id) FROM (SELECT MIN(user_id) AS user_id FROM loans " +
+                   "UNION ALL SELECT MIN(user_id) FROM loan_history) m",
+           nativeQuery = true)
+    Long findMinUserId();
+    
+    @Query(value = "SELECT MAX(user_id) FROM (SELECT MAX(user_id) AS user_id FROM loans " +
+                   "UNION ALL SELECT MAX(user_id) FROM loan_history) m",
+           nativeQuery = true)
+    Long findMaxUserId();
 }
\ No newline at end of file
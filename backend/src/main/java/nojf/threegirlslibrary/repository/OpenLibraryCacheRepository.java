@@ -0,0 +1,20 @@
+package nojf.threegirlslibrary.repository;
+
+import nojf.threegirlslibrary.entity.OpenLibraryCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OpenLibraryCacheRepository extends JpaRepository<OpenLibraryCacheEntry, String> {
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OpenLibraryCacheEntry e WHERE e.expiresAt < :before")
+    int deleteExpiredBefore(@Param("before") LocalDateTime before);
+}
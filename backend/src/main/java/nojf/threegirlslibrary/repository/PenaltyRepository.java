@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -22,6 +23,13 @@ public interface PenaltyRepository extends JpaRepository<Penalty, Long> {
     List<Penalty> findByUserIdAndStatus(@Param("userId") Long userId, 
                                          @Param("status") Penalty.Status status);
     
-    @Query("SELECT SUM(p.amount) FROM Penalty p WHERE p.user.id = :userId AND p.status = 'UNPAID'")
-    BigDecimal getTotalUnpaidPenaltiesByUserId(@Param("userId") Long userId);
+    // Penalties of loans still out are left to PenaltyService, which accrues them up to now
+    @Query("SELECT SUM(p.amount) FROM Penalty p " +
+           "WHERE p.user.id = :userId AND p.status = 'UNPAID' AND p.loan.returnedAt IS NOT NULL")
+    BigDecimal getTotalUnpaidPenaltiesOfReturnedLoans(@Param("userId") Long userId);
+    
+    // User id, loan id and amount of the penalties getTotalUnpaidPenaltiesOfReturnedLoans adds up
+    @Query("SELECT p.user.id, p.loan.id, p.amount FROM Penalty p " +
+           "WHERE p.user.id IN :userIds AND p.status = 'UNPAID' AND p.loan.returnedAt IS NOT NULL")
+    List<Object[]> findUnpaidPenaltiesOfReturnedLoans(@Param("userIds") Collection<Long> userIds);
 }
\ No newline at end of file
@@ -1,7 +1,11 @@
 package nojf.threegirlslibrary.repository;
 
 import nojf.threegirlslibrary.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -19,4 +23,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByStatus(User.Status status);
     
     List<User> findByFullNameContainingIgnoreCase(String name);
+    
+    // [id, fullName, email, phone, role, status] of the next accounts after afterId, for PatronSearchIndex
+    @Query("SELECT u.id, u.fullName, u.email, u.phone, u.role, u.status FROM User u " +
+           "WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchFieldsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Table-scan version of the patron search, used while the in-memory index is not ready. Like the
+    // index, it compares phones as digits only, against phoneQuery (see PatronSearchIndex.phoneQuery).
+    @Query("SELECT u FROM User u WHERE " +
+           "(LOWER(u.fullName) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+           "FUNCTION('REGEXP_REPLACE', u.phone, '[^0-9]', '') LIKE CONCAT('%', :phoneQuery, '%')) AND " +
+           "(:status IS NULL OR u.status = :status) AND " +
+           "(:role IS NULL OR u.role = :role)")
+    Page<User> searchUsers(@Param("query") String query,
+                           @Param("phoneQuery") String phoneQuery,
+                           @Param("status") User.Status status,
+                           @Param("role") User.Role role,
+                           Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package nojf.threegirlslibrary.security;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.config.RateLimitProperties;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caps the number of requests in flight and adapts the cap every window (AIMD):
+ * it shrinks by 10% when the window's p99 latency or the number of threads waiting for a
+ * Hikari connection crosses its threshold, and grows by one otherwise. The p99 only counts
+ * once the window has at least min-samples requests.
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+    
+    private static final int SAMPLE_SIZE = 1024;
+    
+    private final RateLimitProperties.Shedding config;
+    private final HikariDataSource hikari;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    
+    // Ring buffer of recent latencies; lossy under contention, which is fine for a percentile
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_SIZE);
+    private final AtomicLong sampleCount = new AtomicLong();
+    // Sample count when the current window started; older samples belong to earlier windows
+    private final AtomicLong windowStart = new AtomicLong();
+    private final AtomicLong windowEnd = new AtomicLong();
+    
+    public AdaptiveConcurrencyLimiter(RateLimitProperties properties, DataSource dataSource) {
+        this.config = properties.getShedding();
+        this.limit = config.getInitialConcurrency();
+        this.hikari = dataSource instanceof HikariDataSource ds ? ds : null;
+        this.windowEnd.set(System.nanoTime() + config.getWindowMillis() * 1_000_000L);
+    }
+    
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        long n = sampleCount.getAndIncrement();
+        samples.set((int) (n % SAMPLE_SIZE), latencyNanos);
+        
+        long now = System.nanoTime();
+        long end = windowEnd.get();
+        // Exactly one request per window wins the CAS and recomputes the limit
+        if (now >= end && windowEnd.compareAndSet(end, now + config.getWindowMillis() * 1_000_000L)) {
+            adjust(n + 1);
+        }
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    private void adjust(long totalSamples) {
+        long start = windowStart.getAndAccumulate(totalSamples, Math::max);
+        // A busy window may have wrapped the ring, then only its latest SAMPLE_SIZE samples are left.
+        // A release delayed past the next window can arrive with a count the window already passed.
+        long first = Math.max(start, totalSamples - SAMPLE_SIZE);
+        int size = (int) Math.max(0, totalSamples - first);
+        long[] window = new long[size];
+        for (int i = 0; i < size; i++) {
+            window[i] = samples.get((int) ((first + i) % SAMPLE_SIZE));
+        }
+        Arrays.sort(window);
+        long p99Millis = size == 0 ? 0 : window[(int) Math.ceil(size * 0.99) - 1] / 1_000_000L;
+        boolean slow = totalSamples - start >= config.getMinSamples() && p99Millis > config.getP99ThresholdMillis();
+        // The pool MXBean only exists once Hikari has started
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        int waiting = pool != null ? pool.getThreadsAwaitingConnection() : 0;
+        
+        int previous = limit;
+        if (slow || waiting > config.getMaxThreadsAwaitingConnection()) {
+            limit = Math.max(config.getMinConcurrency(), (int) (previous * 0.9));
+        } else {
+            limit = Math.min(config.getMaxConcurrency(), previous + 1);
+        }
+        if (limit < previous) {
+            log.warn("Shedding load: concurrency limit {} -> {} (p99 {} ms, {} threads awaiting a connection)",
+                     previous, limit, p99Millis, waiting);
+        }
+    }
+}
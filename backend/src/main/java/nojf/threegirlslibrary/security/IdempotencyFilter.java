@@ -0,0 +1,263 @@
+package nojf.threegirlslibrary.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.entity.IdempotencyRecord;
+import nojf.threegirlslibrary.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Makes borrow, return and waive safe to retry. A request carrying an Idempotency-Key header
+ * runs once; its response is stored and replayed to every retry with the same key, without
+ * reaching the controller again. Duplicates arriving while the first request is still running
+ * wait for its result instead of running in parallel. A key reused for a different request
+ * (other path or body) is rejected with 422.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+    
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    private static final Pattern BORROW = Pattern.compile("/loans/borrow");
+    private static final Pattern RETURN = Pattern.compile("/loans/\\d+/return");
+    private static final Pattern WAIVE = Pattern.compile("/penalties/\\d+/waive");
+    
+    private final IdempotencyStore store;
+    
+    @Value("${library.idempotency.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${library.idempotency.wait-timeout:PT10S}")
+    private Duration waitTimeout;
+    
+    // Requests currently executing, completed with their stored record (or null if not stored)
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return switch (request.getMethod()) {
+            case "POST" -> !BORROW.matcher(path).matches();
+            case "PUT" -> !RETURN.matcher(path).matches() && !WAIVE.matcher(path).matches();
+            default -> true;
+        };
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        
+        String key = request.getHeader(HEADER);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!StringUtils.hasText(key) || authentication == null
+                || !(authentication.getPrincipal() instanceof Long userId)) {
+            // No key, or unauthenticated and about to be rejected anyway
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String scopeKey = "user:" + userId + "|" + key;
+        String fingerprint = fingerprint(request, body);
+        
+        while (true) {
+            IdempotencyRecord record = store.find(scopeKey);
+            if (record != null) {
+                replay(record, fingerprint, response);
+                return;
+            }
+            
+            CompletableFuture<IdempotencyRecord> execution = new CompletableFuture<>();
+            CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(scopeKey, execution);
+            if (running == null) {
+                // Another execution may have stored its response and finished since the lookup above
+                record = store.find(scopeKey);
+                if (record != null) {
+                    inFlight.remove(scopeKey, execution);
+                    execution.complete(record);
+                    replay(record, fingerprint, response);
+                    return;
+                }
+                execute(new CachedBodyRequest(request, body), response, filterChain, scopeKey, fingerprint, execution);
+                return;
+            }
+            
+            try {
+                record = running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                reject(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                reject(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+                return;
+            } catch (ExecutionException ex) {
+                record = null;
+            }
+            if (record != null) {
+                replay(record, fingerprint, response);
+                return;
+            }
+            // The first attempt failed without a stored response, so this one runs it instead
+        }
+    }
+    
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String scopeKey, String fingerprint,
+                         CompletableFuture<IdempotencyRecord> execution) throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        IdempotencyRecord record = null;
+        try {
+            filterChain.doFilter(request, cachingResponse);
+            
+            // Server errors and rate limiting are transient, so those are left for the retry to redo
+            int status = cachingResponse.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                record = store.save(scopeKey, fingerprint, status, cachingResponse.getContentType(),
+                                    cachingResponse.getContentAsByteArray());
+            }
+            cachingResponse.copyBodyToResponse();
+        } finally {
+            inFlight.remove(scopeKey, execution);
+            execution.complete(record);
+        }
+    }
+    
+    private void replay(IdempotencyRecord record, String fingerprint,
+                        HttpServletResponse response) throws IOException {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            reject(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                   HEADER + " was already used for a different request");
+            return;
+        }
+        log.debug("Replaying stored response for {}", record.getScopeKey());
+        response.setStatus(record.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+        byte[] body = record.getBody() != null ? record.getBody() : new byte[0];
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+    
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getRequestURI() + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"" + message + "\"}");
+    }
+    
+    // The body is read up front for the fingerprint, so the controller gets it from memory
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        
+        private final byte[] body;
+        
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+        
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+                
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+                
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+                
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+                
+                // The whole body is already in memory, so async readers get it in one callback
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException ex) {
+                        listener.onError(ex);
+                    }
+                }
+            };
+        }
+        
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
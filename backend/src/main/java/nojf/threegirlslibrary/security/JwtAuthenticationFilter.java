@@ -6,6 +6,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.event.FlightEvents;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -29,6 +30,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         
+        FlightEvents.JwtAuthentication event = new FlightEvents.JwtAuthentication();
+        event.begin();
         try {
             String jwt = getJwtFromRequest(request);
             
@@ -51,6 +54,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     
                     SecurityContextHolder.getContext().setAuthentication(authentication);
+                    event.authenticated = true;
                     log.info("User authenticated successfully with role: ROLE_{}", role);
                 }
             } else {
@@ -59,6 +63,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         } catch (Exception ex) {
             log.error("Could not set user authentication in security context for path: " + request.getRequestURI(), ex);
         }
+        event.path = request.getRequestURI();
+        event.commit();
         
         filterChain.doFilter(request, response);
     }
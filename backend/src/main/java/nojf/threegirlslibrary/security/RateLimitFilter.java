@@ -0,0 +1,132 @@
+package nojf.threegirlslibrary.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.config.RateLimitProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private final RateLimitProperties properties;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    
+    // System.nanoTime() of the last sweep of idle buckets
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        
+        if (!properties.isEnabled() || "OPTIONS".equals(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        // Per-client token bucket for the route group
+        String group = routeGroup(request);
+        RateLimitProperties.Limit limit = properties.getGroups().get(group);
+        if (limit != null) {
+            long now = System.nanoTime();
+            TokenBucket bucket = buckets.computeIfAbsent(group + ":" + clientKey(request),
+                k -> new TokenBucket(limit.getRequestsPerSecond(), limit.getBurst()));
+            long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, waitNanos, "Too many requests");
+                return;
+            }
+            if (buckets.size() > properties.getMaxTrackedClients()) {
+                sweepIdleBuckets(now);
+            }
+        }
+        
+        // Node-wide load shedding when latency or connection pool wait degrades
+        if (properties.getShedding().isEnabled() && !concurrencyLimiter.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                   "Server is busy, please retry");
+            return;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (properties.getShedding().isEnabled()) {
+                concurrencyLimiter.release(System.nanoTime() - start);
+            }
+        }
+    }
+    
+    // At most once per sweep-interval, by whichever request wins the race; the rest go on
+    private void sweepIdleBuckets(long now) {
+        long last = lastSweep.get();
+        if (now - last < properties.getSweepInterval().toNanos() || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(b -> b.isIdle(now));
+    }
+    
+    private String routeGroup(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String method = request.getMethod();
+        
+        if (path.startsWith("/auth/")) {
+            return "auth";
+        }
+        if (path.startsWith("/books/search")) {
+            return "search";
+        }
+        if (path.startsWith("/loans") || path.startsWith("/penalties")) {
+            return "circulation";
+        }
+        if (path.startsWith("/users") || path.startsWith("/diagnostics") || (path.startsWith("/books") && !"GET".equals(method))) {
+            return "admin";
+        }
+        return "default";
+    }
+    
+    private String clientKey(HttpServletRequest request) {
+        // JwtAuthenticationFilter runs first and puts the user id in the principal
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Long userId) {
+            return "user:" + userId;
+        }
+        if (properties.isTrustForwardedFor()) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (StringUtils.hasText(forwardedFor)) {
+                return "ip:" + forwardedFor.split(",")[0].trim();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+    
+    private void reject(HttpServletResponse response, HttpStatus status, long waitNanos,
+                        String message) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        log.debug("Rejecting request with {}: {}", status.value(), message);
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"" + message + "\"}");
+    }
+}
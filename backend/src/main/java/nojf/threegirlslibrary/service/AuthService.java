@@ -4,10 +4,12 @@ import nojf.threegirlslibrary.dto.LoginRequest;
 import nojf.threegirlslibrary.dto.RegisterRequest;
 import nojf.threegirlslibrary.dto.AuthResponse;
 import nojf.threegirlslibrary.entity.User;
+import nojf.threegirlslibrary.event.UserEvent;
 import nojf.threegirlslibrary.exception.BadRequestException;
 import nojf.threegirlslibrary.repository.UserRepository;
 import nojf.threegirlslibrary.security.JwtTokenProvider;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -24,6 +26,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public AuthResponse register(RegisterRequest request) {
@@ -42,6 +45,7 @@ public class AuthService {
         user.setStatus(User.Status.ACTIVE);
         
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.REGISTERED, savedUser));
         
         // Generate JWT token
         String token = tokenProvider.generateToken(savedUser.getId(), 
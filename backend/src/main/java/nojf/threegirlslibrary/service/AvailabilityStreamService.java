@@ -0,0 +1,259 @@
+package nojf.threegirlslibrary.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.event.BookEvent;
+import nojf.threegirlslibrary.event.LoanEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-out of committed availability changes to catalog clients over Server-Sent Events.
+ *
+ * Connections are async requests, so an idle subscriber costs a socket and a little memory
+ * but no thread. Each subscriber has a small buffer of pending changes keyed by book id:
+ * repeated changes of the same book between two sends collapse into the latest value. A
+ * ticker hands subscribers with pending changes to a small pool of sender threads, at most
+ * one send per subscriber at a time. A subscriber whose buffer overflows (it is not keeping
+ * up) is disconnected; EventSource reconnects on its own and the client reloads the catalog.
+ *
+ * Events:
+ *    ready          sent once on connect, the client should (re)load what it shows
+ *    availability   [[bookId, availableCopies], ...]
+ */
+@Service
+@Slf4j
+public class AvailabilityStreamService {
+    
+    @Value("${library.availability-stream.max-subscribers:10000}")
+    private int maxSubscribers;
+    
+    // Distinct books a subscriber may have pending before it counts as too slow
+    @Value("${library.availability-stream.buffer-size:256}")
+    private int bufferSize;
+    
+    @Value("${library.availability-stream.coalesce-interval:PT0.25S}")
+    private Duration coalesceInterval;
+    
+    @Value("${library.availability-stream.heartbeat-interval:PT30S}")
+    private Duration heartbeatInterval;
+    
+    // Clients reconnect after this, which also sheds connections that died silently
+    @Value("${library.availability-stream.timeout:PT30M}")
+    private Duration timeout;
+    
+    @Value("${library.availability-stream.sender-threads:4}")
+    private int senderThreads;
+    
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Subscriber> dirty = new ConcurrentLinkedQueue<>();
+    
+    private ScheduledExecutorService ticker;
+    private ExecutorService senders;
+    
+    @PostConstruct
+    void init() {
+        ticker = Executors.newSingleThreadScheduledExecutor(daemonThreads("availability-ticker"));
+        senders = Executors.newFixedThreadPool(senderThreads, daemonThreads("availability-sender"));
+        ticker.scheduleAtFixedRate(this::dispatch, coalesceInterval.toMillis(), coalesceInterval.toMillis(),
+                                   TimeUnit.MILLISECONDS);
+        ticker.scheduleAtFixedRate(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+                                   TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+    }
+    
+    // Returns null when the node already holds max-subscribers streams
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        
+        try {
+            emitter.send(SseEmitter.event().name("ready").data(""));
+        } catch (IOException ex) {
+            subscriber.close();
+        }
+        return emitter;
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    @TransactionalEventListener
+    public void onLoanEvent(LoanEvent event) {
+        publish(event.getBookId(), event.getAvailableCopies());
+    }
+    
+    @TransactionalEventListener
+    public void onBookEvent(BookEvent event) {
+        publish(event.getBookId(), event.getAvailableCopies());
+    }
+    
+    private void publish(Long bookId, Integer availableCopies) {
+        if (bookId == null || availableCopies == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(bookId, availableCopies);
+        }
+    }
+    
+    private void dispatch() {
+        Subscriber subscriber;
+        while ((subscriber = dirty.poll()) != null) {
+            Subscriber next = subscriber;
+            senders.execute(() -> next.flush(false));
+        }
+    }
+    
+    private void heartbeat() {
+        long idleSince = System.nanoTime() - heartbeatInterval.toNanos();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.claimHeartbeat(idleSince)) {
+                senders.execute(() -> subscriber.flush(true));
+            }
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private class Subscriber {
+        
+        private final SseEmitter emitter;
+        
+        // bookId -> latest availableCopies not yet sent; guarded by this
+        private final Map<Long, Integer> pending = new LinkedHashMap<>();
+        
+        // Queued for or in the middle of a send; guarded by this
+        private boolean busy;
+        private boolean closed;
+        private long lastSentNanos = System.nanoTime();
+        
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+        
+        void offer(long bookId, int availableCopies) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                pending.put(bookId, availableCopies);
+                if (pending.size() <= bufferSize) {
+                    if (!busy) {
+                        busy = true;
+                        dirty.add(this);
+                    }
+                    return;
+                }
+            }
+            log.debug("Dropping slow availability subscriber, {} books pending", bufferSize);
+            close();
+        }
+        
+        synchronized boolean claimHeartbeat(long idleSince) {
+            if (busy || closed || lastSentNanos > idleSince) {
+                return false;
+            }
+            busy = true;
+            return true;
+        }
+        
+        void flush(boolean heartbeat) {
+            Map<Long, Integer> batch;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            
+            try {
+                if (!batch.isEmpty()) {
+                    emitter.send(SseEmitter.event().name("availability").data(toJson(batch)));
+                } else if (heartbeat) {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // Client went away
+                close();
+                return;
+            }
+            
+            synchronized (this) {
+                lastSentNanos = System.nanoTime();
+                // Changes that came in during the send go out on the next tick
+                if (pending.isEmpty() || closed) {
+                    busy = false;
+                } else {
+                    dirty.add(this);
+                }
+            }
+        }
+        
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            subscribers.remove(this);
+            try {
+                emitter.complete();
+            } catch (RuntimeException ex) {
+                // Already completed by the container
+            }
+        }
+        
+        private String toJson(Map<Long, Integer> batch) {
+            StringBuilder json = new StringBuilder(batch.size() * 12).append('[');
+            batch.forEach((bookId, availableCopies) -> {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append('[').append(bookId).append(',').append(availableCopies).append(']');
+            });
+            return json.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package nojf.threegirlslibrary.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.entity.OpenLibraryCacheEntry;
+import nojf.threegirlslibrary.exception.BadRequestException;
+import nojf.threegirlslibrary.repository.BookRepository;
+import nojf.threegirlslibrary.repository.OpenLibraryCacheRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fills in missing book descriptions and covers from Open Library, once per ISBN. Lookups are
+ * cached in open_library_cache (including misses), batched into multi-ISBN requests and run
+ * with bounded concurrency, so browsers no longer have to call Open Library themselves.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookEnrichmentService {
+    
+    private final BookRepository bookRepository;
+    private final OpenLibraryCacheRepository cacheRepository;
+    private final OpenLibraryClient openLibraryClient;
+    private final CatalogChangeFeedService catalogChangeFeedService;
+    private final SearchResultCache searchResultCache;
+    
+    // Turns off the hourly run only, POST /books/enrich still works; tests and offline setups set it to false
+    @Value("${library.open-library.enabled:true}")
+    private boolean enabled;
+    
+    // ISBNs per bibkeys request
+    @Value("${library.open-library.batch-size:50}")
+    private int batchSize;
+    
+    // Requests in flight at once; each also holds a database connection while saving its batch
+    @Value("${library.open-library.max-concurrency:4}")
+    private int maxConcurrency;
+    
+    @Value("${library.open-library.cache-ttl:P30D}")
+    private Duration cacheTtl;
+    
+    // ISBNs Open Library did not know are retried sooner, in case they get added
+    @Value("${library.open-library.negative-cache-ttl:P1D}")
+    private Duration negativeCacheTtl;
+    
+    // Books read from the database per round
+    @Value("${library.open-library.scan-page-size:1000}")
+    private int scanPageSize;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    @Scheduled(initialDelayString = "${library.open-library.enrich-initial-delay:PT1M}",
+               fixedDelayString = "${library.open-library.enrich-interval:PT1H}")
+    public void scheduledEnrichment() {
+        if (enabled && running.compareAndSet(false, true)) {
+            try {
+                enrichMissing();
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+    
+    // Starts a run in the background, for admins who just imported books
+    public void startEnrichment() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BadRequestException("Book enrichment is already running");
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                enrichMissing();
+            } finally {
+                running.set(false);
+            }
+        }, "book-enrichment");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    // "978-0-14-303943-3" -> "9780143039433"
+    static String normalizeIsbn(String isbn) {
+        return isbn == null ? "" : isbn.replaceAll("[^0-9Xx]", "").toUpperCase();
+    }
+    
+    private void enrichMissing() {
+        long start = System.currentTimeMillis();
+        int deleted = cacheRepository.deleteExpiredBefore(LocalDateTime.now());
+        int updated = 0;
+        
+        ExecutorService pool = Executors.newFixedThreadPool(maxConcurrency);
+        try {
+            String after = "";
+            while (true) {
+                List<String> isbns = bookRepository.findIsbnsMissingMetadata(after, PageRequest.of(0, scanPageSize));
+                if (isbns.isEmpty()) {
+                    break;
+                }
+                after = isbns.get(isbns.size() - 1);
+                updated += enrichPage(isbns, pool);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Book enrichment run failed", ex);
+        } finally {
+            pool.shutdownNow();
+            // Full-text search matches descriptions, so cached results may be out of date
+            if (updated > 0) {
+                searchResultCache.bumpCatalogVersion();
+            }
+        }
+        log.info("Book enrichment filled in {} books in {} ms ({} expired cache entries dropped)",
+                 updated, System.currentTimeMillis() - start, deleted);
+    }
+    
+    private int enrichPage(List<String> isbns, ExecutorService pool) {
+        // Books may store the same ISBN with or without dashes; look each one up once
+        Map<String, List<String>> stored = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            String normalized = normalizeIsbn(isbn);
+            if (!normalized.isEmpty()) {
+                stored.computeIfAbsent(normalized, k -> new ArrayList<>()).add(isbn);
+            }
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, OpenLibraryCacheEntry> entries = new HashMap<>();
+        for (OpenLibraryCacheEntry entry : cacheRepository.findAllById(stored.keySet())) {
+            if (!entry.isExpired(now)) {
+                entries.put(entry.getIsbn(), entry);
+            }
+        }
+        
+        List<String> misses = new ArrayList<>();
+        for (String isbn : stored.keySet()) {
+            if (!entries.containsKey(isbn)) {
+                misses.add(isbn);
+            }
+        }
+        List<Future<List<OpenLibraryCacheEntry>>> batches = new ArrayList<>();
+        for (int i = 0; i < misses.size(); i += batchSize) {
+            List<String> batch = misses.subList(i, Math.min(i + batchSize, misses.size()));
+            batches.add(pool.submit(() -> fetchBatch(batch)));
+        }
+        for (Future<List<OpenLibraryCacheEntry>> batch : batches) {
+            try {
+                for (OpenLibraryCacheEntry entry : batch.get()) {
+                    entries.put(entry.getIsbn(), entry);
+                }
+            } catch (ExecutionException ex) {
+                // Nothing was cached for this batch, so the next run tries it again
+                log.warn("Open Library batch failed: {}", ex.getCause().toString());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while enriching books", ex);
+            }
+        }
+        
+        int updated = 0;
+        for (Map.Entry<String, List<String>> isbn : stored.entrySet()) {
+            OpenLibraryCacheEntry entry = entries.get(isbn.getKey());
+            if (entry != null && entry.getFound()) {
+                for (String storedIsbn : isbn.getValue()) {
+                    int filled = bookRepository.fillMissingMetadata(
+                        storedIsbn, entry.getDescription(), entry.getCoverImageUrl());
+                    if (filled > 0) {
+                        catalogChangeFeedService.recordChangedIsbn(storedIsbn);
+                    }
+                    updated += filled;
+                }
+            }
+        }
+        return updated;
+    }
+    
+    private List<OpenLibraryCacheEntry> fetchBatch(List<String> isbns) {
+        Map<String, OpenLibraryClient.Metadata> found = openLibraryClient.fetch(isbns);
+        LocalDateTime now = LocalDateTime.now();
+        
+        List<OpenLibraryCacheEntry> entries = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            OpenLibraryClient.Metadata metadata = found.get(isbn);
+            entries.add(metadata != null
+                ? new OpenLibraryCacheEntry(isbn, true, metadata.getDescription(), metadata.getCoverImageUrl(),
+                                            now, now.plus(cacheTtl))
+                : new OpenLibraryCacheEntry(isbn, false, null, null, now, now.plus(negativeCacheTtl)));
+        }
+        cacheRepository.saveAll(entries);
+        return entries;
+    }
+}
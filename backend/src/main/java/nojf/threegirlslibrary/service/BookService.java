@@ -1,23 +1,51 @@
 package nojf.threegirlslibrary.service;
 
 import nojf.threegirlslibrary.dto.BookRequest;
+import nojf.threegirlslibrary.dto.BookSummary;
 import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.event.BookEvent;
+import nojf.threegirlslibrary.event.FlightEvents;
 import nojf.threegirlslibrary.exception.BadRequestException;
 import nojf.threegirlslibrary.exception.ResourceNotFoundException;
 import nojf.threegirlslibrary.repository.BookRepository;
+import nojf.threegirlslibrary.search.FullTextQueries;
+import nojf.threegirlslibrary.util.BatchLoader;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class BookService {
     
+    private static final int MAX_IDS_PER_REQUEST = 100;
+    
     private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BatchLoader<Long, Book> bookLoader;
+    private final SearchResultCache searchResultCache;
+    private final CatalogFacetService catalogFacetService;
+    
+    // like = LIKE '%keyword%' over title/author/genre/isbn, fulltext = MySQL MATCH ... AGAINST
+    @Value("${library.search.engine:like}")
+    private String searchEngine;
+    
+    // boolean = every word required, prefix matching; natural = MySQL natural language relevance
+    @Value("${library.search.fulltext-mode:boolean}")
+    private String fullTextMode;
     
     @Transactional(readOnly = true)
     public List<Book> getAllBooks() {
@@ -25,8 +53,8 @@ public class BookService {
     }
     
     @Transactional(readOnly = true)
-    public Page<Book> getAllBooks(Pageable pageable) {
-        return bookRepository.findAll(pageable);
+    public Page<BookSummary> getAllBooks(Pageable pageable) {
+        return bookRepository.findAllProjectedBy(pageable);
     }
     
     @Transactional(readOnly = true)
@@ -35,13 +63,112 @@ public class BookService {
             .orElseThrow(() -> new ResourceNotFoundException("Book", "id", id));
     }
     
+    // Read-only lookup for GET /books/{id}: concurrent requests share one IN query (see BatchingConfig).
+    // The book is detached, so use getBookById when it is going to be changed.
+    public Book loadBookById(Long id) {
+        Book book = bookLoader.get(id);
+        if (book == null) {
+            throw new ResourceNotFoundException("Book", "id", id);
+        }
+        return book;
+    }
+    
+    // In the order requested; unknown ids are left out
     @Transactional(readOnly = true)
-    public Page<Book> searchBooks(String keyword, Pageable pageable) {
+    public List<Book> getBooksByIds(List<Long> ids) {
+        if (ids.size() > MAX_IDS_PER_REQUEST) {
+            throw new BadRequestException("At most " + MAX_IDS_PER_REQUEST + " ids per request");
+        }
+        Map<Long, Book> books = new HashMap<>();
+        bookRepository.findAllWithDescriptionById(ids).forEach(book -> books.put(book.getId(), book));
+        return ids.stream().distinct().map(books::get).filter(Objects::nonNull).toList();
+    }
+    
+    // Not transactional: a request waiting for an identical search in flight (see SearchResultCache)
+    // must not hold a database connection meanwhile
+    public Page<BookSummary> searchBooks(String keyword, Pageable pageable) {
+        return recorded(keyword, false, pageable, () -> cachedSearch(keyword, pageable));
+    }
+    
+    private Page<BookSummary> cachedSearch(String keyword, Pageable pageable) {
+        String normalized = normalizeKeyword(keyword);
+        SearchResultCache.Key key = new SearchResultCache.Key(normalized, pageable.getPageNumber(),
+                                                              pageable.getPageSize(), pageable.getSort().toString());
+        AtomicReference<Page<BookSummary>> loaded = new AtomicReference<>();
+        SearchResultCache.Ids hits = searchResultCache.get(key, () -> {
+            Page<BookSummary> page = search(normalized, pageable);
+            loaded.set(page);
+            return new SearchResultCache.Ids(page.getContent().stream().map(BookSummary::getId).toList(),
+                                             page.getTotalElements());
+        });
+        if (loaded.get() != null) {
+            return loaded.get();
+        }
+        
+        // Cached ids, current books: one primary key lookup instead of the search itself
+        return new PageImpl<>(summaries(hits.ids()), pageable, hits.total());
+    }
+    
+    // Typo-tolerant title/author/ISBN search from the in-memory catalog; exact search until it is loaded
+    public Page<BookSummary> fuzzySearchBooks(String keyword, Pageable pageable) {
+        return recorded(keyword, true, pageable, () -> {
+            Page<Long> ids = catalogFacetService.fuzzySearch(keyword, pageable);
+            if (ids == null) {
+                return cachedSearch(keyword, pageable);
+            }
+            return new PageImpl<>(summaries(ids.getContent()), pageable, ids.getTotalElements());
+        });
+    }
+    
+    // Times the search as a FlightEvents.Search for the diagnostics recording
+    private Page<BookSummary> recorded(String keyword, boolean fuzzy, Pageable pageable,
+                                       Supplier<Page<BookSummary>> search) {
+        FlightEvents.Search event = new FlightEvents.Search();
+        event.begin();
+        Page<BookSummary> result = null;
+        try {
+            result = search.get();
+            return result;
+        } finally {
+            event.keyword = keyword;
+            event.fuzzy = fuzzy;
+            event.page = pageable.getPageNumber();
+            event.matches = result != null ? result.getTotalElements() : -1;
+            event.commit();
+        }
+    }
+    
+    // In the order of ids; books deleted meanwhile are left out
+    private List<BookSummary> summaries(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, BookSummary> books = new HashMap<>();
+        bookRepository.findProjectedByIdIn(ids).forEach(book -> books.put(book.getId(), book));
+        return ids.stream().map(books::get).filter(Objects::nonNull).toList();
+    }
+    
+    // "  Harry   POTTER " -> "harry potter"; both search engines ignore case
+    static String normalizeKeyword(String keyword) {
+        return keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    private Page<BookSummary> search(String keyword, Pageable pageable) {
+        if ("fulltext".equalsIgnoreCase(searchEngine)) {
+            if ("natural".equalsIgnoreCase(fullTextMode)) {
+                return bookRepository.fullTextSearchBooksNatural(keyword, pageable);
+            }
+            String query = FullTextQueries.toBooleanQuery(keyword);
+            // Nothing left to match on after stripping operators and stopwords, fall back to substring search
+            if (!query.isEmpty()) {
+                return bookRepository.fullTextSearchBooksBoolean(query, pageable);
+            }
+        }
         return bookRepository.searchBooks(keyword, pageable);
     }
     
     @Transactional(readOnly = true)
-    public List<Book> getAvailableBooks() {
+    public List<BookSummary> getAvailableBooks() {
         return bookRepository.findByAvailableCopiesGreaterThan(0);
     }
     
@@ -68,7 +195,10 @@ public class BookService {
         book.setTotalCopies(request.getTotalCopies());
         book.setAvailableCopies(request.getTotalCopies());
         
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.CREATED, savedBook.getId(),
+                                                  savedBook.getAvailableCopies()));
+        return savedBook;
     }
     
     @Transactional
@@ -95,7 +225,20 @@ public class BookService {
         book.setTotalCopies(request.getTotalCopies());
         book.setAvailableCopies(book.getAvailableCopies() + difference);
         
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.UPDATED, savedBook.getId(),
+                                                  savedBook.getAvailableCopies()));
+        return savedBook;
+    }
+    
+    @Transactional
+    public Book updateCoverImageUrl(Long id, String coverImageUrl) {
+        Book book = getBookById(id);
+        book.setCoverImageUrl(coverImageUrl);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.UPDATED, savedBook.getId(),
+                                                  savedBook.getAvailableCopies()));
+        return savedBook;
     }
     
     @Transactional
@@ -108,5 +251,6 @@ public class BookService {
         }
         
         bookRepository.delete(book);
+        eventPublisher.publishEvent(new BookEvent(BookEvent.Type.DELETED, id, null));
     }
 }
\ No newline at end of file
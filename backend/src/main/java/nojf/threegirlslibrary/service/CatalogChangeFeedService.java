@@ -0,0 +1,174 @@
+package nojf.threegirlslibrary.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.dto.BookChange;
+import nojf.threegirlslibrary.dto.BookChangesResponse;
+import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.event.BookEvent;
+import nojf.threegirlslibrary.event.LoanEvent;
+import nojf.threegirlslibrary.exception.BadRequestException;
+import nojf.threegirlslibrary.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of catalog changes in book_changes, for clients that keep their own copy of
+ * the catalog. Every book insert, edit, borrow, return and delete adds a row in the same
+ * transaction, and its auto-increment id is the catalog version. GET /books/changes returns the
+ * latest row per book after a given version, with the book as it is now, so a client only
+ * downloads what changed since its last sync. Starting from version 0 pages through the whole
+ * catalog (V7 logged every existing book).
+ *
+ * Versions are assigned when the row is written, not when the transaction commits, so a
+ * lower version can become visible after a higher one. Rows younger than the settle delay are
+ * therefore held back; as long as no transaction takes longer than that to commit after
+ * writing its row (it is written just before commit), no client skips a change.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogChangeFeedService {
+    
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+    
+    private static final int MAX_LIMIT = 1000;
+    
+    // Older rows of the same book are superseded even before compaction removes them
+    private static final String CHANGES =
+        "SELECT c.version, c.book_id, c.change_type FROM book_changes c " +
+        "WHERE c.version > ? AND c.changed_at <= ? AND NOT EXISTS " +
+        "(SELECT 1 FROM book_changes n WHERE n.book_id = c.book_id AND n.version > c.version) " +
+        "ORDER BY c.version LIMIT ?";
+    
+    private static final String COMPACT_CHUNK =
+        "DELETE c FROM book_changes c JOIN book_changes n ON n.book_id = c.book_id AND n.version > c.version " +
+        "WHERE c.version >= ? AND c.version < ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final BookRepository bookRepository;
+    
+    @Value("${library.change-feed.settle-delay:PT5S}")
+    private Duration settleDelay;
+    
+    @Value("${library.change-feed.compact-chunk-size:10000}")
+    private int compactChunkSize;
+    
+    // Written before commit, so the row commits (or rolls back) with the change itself
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onBookEvent(BookEvent event) {
+        record(event.getBookId(), event.getType() == BookEvent.Type.DELETED ? DELETE : UPSERT);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onLoanEvent(LoanEvent event) {
+        record(event.getBookId(), UPSERT);
+    }
+    
+    // For bulk updates that bypass BookService, e.g. metadata enrichment by ISBN
+    public void recordChangedIsbn(String isbn) {
+        jdbcTemplate.update("INSERT INTO book_changes (book_id, change_type) SELECT id, ? FROM books WHERE isbn = ?",
+                            UPSERT, isbn);
+    }
+    
+    @Transactional(readOnly = true)
+    public BookChangesResponse getChanges(long since, int limit) {
+        if (since < 0 || limit < 1) {
+            throw new BadRequestException("since must be >= 0 and limit >= 1");
+        }
+        int pageSize = Math.min(limit, MAX_LIMIT);
+        
+        // One cutoff for both queries, so the version returned covers exactly what was listed
+        Timestamp cutoff = settleCutoff();
+        List<Object[]> rows = jdbcTemplate.query(CHANGES,
+            (rs, rowNum) -> new Object[] { rs.getLong("version"), rs.getLong("book_id"), rs.getString("change_type") },
+            since, cutoff, pageSize);
+        
+        Map<Long, Book> books = new HashMap<>();
+        List<Long> upserted = rows.stream().filter(row -> UPSERT.equals(row[2])).map(row -> (Long) row[1]).toList();
+        bookRepository.findAllWithDescriptionById(upserted).forEach(book -> books.put(book.getId(), book));
+        
+        List<BookChange> changes = rows.stream()
+            // A book deleted after its row was read has a tombstone coming in a later version
+            .filter(row -> DELETE.equals(row[2]) || books.containsKey((Long) row[1]))
+            .map(row -> new BookChange((Long) row[0], (String) row[2], (Long) row[1], books.get((Long) row[1])))
+            .toList();
+        
+        boolean hasMore = rows.size() == pageSize;
+        long version = hasMore ? (Long) rows.get(rows.size() - 1)[0] : Math.max(since, settledVersion(cutoff));
+        return new BookChangesResponse(version, hasMore, changes);
+    }
+    
+    // Highest version every change up to which committed at least settle-delay ago
+    public long getSettledVersion() {
+        return settledVersion(settleCutoff());
+    }
+    
+    public long getLatestVersion() {
+        Long version = jdbcTemplate.queryForObject("SELECT MAX(version) FROM book_changes", Long.class);
+        return version != null ? version : 0;
+    }
+    
+    // bookId -> type of its latest change after version, for replaying changes onto a snapshot
+    public Map<Long, String> getLatestChangesSince(long version) {
+        Map<Long, String> changes = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT book_id, change_type FROM book_changes WHERE version > ? ORDER BY version",
+                           (RowCallbackHandler) rs -> changes.put(rs.getLong("book_id"), rs.getString("change_type")),
+                           version);
+        return changes;
+    }
+    
+    @Scheduled(cron = "${library.change-feed.compact-cron:0 30 3 * * *}")
+    public void scheduledCompact() {
+        compact();
+    }
+    
+    // Returns the number of superseded rows removed
+    public long compact() {
+        long start = System.currentTimeMillis();
+        Long minVersion = jdbcTemplate.queryForObject("SELECT MIN(version) FROM book_changes", Long.class);
+        Long maxVersion = jdbcTemplate.queryForObject("SELECT MAX(version) FROM book_changes", Long.class);
+        long removed = 0;
+        if (minVersion != null) {
+            // Small chunks keep each delete's locks short next to borrows writing new rows
+            for (long from = minVersion; from <= maxVersion; from += compactChunkSize) {
+                removed += jdbcTemplate.update(COMPACT_CHUNK, from, from + compactChunkSize);
+            }
+        }
+        log.info("Compacted book change log: removed {} superseded rows in {} ms",
+                 removed, System.currentTimeMillis() - start);
+        return removed;
+    }
+    
+    private Timestamp settleCutoff() {
+        return jdbcTemplate.queryForObject(
+            "SELECT TIMESTAMPADD(MICROSECOND, ?, NOW(3))", Timestamp.class, -settleDelay.toNanos() / 1000);
+    }
+    
+    private long settledVersion(Timestamp cutoff) {
+        List<Long> settled = jdbcTemplate.queryForList(
+            "SELECT version FROM book_changes WHERE changed_at <= ? ORDER BY version DESC LIMIT 1",
+            Long.class, cutoff);
+        return settled.isEmpty() ? 0 : settled.get(0);
+    }
+    
+    private void record(Long bookId, String type) {
+        if (bookId != null) {
+            jdbcTemplate.update("INSERT INTO book_changes (book_id, change_type) VALUES (?, ?)", bookId, type);
+        }
+    }
+}
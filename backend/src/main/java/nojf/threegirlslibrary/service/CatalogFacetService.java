@@ -0,0 +1,598 @@
+package nojf.threegirlslibrary.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.dto.BookFacetResponse;
+import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.event.BookEvent;
+import nojf.threegirlslibrary.event.LoanEvent;
+import nojf.threegirlslibrary.repository.BookRepository;
+import nojf.threegirlslibrary.util.CatalogSnapshot;
+import nojf.threegirlslibrary.util.FuzzyIndex;
+import nojf.threegirlslibrary.util.LongIntHashMap;
+import nojf.threegirlslibrary.util.TrigramIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facet counts for the catalog page (genre, decade published, author initial, availability),
+ * computed from a columnar copy of the catalog instead of GROUP BY queries. Each book is a row
+ * across primitive arrays; genres and decades are dictionary-encoded to int codes, so counting
+ * a facet is an array increment per row. The keyword filter has LIKE '%keyword%' semantics over
+ * title, author, genre and ISBN, like BookService.searchBooks, and is narrowed by a trigram index.
+ * It stays substring-based with library.search.engine=fulltext too: the FULLTEXT index also
+ * matches descriptions, which these columns do not hold, so with that engine the counts can
+ * differ from the search results for the same keyword.
+ *
+ * The same rows back the typo-tolerant search of GET /books/search?fuzzy=true, through a
+ * {@link FuzzyIndex} over titles, authors and ISBNs.
+ *
+ * Availability is updated in place on every loan; edits to a book retire its row and append a
+ * new one. Built in the background on startup; until then {@link #getFacets} returns null.
+ * The columns are saved to a memory-mapped {@link CatalogSnapshot} periodically and at
+ * shutdown. A restart loads that instead of scanning books, serves from it right away and then
+ * replays the book_changes rows written since the snapshot.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogFacetService {
+    
+    private static final int NONE = -1;
+    private static final int OTHER_INITIAL = 26;
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+    
+    private final BookRepository bookRepository;
+    private final CatalogChangeFeedService catalogChangeFeedService;
+    
+    // Books loaded per query while building
+    @Value("${library.facets.build-chunk-size:10000}")
+    private int buildChunkSize;
+    
+    @Value("${library.catalog-snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+    
+    @Value("${library.catalog-snapshot.path:data/catalog.snapshot}")
+    private String snapshotPath;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramIndex trigrams = new TrigramIndex();
+    private final FuzzyIndex fuzzy = new FuzzyIndex();
+    private final Dictionary genres = new Dictionary();
+    private final Dictionary decades = new Dictionary();
+    
+    // bookId -> row + 1 (0 = not loaded)
+    private final LongIntHashMap rowByBook = new LongIntHashMap(1024);
+    private long[] bookIds = new long[1024];
+    private int[] publishedYears = new int[1024];
+    private int[] genreCodes = new int[1024];
+    private int[] decadeCodes = new int[1024];
+    private byte[] initials = new byte[1024];
+    private int[] availableCopies = new int[1024];
+    private boolean[] deleted = new boolean[1024];
+    private String[] texts = new String[1024];
+    private int rows;
+    
+    // Changes that commit before the columns are current are applied once they are
+    private final List<Object> pendingEvents = new ArrayList<>();
+    private final Object buildLock = new Object();
+    private volatile boolean ready;
+    private boolean live;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread builder = new Thread(this::build, "catalog-facets-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Counts over the books matching every given filter (null = not filtered). Each facet is
+     * counted without its own filter, so with genre=Fiction the genre facet still lists every
+     * genre. The keyword always matches as a substring, whatever the search engine. Returns null
+     * while the columns are being loaded.
+     */
+    public BookFacetResponse getFacets(String keyword, String genre, Integer decade,
+                                       String authorInitial, Boolean available) {
+        if (!ready) {
+            return null;
+        }
+        String q = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        
+        lock.readLock().lock();
+        try {
+            // A value no book has yet gets a code no row has, rather than no filter
+            int genreFilter = genre == null ? NONE : genres.code(genre);
+            if (genre != null && genreFilter == NONE) {
+                genreFilter = Integer.MAX_VALUE;
+            }
+            int decadeFilter = decade == null ? NONE : decades.code(decadeLabel(decade));
+            if (decade != null && decadeFilter == NONE) {
+                decadeFilter = Integer.MAX_VALUE;
+            }
+            int initialFilter = authorInitial == null || authorInitial.isEmpty() ? NONE : initial(authorInitial);
+            
+            long total = 0;
+            long[] genreCounts = new long[genres.size()];
+            long[] decadeCounts = new long[decades.size()];
+            long[] initialCounts = new long[OTHER_INITIAL + 1];
+            long[] availabilityCounts = new long[2];
+            
+            // The keyword is never relaxed, so only rows matching it are visited
+            int[] candidates = trigrams.candidates(q);
+            int count = candidates != null ? candidates.length : rows;
+            for (int i = 0; i < count; i++) {
+                int row = candidates != null ? candidates[i] : i;
+                if (deleted[row] || (!q.isEmpty() && !texts[row].contains(q))) {
+                    continue;
+                }
+                boolean genreMatch = genreFilter == NONE || genreCodes[row] == genreFilter;
+                boolean decadeMatch = decadeFilter == NONE || decadeCodes[row] == decadeFilter;
+                boolean initialMatch = initialFilter == NONE || initials[row] == initialFilter;
+                int availableBucket = availableCopies[row] > 0 ? 0 : 1;
+                boolean availableMatch = available == null || available == (availableBucket == 0);
+                
+                if (decadeMatch && initialMatch && availableMatch && genreCodes[row] != NONE) {
+                    genreCounts[genreCodes[row]]++;
+                }
+                if (genreMatch && initialMatch && availableMatch && decadeCodes[row] != NONE) {
+                    decadeCounts[decadeCodes[row]]++;
+                }
+                if (genreMatch && decadeMatch && availableMatch) {
+                    initialCounts[initials[row]]++;
+                }
+                if (genreMatch && decadeMatch && initialMatch) {
+                    availabilityCounts[availableBucket]++;
+                    if (availableMatch) {
+                        total++;
+                    }
+                }
+            }
+            
+            Map<String, Long> availability = new LinkedHashMap<>();
+            availability.put("available", availabilityCounts[0]);
+            availability.put("unavailable", availabilityCounts[1]);
+            return new BookFacetResponse(total, genres.byCount(genreCounts), decades.byValue(decadeCounts),
+                                         initialsByLetter(initialCounts), availability);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Ids of the books matching the (possibly misspelled) title, author or ISBN words, best
+    // match first; null while the columns are being loaded
+    public Page<Long> fuzzySearch(String query, Pageable pageable) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int[] matches = fuzzy.search(query, row -> !deleted[row]);
+            int from = (int) Math.min(pageable.getOffset(), matches.length);
+            int to = Math.min(from + pageable.getPageSize(), matches.length);
+            List<Long> content = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                content.add(bookIds[matches[i]]);
+            }
+            return new PageImpl<>(content, pageable, matches.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @TransactionalEventListener
+    public void onLoanEvent(LoanEvent event) {
+        onChange(event);
+    }
+    
+    @TransactionalEventListener
+    public void onBookEvent(BookEvent event) {
+        onChange(event);
+    }
+    
+    private void onChange(Object event) {
+        synchronized (buildLock) {
+            if (!live) {
+                pendingEvents.add(event);
+                return;
+            }
+        }
+        apply(event);
+    }
+    
+    private void build() {
+        long start = System.currentTimeMillis();
+        CatalogSnapshot snapshot = snapshotEnabled ? openSnapshot() : null;
+        try {
+            if (snapshot != null) {
+                loadSnapshot(snapshot);
+                // Slightly stale until the replay below is done, which beats not answering at all
+                ready = true;
+                log.info("Loaded catalog facet columns for {} books from snapshot (version {}) in {} ms",
+                         rows, snapshot.getCatalogVersion(), System.currentTimeMillis() - start);
+                replayChangesSince(snapshot.getCatalogVersion());
+            } else {
+                loadFromDatabase();
+            }
+        } catch (RuntimeException ex) {
+            log.error("Could not load catalog facet columns", ex);
+            synchronized (buildLock) {
+                // Not served, and no point in queueing changes for it any longer
+                ready = false;
+                live = true;
+                pendingEvents.clear();
+            }
+            return;
+        }
+        
+        synchronized (buildLock) {
+            pendingEvents.forEach(this::apply);
+            pendingEvents.clear();
+            live = true;
+            ready = true;
+        }
+        log.info("Catalog facet columns for {} books ({} genres, {} distinct words) current after {} ms ({} start)",
+                 rows, genres.size(), fuzzy.wordCount(), System.currentTimeMillis() - start,
+                 snapshot != null ? "warm" : "cold");
+    }
+    
+    private void loadFromDatabase() {
+        long afterId = 0;
+        List<Object[]> chunk;
+        do {
+            chunk = bookRepository.findFacetFieldsAfter(afterId, PageRequest.of(0, buildChunkSize));
+            lock.writeLock().lock();
+            try {
+                for (Object[] row : chunk) {
+                    load((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                         (String) row[4], (Integer) row[5], (Integer) row[6]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!chunk.isEmpty()) {
+                afterId = (Long) chunk.get(chunk.size() - 1)[0];
+            }
+        } while (chunk.size() == buildChunkSize);
+    }
+    
+    // Null when there is no usable snapshot, and the columns are loaded from the database instead
+    private CatalogSnapshot openSnapshot() {
+        Path file = Path.of(snapshotPath);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+            // A snapshot ahead of the change log belongs to another (or a restored) database
+            if (snapshot.getCatalogVersion() > catalogChangeFeedService.getLatestVersion()) {
+                log.warn("Ignoring catalog snapshot {}: version {} is ahead of the database",
+                         file, snapshot.getCatalogVersion());
+                return null;
+            }
+            return snapshot;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable catalog snapshot {}", file, ex);
+            return null;
+        }
+    }
+    
+    private void loadSnapshot(CatalogSnapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < snapshot.size(); i++) {
+                loadRow(snapshot.bookId(i), snapshot.text(i), snapshot.genre(i),
+                        snapshot.publishedYear(i), snapshot.availableCopies(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Brings snapshot columns up to date: the latest change of every book touched since then
+    private void replayChangesSince(long version) {
+        long start = System.currentTimeMillis();
+        Map<Long, String> changes = catalogChangeFeedService.getLatestChangesSince(version);
+        List<Long> upserted = new ArrayList<>();
+        changes.forEach((bookId, type) -> {
+            if (CatalogChangeFeedService.DELETE.equals(type)) {
+                markDeleted(bookId);
+            } else {
+                upserted.add(bookId);
+            }
+        });
+        for (int from = 0; from < upserted.size(); from += buildChunkSize) {
+            List<Book> books = bookRepository.findAllById(
+                upserted.subList(from, Math.min(from + buildChunkSize, upserted.size())));
+            lock.writeLock().lock();
+            try {
+                for (Book book : books) {
+                    load(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getGenre(),
+                         book.getPublishedYear(), book.getAvailableCopies());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Replayed {} catalog changes since version {} in {} ms",
+                 changes.size(), version, System.currentTimeMillis() - start);
+    }
+    
+    @Scheduled(initialDelayString = "${library.catalog-snapshot.interval:PT15M}",
+               fixedDelayString = "${library.catalog-snapshot.interval:PT15M}")
+    public void scheduledSnapshot() {
+        writeSnapshot();
+    }
+    
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        writeSnapshot();
+    }
+    
+    public void writeSnapshot() {
+        synchronized (buildLock) {
+            if (!snapshotEnabled || !live) {
+                return;
+            }
+        }
+        long start = System.currentTimeMillis();
+        // Every change up to this version committed a while ago, so its event has been applied
+        long version = catalogChangeFeedService.getSettledVersion();
+        
+        // Copy under the lock (references only for strings), write without it
+        int count;
+        long[] ids;
+        int[] years;
+        int[] copies;
+        int[] genreColumn;
+        boolean[] dead;
+        String[] textColumn;
+        List<String> genreNames;
+        lock.readLock().lock();
+        try {
+            count = rows;
+            ids = Arrays.copyOf(bookIds, count);
+            years = Arrays.copyOf(publishedYears, count);
+            copies = Arrays.copyOf(availableCopies, count);
+            genreColumn = Arrays.copyOf(genreCodes, count);
+            dead = Arrays.copyOf(deleted, count);
+            textColumn = Arrays.copyOf(texts, count);
+            genreNames = new ArrayList<>(genres.values);
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        int written = 0;
+        try (CatalogSnapshot.Writer writer = new CatalogSnapshot.Writer(Path.of(snapshotPath), version)) {
+            for (int row = 0; row < count; row++) {
+                if (!dead[row]) {
+                    writer.add(ids[row], years[row] == NO_YEAR ? null : years[row], copies[row],
+                               genreColumn[row] == NONE ? null : genreNames.get(genreColumn[row]), textColumn[row]);
+                    written++;
+                }
+            }
+            writer.finish();
+        } catch (IOException ex) {
+            log.error("Could not write catalog snapshot {}", snapshotPath, ex);
+            return;
+        }
+        log.info("Wrote catalog snapshot of {} books (version {}) in {} ms",
+                 written, version, System.currentTimeMillis() - start);
+    }
+    
+    private void apply(Object event) {
+        if (event instanceof LoanEvent loanEvent) {
+            setAvailableCopies(loanEvent.getBookId(), loanEvent.getAvailableCopies());
+            return;
+        }
+        BookEvent bookEvent = (BookEvent) event;
+        if (bookEvent.getType() == BookEvent.Type.DELETED) {
+            markDeleted(bookEvent.getBookId());
+            return;
+        }
+        
+        // Created or edited: read the committed book, the event only carries its id
+        Book book = bookRepository.findById(bookEvent.getBookId()).orElse(null);
+        if (book == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            load(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getGenre(),
+                 book.getPublishedYear(), book.getAvailableCopies());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void markDeleted(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            int row = rowByBook.get(bookId) - 1;
+            if (row >= 0) {
+                deleted[row] = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void setAvailableCopies(Long bookId, Integer copies) {
+        if (bookId == null || copies == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int row = rowByBook.get(bookId) - 1;
+            if (row >= 0) {
+                availableCopies[row] = copies;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Caller holds the write lock
+    private void load(long bookId, String title, String author, String isbn, String genre,
+                      Integer publishedYear, Integer copies) {
+        String text = lower(title) + '\n' + lower(author) + '\n' + lower(genre) + '\n' + lower(isbn);
+        loadRow(bookId, text, genre, publishedYear, copies == null ? 0 : copies);
+    }
+    
+    // Caller holds the write lock; text is title, author, genre and ISBN, lower-cased, one per line
+    private void loadRow(long bookId, String text, String genre, Integer publishedYear, int copies) {
+        int genreCode = genre == null ? NONE : genres.codeOrAdd(genre);
+        int decadeCode = publishedYear == null ? NONE : decades.codeOrAdd(decadeLabel(publishedYear));
+        int authorStart = text.indexOf('\n') + 1;
+        int authorEnd = text.indexOf('\n', authorStart);
+        byte initial = (byte) initial(text.substring(authorStart, authorEnd < 0 ? text.length() : authorEnd));
+        
+        int row = rowByBook.get(bookId) - 1;
+        if (row >= 0 && !deleted[row] && texts[row].equals(text)) {
+            genreCodes[row] = genreCode;
+            decadeCodes[row] = decadeCode;
+            publishedYears[row] = publishedYear == null ? NO_YEAR : publishedYear;
+            initials[row] = initial;
+            availableCopies[row] = copies;
+            return;
+        }
+        if (row >= 0) {
+            // Text changed: its trigrams cannot be taken out of the index, so retire the row
+            deleted[row] = true;
+        }
+        
+        if (rows == texts.length) {
+            int capacity = rows * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            publishedYears = Arrays.copyOf(publishedYears, capacity);
+            genreCodes = Arrays.copyOf(genreCodes, capacity);
+            decadeCodes = Arrays.copyOf(decadeCodes, capacity);
+            initials = Arrays.copyOf(initials, capacity);
+            availableCopies = Arrays.copyOf(availableCopies, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        row = rows++;
+        bookIds[row] = bookId;
+        publishedYears[row] = publishedYear == null ? NO_YEAR : publishedYear;
+        genreCodes[row] = genreCode;
+        decadeCodes[row] = decadeCode;
+        initials[row] = initial;
+        availableCopies[row] = copies;
+        texts[row] = text;
+        trigrams.add(row, text);
+        // Title and author words; the ISBN is the last line
+        fuzzy.add(row, text.substring(0, authorEnd < 0 ? text.length() : authorEnd),
+                  text.substring(text.lastIndexOf('\n') + 1));
+        rowByBook.put(bookId, row + 1);
+    }
+    
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+    
+    // 1994 -> "1990s", -350 -> "-360s"
+    private static String decadeLabel(int year) {
+        return Math.floorDiv(year, 10) * 10 + "s";
+    }
+    
+    // 0-25 for A-Z, 26 for anything else
+    private static int initial(String author) {
+        char first = author == null || author.isBlank() ? '#' : Character.toUpperCase(author.trim().charAt(0));
+        return first >= 'A' && first <= 'Z' ? first - 'A' : OTHER_INITIAL;
+    }
+    
+    private static Map<String, Long> initialsByLetter(long[] counts) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                result.put(i == OTHER_INITIAL ? "#" : String.valueOf((char) ('A' + i)), counts[i]);
+            }
+        }
+        return result;
+    }
+    
+    // Dense int codes for the distinct values of a column; codes are never reused
+    private static class Dictionary {
+        
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+        
+        int code(String value) {
+            return codes.getOrDefault(value, NONE);
+        }
+        
+        int codeOrAdd(String value) {
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+        
+        int size() {
+            return values.size();
+        }
+        
+        // Most frequent first, values with no matching book left out
+        Map<String, Long> byCount(long[] counts) {
+            Integer[] order = nonZero(counts);
+            Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+            return toMap(order, counts);
+        }
+        
+        // Newest decade first
+        Map<String, Long> byValue(long[] counts) {
+            Integer[] order = nonZero(counts);
+            Arrays.sort(order, (a, b) -> Integer.compare(decadeOf(values.get(b)), decadeOf(values.get(a))));
+            return toMap(order, counts);
+        }
+        
+        private Integer[] nonZero(long[] counts) {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    order.add(i);
+                }
+            }
+            return order.toArray(new Integer[0]);
+        }
+        
+        private Map<String, Long> toMap(Integer[] order, long[] counts) {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int code : order) {
+                result.put(values.get(code), counts[code]);
+            }
+            return result;
+        }
+        
+        private static int decadeOf(String label) {
+            return Integer.parseInt(label.substring(0, label.length() - 1));
+        }
+    }
+}
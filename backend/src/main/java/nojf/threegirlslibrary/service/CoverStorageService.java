@@ -0,0 +1,317 @@
+package nojf.threegirlslibrary.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.exception.BadRequestException;
+import nojf.threegirlslibrary.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for uploaded book covers. Files are named by the SHA-256 of their
+ * bytes, so identical uploads are stored once and a URL never changes meaning, which lets
+ * clients cache covers forever. S/M/L JPEG thumbnails are generated in the background after
+ * upload (or on first request if that has not happened yet), and the most requested ones
+ * are kept in memory.
+ */
+@Service
+@Slf4j
+public class CoverStorageService {
+    
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    
+    // Content type -> file extension of the originals we accept (all readable by ImageIO)
+    private static final Map<String, String> TYPES = Map.of(
+        "image/jpeg", "jpg",
+        "image/png", "png",
+        "image/gif", "gif");
+    
+    // Thumbnail size -> width in pixels, height follows the aspect ratio
+    private static final Map<String, Integer> THUMBNAIL_WIDTHS = Map.of(
+        "S", 96,
+        "M", 240,
+        "L", 480);
+    
+    // 25 megapixels (100 MB decoded) is well above any real cover scan
+    private static final long MAX_PIXELS = 25_000_000L;
+    
+    @Value("${library.covers.storage-path:data/covers}")
+    private String storagePath;
+    
+    @Value("${library.covers.thumbnail-threads:2}")
+    private int thumbnailThreads;
+    
+    @Value("${library.covers.thumbnail-cache-size:64MB}")
+    private DataSize thumbnailCacheSize;
+    
+    private Path root;
+    private ThreadPoolExecutor thumbnailExecutor;
+    private ThumbnailCache thumbnailCache;
+    
+    @PostConstruct
+    void init() throws IOException {
+        root = Path.of(storagePath).toAbsolutePath();
+        Files.createDirectories(root.resolve("originals"));
+        Files.createDirectories(root.resolve("thumbnails"));
+        
+        // When the queue is full, thumbnails are made on their first request instead
+        AtomicInteger threadCount = new AtomicInteger();
+        thumbnailExecutor = new ThreadPoolExecutor(thumbnailThreads, thumbnailThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1000), runnable -> {
+                Thread thread = new Thread(runnable, "cover-thumbnails-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+        thumbnailCache = new ThumbnailCache(thumbnailCacheSize.toBytes());
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        thumbnailExecutor.shutdownNow();
+    }
+    
+    // Stores an uploaded image and returns its hash; thumbnails follow asynchronously
+    public String store(MultipartFile file) {
+        String extension = TYPES.get(file.getContentType());
+        if (file.isEmpty() || extension == null) {
+            throw new BadRequestException("Cover must be a JPEG, PNG or GIF image");
+        }
+        
+        byte[] bytes;
+        try {
+            bytes = file.getBytes();
+            if (decode(new ByteArrayInputStream(bytes)) == null) {
+                throw new BadRequestException("Cover is not a readable image");
+            }
+        } catch (IOException ex) {
+            throw new BadRequestException("Cover is not a readable image");
+        }
+        
+        String hash = sha256(bytes);
+        Path original = originalPath(hash, extension);
+        try {
+            if (!Files.exists(original)) {
+                writeAtomically(original, bytes);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not store cover " + hash, ex);
+        }
+        
+        for (String size : THUMBNAIL_WIDTHS.keySet()) {
+            thumbnailExecutor.execute(() -> {
+                try {
+                    thumbnail(hash, size);
+                } catch (RuntimeException ex) {
+                    log.warn("Could not create {} thumbnail for cover {}", size, hash, ex);
+                }
+            });
+        }
+        return hash;
+    }
+    
+    // size is null for the original upload, otherwise S, M or L
+    public Cover getCover(String hash, String size) {
+        if (!HASH.matcher(hash).matches()) {
+            throw new ResourceNotFoundException("Cover", "hash", hash);
+        }
+        if (size == null) {
+            for (Map.Entry<String, String> type : TYPES.entrySet()) {
+                Path original = originalPath(hash, type.getValue());
+                if (Files.exists(original)) {
+                    return new Cover(hash, type.getKey(), original, null, fileSize(original));
+                }
+            }
+            throw new ResourceNotFoundException("Cover", "hash", hash);
+        }
+        
+        String normalizedSize = size.toUpperCase();
+        if (!THUMBNAIL_WIDTHS.containsKey(normalizedSize)) {
+            throw new BadRequestException("Cover size must be S, M or L");
+        }
+        byte[] bytes = thumbnail(hash, normalizedSize);
+        return new Cover(hash + "-" + normalizedSize, "image/jpeg", null, bytes, bytes.length);
+    }
+    
+    private byte[] thumbnail(String hash, String size) {
+        String key = hash + "-" + size;
+        byte[] cached = thumbnailCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        Path path = root.resolve("thumbnails").resolve(hash.substring(0, 2)).resolve(key + ".jpg");
+        try {
+            byte[] bytes;
+            if (Files.exists(path)) {
+                bytes = Files.readAllBytes(path);
+            } else {
+                bytes = resize(readOriginal(hash), THUMBNAIL_WIDTHS.get(size));
+                writeAtomically(path, bytes);
+            }
+            thumbnailCache.put(key, bytes);
+            return bytes;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not create thumbnail " + key, ex);
+        }
+    }
+    
+    private BufferedImage readOriginal(String hash) throws IOException {
+        for (String extension : TYPES.values()) {
+            Path original = originalPath(hash, extension);
+            if (Files.exists(original)) {
+                BufferedImage image = decode(original.toFile());
+                if (image != null) {
+                    return image;
+                }
+            }
+        }
+        throw new ResourceNotFoundException("Cover", "hash", hash);
+    }
+    
+    // Like ImageIO.read, but the size is taken from the header first so that a small file
+    // claiming a huge image is refused before its pixels are allocated
+    private static BufferedImage decode(Object input) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new BadRequestException("Cover must be at most " + MAX_PIXELS / 1_000_000 + " megapixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    private static byte[] resize(BufferedImage source, int maxWidth) throws IOException {
+        // Never upscale; small originals are only re-encoded
+        int width = Math.min(maxWidth, source.getWidth());
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        
+        // JPEG has no alpha channel, so transparent PNG/GIF areas become white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(target, "jpg", out);
+        return out.toByteArray();
+    }
+    
+    private Path originalPath(String hash, String extension) {
+        return root.resolve("originals").resolve(hash.substring(0, 2)).resolve(hash + "." + extension);
+    }
+    
+    // Concurrent writers of the same hash write identical bytes, so the last move wins harmlessly
+    private static void writeAtomically(Path path, byte[] bytes) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+    
+    private static long fileSize(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    // A stored cover: originals are served from the file, thumbnails from memory
+    @Getter
+    @AllArgsConstructor
+    public static class Cover {
+        private final String etag;
+        private final String contentType;
+        private final Path path;
+        private final byte[] bytes;
+        private final long length;
+    }
+    
+    // Least recently used thumbnails are evicted once the total size exceeds the limit
+    private static class ThumbnailCache {
+        
+        private final long maxBytes;
+        private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+        private long totalBytes;
+        
+        ThumbnailCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+        
+        synchronized byte[] get(String key) {
+            return entries.get(key);
+        }
+        
+        synchronized void put(String key, byte[] bytes) {
+            if (bytes.length > maxBytes) {
+                return;
+            }
+            byte[] previous = entries.put(key, bytes);
+            totalBytes += bytes.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+}
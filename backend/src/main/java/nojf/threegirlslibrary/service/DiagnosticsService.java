@@ -0,0 +1,301 @@
+package nojf.threegirlslibrary.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.dto.DiagnosticsSummary;
+import nojf.threegirlslibrary.dto.RecordingInfo;
+import nojf.threegirlslibrary.exception.BadRequestException;
+import nojf.threegirlslibrary.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JDK Flight Recorder behind the admin /diagnostics endpoints. From startup, a continuous
+ * recording keeps the last max-age (or max-size) of events on disk as a ring buffer, with the
+ * JDK's "default" settings (meant for production, about 1% overhead) plus the library events in
+ * {@link nojf.threegirlslibrary.event.FlightEvents}. When latency spikes, the last minutes can
+ * be downloaded as a .jfr file for JDK Mission Control, or summarized as JSON: the heaviest
+ * allocation sites, monitor contention and parking, and latency percentiles of borrow, return,
+ * search and JWT authentication.
+ *
+ * Targeted recordings (e.g. "profile" settings for two minutes) run next to the continuous one
+ * and are kept until deleted, at most max-recordings at a time.
+ *
+ * JFR keeps its data in chunks and drops only whole chunks, so a dump of the last N minutes
+ * may start somewhat earlier; the JSON summary filters by event time and is exact.
+ */
+@Service
+@Slf4j
+public class DiagnosticsService {
+    
+    private static final String CONTINUOUS_NAME = "library-continuous";
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+    private static final String LIBRARY_EVENTS = "nojf.library.";
+    private static final String LIBRARY_PACKAGE = "nojf.threegirlslibrary.";
+    
+    @Value("${library.diagnostics.enabled:true}")
+    private boolean enabled;
+    
+    // Settings of the continuous recording: default or profile
+    @Value("${library.diagnostics.settings:default}")
+    private String settings;
+    
+    // How far back dumps and summaries can reach
+    @Value("${library.diagnostics.max-age:PT30M}")
+    private Duration maxAge;
+    
+    @Value("${library.diagnostics.max-size:256MB}")
+    private DataSize maxSize;
+    
+    @Value("${library.diagnostics.max-recordings:4}")
+    private int maxRecordings;
+    
+    private volatile Recording continuous;
+    
+    // Targeted recordings by id, guarded by this
+    private final Map<Long, TargetedRecording> recordings = new LinkedHashMap<>();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void startContinuousRecording() {
+        if (!enabled) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("JDK Flight Recorder is not available, diagnostics are off");
+            return;
+        }
+        Recording recording = new Recording(configuration(settings));
+        recording.setName(CONTINUOUS_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSize.toBytes());
+        recording.start();
+        continuous = recording;
+        log.info("Continuous flight recording started ({} settings, last {} or {})", settings, maxAge, maxSize);
+    }
+    
+    public boolean isRecording() {
+        return continuous != null;
+    }
+    
+    // The last window of every recording, as a .jfr file the caller deletes
+    public Path dump(Duration window) throws IOException {
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            snapshot.setMaxAge(window);
+            Path file = Files.createTempFile("library-", ".jfr");
+            snapshot.dump(file);
+            return file;
+        }
+    }
+    
+    public DiagnosticsSummary summarize(Duration window, int top) throws IOException {
+        Path file = dump(window);
+        try {
+            Instant to = Instant.now();
+            Instant from = to.minus(window);
+            Map<String, Tally> allocationByClass = new HashMap<>();
+            Map<String, Tally> allocationBySite = new HashMap<>();
+            Map<String, Tally> monitorByClass = new HashMap<>();
+            Map<String, Tally> monitorBySite = new HashMap<>();
+            Map<String, Tally> parkByClass = new HashMap<>();
+            Map<String, List<Long>> latencies = new HashMap<>();
+            
+            try (RecordingFile recording = new RecordingFile(file)) {
+                while (recording.hasMoreEvents()) {
+                    RecordedEvent event = recording.readEvent();
+                    if (event.getStartTime().isBefore(from)) {
+                        continue;
+                    }
+                    String type = event.getEventType().getName();
+                    double millis = event.getDuration().toNanos() / 1e6;
+                    switch (type) {
+                        case "jdk.ObjectAllocationSample" -> {
+                            long bytes = event.getLong("weight");
+                            tally(allocationByClass, className(event.getClass("objectClass")), bytes);
+                            tally(allocationBySite, site(event.getStackTrace()), bytes);
+                        }
+                        case "jdk.JavaMonitorEnter" -> {
+                            tally(monitorByClass, className(event.getClass("monitorClass")), millis);
+                            tally(monitorBySite, site(event.getStackTrace()), millis);
+                        }
+                        case "jdk.ThreadPark" -> tally(parkByClass, className(event.getClass("parkedClass")), millis);
+                        default -> {
+                            if (type.startsWith(LIBRARY_EVENTS)) {
+                                latencies.computeIfAbsent(type.substring(LIBRARY_EVENTS.length()), t -> new ArrayList<>())
+                                         .add(event.getDuration().toNanos());
+                            }
+                        }
+                    }
+                }
+            }
+            
+            List<DiagnosticsSummary.Operation> operations = new ArrayList<>();
+            latencies.forEach((name, nanos) -> {
+                nanos.sort(null);
+                operations.add(new DiagnosticsSummary.Operation(name, (long) nanos.size(), percentile(nanos, 0.50),
+                                                                percentile(nanos, 0.99),
+                                                                nanos.get(nanos.size() - 1) / 1e6));
+            });
+            operations.sort(Comparator.comparing(DiagnosticsSummary.Operation::getName));
+            return new DiagnosticsSummary(from, to, top(allocationByClass, top), top(allocationBySite, top),
+                                          top(monitorByClass, top), top(monitorBySite, top), top(parkByClass, top),
+                                          operations);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    public synchronized RecordingInfo startRecording(String settings, Duration duration) {
+        recordings.values().removeIf(recording -> recording.recording.getState() == RecordingState.CLOSED);
+        if (recordings.size() >= maxRecordings) {
+            throw new BadRequestException("At most " + maxRecordings + " recordings at a time, delete one first");
+        }
+        if (duration != null && (duration.isNegative() || duration.isZero())) {
+            throw new BadRequestException("Duration must be positive");
+        }
+        Recording recording = new Recording(configuration(settings));
+        recording.setName("library-" + settings);
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        recording.start();
+        TargetedRecording targeted = new TargetedRecording(recording, settings);
+        recordings.put(recording.getId(), targeted);
+        log.info("Flight recording {} started ({} settings, for {})", recording.getId(), settings,
+                 duration != null ? duration : "until stopped");
+        return targeted.info();
+    }
+    
+    public synchronized List<RecordingInfo> getRecordings() {
+        return recordings.values().stream().map(TargetedRecording::info).toList();
+    }
+    
+    public synchronized RecordingInfo stopRecording(long id) {
+        TargetedRecording targeted = targeted(id);
+        if (targeted.recording.getState() == RecordingState.RUNNING) {
+            targeted.recording.stop();
+        }
+        return targeted.info();
+    }
+    
+    // Everything recorded so far, also while still running, as a .jfr file the caller deletes
+    public Path dumpRecording(long id) throws IOException {
+        Recording recording;
+        synchronized (this) {
+            recording = targeted(id).recording;
+        }
+        Path file = Files.createTempFile("library-" + id + "-", ".jfr");
+        recording.dump(file);
+        return file;
+    }
+    
+    public synchronized void deleteRecording(long id) {
+        targeted(id).recording.close();
+        recordings.remove(id);
+    }
+    
+    @PreDestroy
+    public synchronized void close() {
+        recordings.values().forEach(targeted -> targeted.recording.close());
+        recordings.clear();
+        if (continuous != null) {
+            continuous.close();
+        }
+    }
+    
+    private TargetedRecording targeted(long id) {
+        TargetedRecording targeted = recordings.get(id);
+        if (targeted == null) {
+            throw new ResourceNotFoundException("Recording", "id", id);
+        }
+        return targeted;
+    }
+    
+    private static Configuration configuration(String name) {
+        if (!SETTINGS.contains(name)) {
+            throw new BadRequestException("Unknown recording settings '" + name + "', use default or profile");
+        }
+        try {
+            return Configuration.getConfiguration(name);
+        } catch (IOException | ParseException ex) {
+            throw new IllegalStateException("JFR settings " + name + " could not be read", ex);
+        }
+    }
+    
+    // First frame in library code, so hotspots point at our callers rather than at HashMap.resize
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "(no stack trace)";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(LIBRARY_PACKAGE)) {
+                return method(frame);
+            }
+        }
+        return method(stackTrace.getFrames().get(0));
+    }
+    
+    private static String method(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+    
+    private static String className(RecordedClass recordedClass) {
+        return recordedClass != null ? recordedClass.getName() : "(unknown)";
+    }
+    
+    private static void tally(Map<String, Tally> tallies, String name, double amount) {
+        Tally tally = tallies.computeIfAbsent(name, n -> new Tally());
+        tally.events++;
+        tally.total += amount;
+    }
+    
+    private static List<DiagnosticsSummary.Hotspot> top(Map<String, Tally> tallies, int top) {
+        return tallies.entrySet().stream()
+                      .sorted((a, b) -> Double.compare(b.getValue().total, a.getValue().total))
+                      .limit(top)
+                      .map(e -> new DiagnosticsSummary.Hotspot(e.getKey(), e.getValue().events, e.getValue().total))
+                      .toList();
+    }
+    
+    private static double percentile(List<Long> sortedNanos, double p) {
+        return sortedNanos.get(Math.min(sortedNanos.size() - 1, (int) (sortedNanos.size() * p))) / 1e6;
+    }
+    
+    private static class Tally {
+        private long events;
+        private double total;
+    }
+    
+    private record TargetedRecording(Recording recording, String settings) {
+        
+        RecordingInfo info() {
+            return new RecordingInfo(recording.getId(), recording.getName(), recording.getState().name(), settings,
+                                     recording.getStartTime(), recording.getDuration(), recording.getSize());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nojf.threegirlslibrary.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.entity.IdempotencyRecord;
+import nojf.threegirlslibrary.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Responses of requests sent with an Idempotency-Key. Kept in a bounded in-memory LRU map
+ * with a TTL, and also written to the idempotency_keys table when persistence is on, so
+ * retries still replay after a restart or when they land on another instance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyStore {
+    
+    private final IdempotencyRecordRepository repository;
+    
+    @Value("${library.idempotency.ttl:PT24H}")
+    private Duration ttl;
+    
+    @Value("${library.idempotency.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${library.idempotency.persist:false}")
+    private boolean persist;
+    
+    private final Map<String, IdempotencyRecord> records = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    
+    public IdempotencyRecord find(String scopeKey) {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (records) {
+            IdempotencyRecord record = records.get(scopeKey);
+            if (record != null) {
+                if (!record.isExpired(now)) {
+                    return record;
+                }
+                records.remove(scopeKey);
+            }
+        }
+        if (!persist) {
+            return null;
+        }
+        
+        IdempotencyRecord record = repository.findById(scopeKey)
+            .filter(r -> !r.isExpired(now))
+            .orElse(null);
+        if (record != null) {
+            synchronized (records) {
+                records.put(scopeKey, record);
+            }
+        }
+        return record;
+    }
+    
+    public IdempotencyRecord save(String scopeKey, String fingerprint, int status, String contentType, byte[] body) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record = new IdempotencyRecord(scopeKey, fingerprint, status, contentType, body,
+                                                         now, now.plus(ttl));
+        synchronized (records) {
+            records.put(scopeKey, record);
+        }
+        if (persist) {
+            try {
+                repository.save(record);
+            } catch (RuntimeException ex) {
+                // The memory copy still covers retries to this instance
+                log.warn("Could not persist idempotency key {}: {}", scopeKey, ex.getMessage());
+            }
+        }
+        return record;
+    }
+    
+    @Scheduled(fixedDelayString = "${library.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (records) {
+            records.values().removeIf(record -> record.isExpired(now));
+        }
+        if (persist) {
+            int deleted = repository.deleteExpiredBefore(now);
+            log.debug("Purged {} expired idempotency keys", deleted);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package nojf.threegirlslibrary.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.dto.LoanHistoryResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Moves returned loans out of the loans table once they are older than the horizon. They go
+ * to loan_history, range-partitioned by year of return, with their waived penalty folded into
+ * the same row; loans with an unpaid penalty stay until it is settled. The loans table then
+ * only holds what circulation still works on, and old years of history can be dropped a whole
+ * partition at a time. A patron's paged history reads both tables.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoanArchiveService {
+    
+    private static final String ARCHIVABLE_LOANS =
+        "FROM loans l LEFT JOIN penalties p ON p.loan_id = l.id " +
+        "WHERE l.status = 'RETURNED' AND l.returned_at < ? AND (p.id IS NULL OR p.status = 'WAIVED')";
+    
+    // INSERT IGNORE so a chunk that was copied but not deleted (crash in between) can be rerun
+    private static final String COPY_CHUNK =
+        "INSERT IGNORE INTO loan_history (id, user_id, book_id, borrowed_at, due_date, returned_at, status, " +
+        "penalty_id, penalty_amount, penalty_days_late, penalty_status, created_at, archived_at) " +
+        "SELECT l.id, l.user_id, l.book_id, l.borrowed_at, l.due_date, l.returned_at, l.status, " +
+        "p.id, p.amount, p.days_late, p.status, l.created_at, ? " +
+        ARCHIVABLE_LOANS + " AND l.id >= ? AND l.id < ?";
+    
+    // Deletes exactly what was copied, even if a penalty was waived in between; penalties cascade
+    private static final String DELETE_CHUNK =
+        "DELETE l FROM loans l JOIN loan_history h ON h.id = l.id WHERE l.id >= ? AND l.id < ?";
+    
+    private static final String HOT_HISTORY =
+        "SELECT l.id, l.book_id, b.title, b.author, l.borrowed_at, l.due_date, l.returned_at, l.status, " +
+        "p.amount AS penalty_amount, p.status AS penalty_status, FALSE AS archived " +
+        "FROM loans l LEFT JOIN books b ON b.id = l.book_id LEFT JOIN penalties p ON p.loan_id = l.id " +
+        "WHERE l.user_id = ? ORDER BY l.id DESC LIMIT ?";
+    
+    private static final String ARCHIVED_HISTORY =
+        "SELECT h.id, h.book_id, b.title, b.author, h.borrowed_at, h.due_date, h.returned_at, h.status, " +
+        "h.penalty_amount, h.penalty_status, TRUE AS archived " +
+        "FROM loan_history h LEFT JOIN books b ON b.id = h.book_id " +
+        "WHERE h.user_id = ? ORDER BY h.id DESC LIMIT ?";
+    
+    private static final RowMapper<LoanHistoryResponse> HISTORY_ROW = (rs, rowNum) -> new LoanHistoryResponse(
+        rs.getLong("id"),
+        rs.getLong("book_id"),
+        rs.getString("title"),
+        rs.getString("author"),
+        rs.getObject("borrowed_at", LocalDateTime.class),
+        rs.getObject("due_date", LocalDateTime.class),
+        rs.getObject("returned_at", LocalDateTime.class),
+        rs.getString("status"),
+        rs.getBigDecimal("penalty_amount"),
+        rs.getString("penalty_status"),
+        rs.getBoolean("archived"));
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${library.loan-archive.enabled:true}")
+    private boolean enabled;
+    
+    // Returned loans older than this are archived
+    @Value("${library.loan-archive.horizon:P180D}")
+    private Duration horizon;
+    
+    @Value("${library.loan-archive.chunk-size:10000}")
+    private int chunkSize;
+    
+    // Whole years of history older than this are dropped; 0 keeps everything
+    @Value("${library.loan-archive.retention-years:0}")
+    private int retentionYears;
+    
+    @Scheduled(cron = "${library.loan-archive.cron:0 0 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveReturnedLoans();
+        }
+    }
+    
+    // Returns the number of loans moved
+    public long archiveReturnedLoans() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        addPartitions(now.getYear() + 1);
+        
+        Timestamp before = Timestamp.valueOf(now.minus(horizon));
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(l.id) " + ARCHIVABLE_LOANS, Long.class, before);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(l.id) " + ARCHIVABLE_LOANS, Long.class, before);
+        long moved = 0;
+        if (minId != null) {
+            Timestamp archivedAt = Timestamp.valueOf(now);
+            for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+                long toId = fromId + chunkSize;
+                // Copy and delete commit together, so a loan is never in both tables or in neither
+                Integer copied = transactionTemplate.execute(status -> {
+                    int rows = jdbcTemplate.update(COPY_CHUNK, archivedAt, before, fromId, toId);
+                    jdbcTemplate.update(DELETE_CHUNK, fromId, toId);
+                    return rows;
+                });
+                moved += copied != null ? copied : 0;
+            }
+        }
+        
+        if (retentionYears > 0) {
+            dropPartitionsBefore(now.getYear() - retentionYears);
+        }
+        log.info("Archived {} returned loans (returned before {}) in {} ms",
+                 moved, before, System.currentTimeMillis() - start);
+        return moved;
+    }
+    
+    // Newest first across both tables. Loan ids grow with borrow time, so id order is borrow order.
+    public Page<LoanHistoryResponse> getLoanHistory(Long userId, Pageable pageable) {
+        long window = pageable.getOffset() + pageable.getPageSize();
+        List<LoanHistoryResponse> content = jdbcTemplate.query(
+            "(" + HOT_HISTORY + ") UNION ALL (" + ARCHIVED_HISTORY + ") ORDER BY id DESC LIMIT ? OFFSET ?",
+            HISTORY_ROW, userId, window, userId, window, pageable.getPageSize(), pageable.getOffset());
+        
+        Long hot = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loans WHERE user_id = ?", Long.class, userId);
+        Long archived = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM loan_history WHERE user_id = ?", Long.class, userId);
+        return new PageImpl<>(content, pageable, (hot != null ? hot : 0) + (archived != null ? archived : 0));
+    }
+    
+    // No foreign keys on the partitioned table, so a deleted user's history is removed here
+    public void deleteHistoryOfUser(Long userId) {
+        jdbcTemplate.update("DELETE FROM loan_history WHERE user_id = ?", userId);
+    }
+    
+    // Splits yearly partitions off pmax up to and including the given year
+    private void addPartitions(int untilYear) {
+        TreeSet<Integer> years = partitionYears();
+        if (years.isEmpty()) {
+            return;
+        }
+        for (int year = years.last() + 1; year <= untilYear; year++) {
+            jdbcTemplate.execute("ALTER TABLE loan_history REORGANIZE PARTITION pmax INTO (" +
+                                 "PARTITION p" + year + " VALUES LESS THAN ('" + (year + 1) + "-01-01'), " +
+                                 "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+            log.info("Added loan_history partition p{}", year);
+        }
+    }
+    
+    // The oldest partition also holds everything returned before its year, which goes with it
+    private void dropPartitionsBefore(int year) {
+        TreeSet<Integer> years = partitionYears();
+        for (int partitionYear : years.headSet(year)) {
+            jdbcTemplate.execute("ALTER TABLE loan_history DROP PARTITION p" + partitionYear);
+            log.info("Dropped loan_history partition p{}", partitionYear);
+        }
+    }
+    
+    private TreeSet<Integer> partitionYears() {
+        List<String> names = jdbcTemplate.queryForList(
+            "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'loan_history' AND PARTITION_NAME IS NOT NULL",
+            String.class);
+        TreeSet<Integer> years = new TreeSet<>();
+        for (String name : names) {
+            if (name.matches("p\\d{4}")) {
+                years.add(Integer.parseInt(name.substring(1)));
+            }
+        }
+        return years;
+    }
+}
@@ -0,0 +1,366 @@
+package nojf.threegirlslibrary.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.config.LoanPolicyProperties;
+import nojf.threegirlslibrary.config.PenaltyProperties;
+import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.entity.Penalty;
+import nojf.threegirlslibrary.entity.User;
+import nojf.threegirlslibrary.event.LoanEvent;
+import nojf.threegirlslibrary.event.PenaltyEvent;
+import nojf.threegirlslibrary.event.UserEvent;
+import nojf.threegirlslibrary.exception.BadRequestException;
+import nojf.threegirlslibrary.repository.LoanRepository;
+import nojf.threegirlslibrary.repository.PenaltyRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Borrowing rules, evaluated against in-memory counters per patron so that a new rule does not
+ * add a query to every borrow. The rules, configured under library.loan-policy: no second copy
+ * of a book the patron already has out, at most max-active-loans books per role, and nothing
+ * while unpaid penalties exceed max-unpaid-penalty-cents (late fees of books still out priced as
+ * of now, like PenaltyService.getTotalUnpaidPenalties). Loan periods come from genre-loan-days.
+ *
+ * A patron's counters are the loans they have out (book, due date, genre) and the unpaid
+ * penalties of their returned loans. They are loaded on the patron's first borrow and kept
+ * current by committed borrows and returns; a waived penalty or deleted account drops them.
+ * Patrons are spread over lock stripes by user id, so borrows of different patrons rarely wait
+ * on each other. A borrow that passes holds its slot under the stripe lock until its transaction
+ * completes, so two concurrent borrows cannot both take a patron's last one.
+ *
+ * Counters are per instance and miss loans written by other instances or by SQL, so the tracked
+ * patrons are reloaded every reconcile-interval; patrons whose counters changed while their
+ * chunk was being read are left for the next round. Until then LoanService still refuses a
+ * duplicate borrow from the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoanPolicyService {
+    
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    
+    private final LoanPolicyProperties properties;
+    private final PenaltyProperties penaltyProperties;
+    private final LoanRepository loanRepository;
+    private final PenaltyRepository penaltyRepository;
+    
+    private Stripe[] stripes;
+    
+    // One borrowing rule: why the borrow is refused, or null to allow it
+    @FunctionalInterface
+    interface Rule {
+        String violation(Borrower borrower, User user, Book book, LocalDateTime now);
+    }
+    
+    private final List<Rule> rules = List.of(this::alreadyBorrowed, this::tooManyLoans, this::unpaidPenalties);
+    
+    @PostConstruct
+    void init() {
+        int count = Integer.highestOneBit(Math.max(1, properties.getCounterStripes()));
+        int perStripe = Math.max(1, properties.getMaxTrackedPatrons() / count);
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+    
+    /**
+     * Throws BadRequestException with the first rule that refuses the borrow. Otherwise the loan
+     * counts against the patron's limits until the surrounding transaction completes, by which
+     * time a committed loan is counted through its LoanEvent.
+     */
+    public void checkBorrow(User user, Book book) {
+        Stripe stripe = stripe(user.getId());
+        Borrower borrower = borrower(stripe, user.getId());
+        LocalDateTime now = LocalDateTime.now();
+        stripe.lock.lock();
+        try {
+            for (Rule rule : rules) {
+                String violation = rule.violation(borrower, user, book, now);
+                if (violation != null) {
+                    throw new BadRequestException(violation);
+                }
+            }
+            borrower.pendingBooks.add(book.getId());
+        } finally {
+            stripe.lock.unlock();
+        }
+        
+        Long bookId = book.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(stripe, borrower, bookId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(stripe, borrower, bookId);
+            }
+        });
+    }
+    
+    public LocalDateTime dueDate(Book book, LocalDateTime borrowedAt) {
+        return borrowedAt.plusDays(properties.loanDaysFor(book.getGenre()));
+    }
+    
+    @TransactionalEventListener
+    public void onLoanEvent(LoanEvent event) {
+        update(event.getUserId(), borrower -> {
+            if (event.getType() == LoanEvent.Type.BORROWED) {
+                borrower.loans.put(event.getLoanId(), new OpenLoan(event.getBookId(), event.getDueDate(),
+                                                                   event.getGenre(), true));
+            } else {
+                borrower.loans.remove(event.getLoanId());
+                if (event.getPenaltyCents() > 0) {
+                    borrower.penalties.put(event.getLoanId(), event.getPenaltyCents());
+                }
+            }
+        });
+    }
+    
+    // Waivers are rare, so the patron is simply reloaded on their next borrow
+    @TransactionalEventListener
+    public void onPenaltyEvent(PenaltyEvent event) {
+        forget(event.getUserId());
+    }
+    
+    @TransactionalEventListener
+    public void onUserEvent(UserEvent event) {
+        if (event.getType() == UserEvent.Type.DELETED) {
+            forget(event.getUserId());
+        }
+    }
+    
+    @Scheduled(initialDelayString = "${library.loan-policy.reconcile-interval:PT10M}",
+               fixedDelayString = "${library.loan-policy.reconcile-interval:PT10M}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        int checked = 0;
+        int corrected = 0;
+        for (Stripe stripe : stripes) {
+            Map<Long, Borrower> tracked = new HashMap<>();
+            Map<Long, Long> versions = new HashMap<>();
+            stripe.lock.lock();
+            try {
+                stripe.borrowers.forEach((userId, borrower) -> {
+                    tracked.put(userId, borrower);
+                    versions.put(userId, borrower.version);
+                });
+            } finally {
+                stripe.lock.unlock();
+            }
+            
+            List<Long> userIds = new ArrayList<>(tracked.keySet());
+            for (int from = 0; from < userIds.size(); from += properties.getReconcileChunkSize()) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + properties.getReconcileChunkSize(),
+                                                                  userIds.size()));
+                Map<Long, Borrower> loaded = load(chunk);
+                stripe.lock.lock();
+                try {
+                    for (Long userId : chunk) {
+                        Borrower borrower = tracked.get(userId);
+                        // Changed since it was read, or dropped: the next round checks it again
+                        if (borrower.version != versions.get(userId) || !stripe.borrowers.containsKey(userId)) {
+                            continue;
+                        }
+                        checked++;
+                        Borrower current = loaded.get(userId);
+                        if (!borrower.loans.equals(current.loans) || !borrower.penalties.equals(current.penalties)) {
+                            corrected++;
+                            borrower.loans.clear();
+                            borrower.loans.putAll(current.loans);
+                            borrower.penalties.clear();
+                            borrower.penalties.putAll(current.penalties);
+                            borrower.version++;
+                        }
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+        log.info("Loan policy counters of {} patrons reconciled, {} corrected, in {} ms",
+                 checked, corrected, System.currentTimeMillis() - start);
+    }
+    
+    private String alreadyBorrowed(Borrower borrower, User user, Book book, LocalDateTime now) {
+        boolean out = borrower.pendingBooks.contains(book.getId())
+            || borrower.loans.values().stream().anyMatch(loan -> loan.bookId() == book.getId());
+        return out ? "You already have this book borrowed" : null;
+    }
+    
+    private String tooManyLoans(Borrower borrower, User user, Book book, LocalDateTime now) {
+        int max = properties.maxActiveLoansFor(user.getRole());
+        if (max <= 0 || borrower.loans.size() + borrower.pendingBooks.size() < max) {
+            return null;
+        }
+        return "You may have at most " + max + " books borrowed at a time";
+    }
+    
+    private String unpaidPenalties(Borrower borrower, User user, Book book, LocalDateTime now) {
+        long limit = properties.getMaxUnpaidPenaltyCents();
+        if (limit < 0) {
+            return null;
+        }
+        long unpaidCents = borrower.penalties.values().stream().mapToLong(Long::longValue).sum();
+        for (OpenLoan loan : borrower.loans.values()) {
+            if (loan.accruing() && loan.dueDate().isBefore(now)) {
+                long daysLate = ChronoUnit.DAYS.between(loan.dueDate(), now);
+                unpaidCents += penaltyProperties.scheduleFor(loan.genre()).feeCents(daysLate);
+            }
+        }
+        if (unpaidCents <= limit) {
+            return null;
+        }
+        return "Unpaid penalties of " + BigDecimal.valueOf(unpaidCents, 2) + " exceed the limit of "
+            + BigDecimal.valueOf(limit, 2);
+    }
+    
+    private Stripe stripe(Long userId) {
+        return stripes[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (stripes.length - 1)];
+    }
+    
+    // Tracked counters, or freshly loaded ones that are kept so concurrent borrows of the patron
+    // share them. A load that raced with a loan event is read again; after MAX_LOAD_ATTEMPTS it is
+    // kept anyway and the next reconcile corrects it.
+    private Borrower borrower(Stripe stripe, Long userId) {
+        for (int attempt = 1; ; attempt++) {
+            long changes;
+            stripe.lock.lock();
+            try {
+                Borrower borrower = stripe.borrowers.get(userId);
+                if (borrower != null) {
+                    return borrower;
+                }
+                changes = stripe.changes;
+            } finally {
+                stripe.lock.unlock();
+            }
+            
+            Borrower loaded = load(List.of(userId)).get(userId);
+            stripe.lock.lock();
+            try {
+                Borrower borrower = stripe.borrowers.get(userId);
+                if (borrower != null) {
+                    return borrower;
+                }
+                if (stripe.changes == changes || attempt == MAX_LOAD_ATTEMPTS) {
+                    stripe.borrowers.put(userId, loaded);
+                    return loaded;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+    
+    // Two queries for the whole chunk; every user id gets counters, empty ones included
+    private Map<Long, Borrower> load(Collection<Long> userIds) {
+        Map<Long, Borrower> borrowers = new HashMap<>();
+        userIds.forEach(userId -> borrowers.put(userId, new Borrower()));
+        for (Object[] row : loanRepository.findOpenLoansOfUsers(userIds)) {
+            boolean accruing = row[5] == null || row[5] == Penalty.Status.UNPAID;
+            borrowers.get((Long) row[0]).loans.put((Long) row[1], new OpenLoan((Long) row[2], (LocalDateTime) row[3],
+                                                                               (String) row[4], accruing));
+        }
+        for (Object[] row : penaltyRepository.findUnpaidPenaltiesOfReturnedLoans(userIds)) {
+            borrowers.get((Long) row[0]).penalties.put((Long) row[1], ((BigDecimal) row[2]).movePointRight(2).longValue());
+        }
+        return borrowers;
+    }
+    
+    private void update(Long userId, Consumer<Borrower> change) {
+        Stripe stripe = stripe(userId);
+        stripe.lock.lock();
+        try {
+            // Counted for untracked patrons too, so a load that raced with this is not kept
+            stripe.changes++;
+            Borrower borrower = stripe.borrowers.get(userId);
+            if (borrower != null) {
+                change.accept(borrower);
+                borrower.version++;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    private void forget(Long userId) {
+        Stripe stripe = stripe(userId);
+        stripe.lock.lock();
+        try {
+            stripe.changes++;
+            stripe.borrowers.remove(userId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    private void release(Stripe stripe, Borrower borrower, Long bookId) {
+        stripe.lock.lock();
+        try {
+            borrower.pendingBooks.remove(bookId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    private record OpenLoan(long bookId, LocalDateTime dueDate, String genre, boolean accruing) {
+    }
+    
+    // Guarded by its stripe's lock. Keyed by loan id, so an event that a reconcile already read
+    // applies again without counting twice
+    static class Borrower {
+        
+        // Loans still out
+        private final Map<Long, OpenLoan> loans = new HashMap<>();
+        
+        // Unpaid penalties of returned loans, in cents
+        private final Map<Long, Long> penalties = new HashMap<>();
+        
+        // Books of borrows that passed the rules and have not completed yet
+        private final List<Long> pendingBooks = new ArrayList<>();
+        
+        // Bumped by every change, so reconciling never overwrites counters newer than it read
+        private long version;
+    }
+    
+    private static class Stripe {
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        
+        // Least recently borrowing patrons first
+        private final LinkedHashMap<Long, Borrower> borrowers;
+        
+        // Loan events applied to any patron of the stripe, tracked or not
+        private long changes;
+        
+        Stripe(int maxBorrowers) {
+            borrowers = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Borrower> eldest) {
+                    return size() > maxBorrowers;
+                }
+            };
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package nojf.threegirlslibrary.service;
 
+import nojf.threegirlslibrary.config.PenaltyProperties;
 import nojf.threegirlslibrary.dto.LoanRequest;
 import nojf.threegirlslibrary.entity.Book;
 import nojf.threegirlslibrary.entity.Loan;
 import nojf.threegirlslibrary.entity.Penalty;
 import nojf.threegirlslibrary.entity.User;
+import nojf.threegirlslibrary.event.FlightEvents;
+import nojf.threegirlslibrary.event.LoanEvent;
 import nojf.threegirlslibrary.exception.BadRequestException;
 import nojf.threegirlslibrary.exception.ResourceNotFoundException;
 import nojf.threegirlslibrary.repository.LoanRepository;
 import nojf.threegirlslibrary.repository.PenaltyRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,9 +30,9 @@ public class LoanService {
     private final PenaltyRepository penaltyRepository;
     private final UserService userService;
     private final BookService bookService;
-    
-    private static final int LOAN_PERIOD_DAYS = 14;
-    private static final BigDecimal LATE_FEE_PER_DAY = new BigDecimal("1.00");
+    private final ApplicationEventPublisher eventPublisher;
+    private final PenaltyProperties penaltyProperties;
+    private final LoanPolicyService loanPolicyService;
     
     @Transactional(readOnly = true)
     public List<Loan> getAllLoans() {
@@ -58,6 +62,20 @@ public class LoanService {
     
     @Transactional
     public Loan borrowBook(Long userId, LoanRequest request) {
+        FlightEvents.Borrow event = new FlightEvents.Borrow();
+        event.begin();
+        try {
+            Loan loan = borrow(userId, request);
+            event.succeeded = true;
+            return loan;
+        } finally {
+            event.userId = userId;
+            event.bookId = request.getBookId();
+            event.commit();
+        }
+    }
+    
+    private Loan borrow(Long userId, LoanRequest request) {
         User user = userService.getUserById(userId);
         Book book = bookService.getBookById(request.getBookId());
         
@@ -71,27 +89,48 @@ public class LoanService {
             throw new BadRequestException("Book is not available for borrowing");
         }
         
-        // Check if user already has this book borrowed
+        // Duplicate borrow, loan limit and unpaid penalties, from in-memory counters
+        loanPolicyService.checkBorrow(user, book);
+        
+        // Backstop for loans the counters have not seen yet, e.g. made on another instance
         if (loanRepository.existsByUserIdAndBookIdAndStatus(userId, book.getId(), Loan.Status.BORROWED)) {
             throw new BadRequestException("You already have this book borrowed");
         }
         
         // Create loan
+        LocalDateTime now = LocalDateTime.now();
         Loan loan = new Loan();
         loan.setUser(user);
         loan.setBook(book);
-        loan.setBorrowedAt(LocalDateTime.now());
-        loan.setDueDate(LocalDateTime.now().plusDays(LOAN_PERIOD_DAYS));
+        loan.setBorrowedAt(now);
+        loan.setDueDate(loanPolicyService.dueDate(book, now));
         loan.setStatus(Loan.Status.BORROWED);
         
         // Update book availability
         book.borrowBook();
         
-        return loanRepository.save(loan);
+        Loan savedLoan = loanRepository.save(loan);
+        eventPublisher.publishEvent(new LoanEvent(LoanEvent.Type.BORROWED, savedLoan.getId(),
+                                                  userId, book.getId(), book.getAvailableCopies(),
+                                                  savedLoan.getDueDate(), book.getGenre(), 0));
+        return savedLoan;
     }
     
     @Transactional
     public Loan returnBook(Long loanId) {
+        FlightEvents.Return event = new FlightEvents.Return();
+        event.begin();
+        try {
+            Loan loan = giveBack(loanId);
+            event.succeeded = true;
+            return loan;
+        } finally {
+            event.loanId = loanId;
+            event.commit();
+        }
+    }
+    
+    private Loan giveBack(Long loanId) {
         Loan loan = getLoanById(loanId);
         
         // Check if loan is already returned
@@ -108,29 +147,52 @@ public class LoanService {
         book.returnBook();
         
         // Calculate penalty if overdue
+        long penaltyCents = 0;
         if (loan.getReturnedAt().isAfter(loan.getDueDate())) {
-            createPenalty(loan);
+            penaltyCents = createPenalty(loan);
         }
         
-        return loanRepository.save(loan);
+        Loan savedLoan = loanRepository.save(loan);
+        eventPublisher.publishEvent(new LoanEvent(LoanEvent.Type.RETURNED, savedLoan.getId(),
+                                                  loan.getUser().getId(), book.getId(), book.getAvailableCopies(),
+                                                  loan.getDueDate(), book.getGenre(), penaltyCents));
+        return savedLoan;
     }
     
+    // Returns the unpaid penalty of the loan in cents, 0 if there is none or it was waived
     @Transactional
-    protected void createPenalty(Loan loan) {
+    protected long createPenalty(Loan loan) {
         long daysLate = ChronoUnit.DAYS.between(loan.getDueDate(), loan.getReturnedAt());
+        long feeCents = penaltyProperties.scheduleFor(loan.getBook().getGenre()).feeCents(daysLate);
         
-        if (daysLate > 0) {
-            BigDecimal amount = LATE_FEE_PER_DAY.multiply(BigDecimal.valueOf(daysLate));
-            
-            Penalty penalty = new Penalty();
+        // The nightly accrual job may already have opened a penalty while the book was out
+        Penalty penalty = loan.getPenalty();
+        if (penalty != null) {
+            if (penalty.getStatus() == Penalty.Status.UNPAID) {
+                // Nothing owed after all, e.g. the genre's grace days were raised since the job ran;
+                // orphan removal deletes the penalty with the loan save
+                if (feeCents == 0) {
+                    loan.setPenalty(null);
+                    return 0;
+                }
+                penalty.setAmount(BigDecimal.valueOf(feeCents, 2));
+                penalty.setDaysLate((int) daysLate);
+                return feeCents;
+            }
+            return 0;
+        }
+        
+        if (feeCents > 0) {
+            penalty = new Penalty();
             penalty.setUser(loan.getUser());
             penalty.setLoan(loan);
-            penalty.setAmount(amount);
+            penalty.setAmount(BigDecimal.valueOf(feeCents, 2));
             penalty.setDaysLate((int) daysLate);
             penalty.setStatus(Penalty.Status.UNPAID);
             
             penaltyRepository.save(penalty);
         }
+        return feeCents;
     }
     
     @Transactional
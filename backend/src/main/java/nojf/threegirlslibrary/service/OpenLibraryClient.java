@@ -0,0 +1,148 @@
+package nojf.threegirlslibrary.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Client for the Open Library books API; the base URL is configurable so tests can point it at a stub
+@Component
+@Slf4j
+public class OpenLibraryClient {
+    
+    @Value("${library.open-library.base-url:https://openlibrary.org}")
+    private String baseUrl;
+    
+    @Value("${library.open-library.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+    
+    @Value("${library.open-library.read-timeout:PT30S}")
+    private Duration readTimeout;
+    
+    @Value("${library.open-library.max-attempts:4}")
+    private int maxAttempts;
+    
+    // Doubled after every failed attempt, plus up to the same again as jitter
+    @Value("${library.open-library.initial-backoff:PT0.5S}")
+    private Duration initialBackoff;
+    
+    private RestClient restClient;
+    
+    @PostConstruct
+    void init() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        restClient = RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+    
+    // Looks up a batch of ISBNs (without dashes) in one request; unknown ISBNs are absent from the result
+    public Map<String, Metadata> fetch(List<String> isbns) {
+        String bibkeys = isbns.stream().map(isbn -> "ISBN:" + isbn).collect(Collectors.joining(","));
+        Map<String, Object> body = withRetry(() -> restClient.get()
+                .uri(uri -> uri.path("/api/books")
+                        .queryParam("bibkeys", bibkeys)
+                        .queryParam("format", "json")
+                        .queryParam("jscmd", "data")
+                        .build())
+                .retrieve()
+                .body(new ParameterizedTypeReference<Map<String, Object>>() {}));
+        
+        Map<String, Metadata> result = new HashMap<>();
+        if (body == null) {
+            return result;
+        }
+        for (String isbn : isbns) {
+            if (body.get("ISBN:" + isbn) instanceof Map<?, ?> data) {
+                result.put(isbn, new Metadata(description(data), coverImageUrl(data)));
+            }
+        }
+        return result;
+    }
+    
+    private <T> T withRetry(Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RestClientResponseException ex) {
+                int status = ex.getStatusCode().value();
+                if ((status != 429 && status < 500) || attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.debug("Open Library returned {}, retrying (attempt {})", status, attempt);
+            } catch (ResourceAccessException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.debug("Open Library unreachable, retrying (attempt {}): {}", attempt, ex.getMessage());
+            }
+            sleep(attempt);
+        }
+    }
+    
+    private void sleep(int attempt) {
+        long backoff = initialBackoff.toMillis() << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+    
+    // Same precedence as the frontend used: first excerpt, then notes
+    private static String description(Map<?, ?> data) {
+        if (data.get("excerpts") instanceof List<?> excerpts && !excerpts.isEmpty()
+                && excerpts.get(0) instanceof Map<?, ?> excerpt && excerpt.get("text") instanceof String text) {
+            return text;
+        }
+        Object notes = data.get("notes");
+        if (notes instanceof String text) {
+            return text;
+        }
+        if (notes instanceof Map<?, ?> map && map.get("value") instanceof String text) {
+            return text;
+        }
+        return null;
+    }
+    
+    private static String coverImageUrl(Map<?, ?> data) {
+        if (data.get("cover") instanceof Map<?, ?> cover) {
+            for (String size : new String[] { "large", "medium", "small" }) {
+                if (cover.get(size) instanceof String url && url.length() <= 500) {
+                    return url;
+                }
+            }
+        }
+        return null;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Metadata {
+        private final String description;
+        private final String coverImageUrl;
+    }
+}
@@ -0,0 +1,240 @@
+package nojf.threegirlslibrary.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.entity.User;
+import nojf.threegirlslibrary.event.UserEvent;
+import nojf.threegirlslibrary.repository.UserRepository;
+import nojf.threegirlslibrary.util.LongIntHashMap;
+import nojf.threegirlslibrary.util.TrigramIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory substring search over the full name, email and phone of every account, for the
+ * admin patron search. Matches what LIKE '%q%' on each field would return, case-insensitively,
+ * but from a trigram index instead of a table scan.
+ *
+ * Each account is a slot holding its id, role, status and normalized text. Slots are appended
+ * in id order, so results come out oldest account first. Suspending or activating changes the
+ * slot in place; deleting marks it dead. Built in the background on startup; until then
+ * {@link #search} returns null and callers fall back to the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatronSearchIndex {
+    
+    private static final byte DELETED = -1;
+    
+    private final UserRepository userRepository;
+    
+    @Value("${library.patron-search.enabled:true}")
+    private boolean enabled;
+    
+    // Accounts loaded per query while building
+    @Value("${library.patron-search.build-chunk-size:10000}")
+    private int buildChunkSize;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramIndex trigrams = new TrigramIndex();
+    
+    // userId -> slot + 1 (0 = not indexed)
+    private final LongIntHashMap slotByUser = new LongIntHashMap(1024);
+    private long[] userIds = new long[1024];
+    private byte[] roles = new byte[1024];
+    private byte[] statuses = new byte[1024];
+    private String[] texts = new String[1024];
+    private int slots;
+    
+    // Account changes that commit while the initial build runs are applied once it finishes
+    private final List<UserEvent> pendingEvents = new ArrayList<>();
+    private final Object buildLock = new Object();
+    private volatile boolean ready;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "patron-search-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Ids of the accounts whose name, email or phone contains query, optionally filtered by
+     * status and role, or null while the index is not ready. A blank query matches everyone.
+     */
+    public Page<Long> search(String query, User.Status status, User.Role role, Pageable pageable) {
+        if (!ready) {
+            return null;
+        }
+        String q = normalizeQuery(query);
+        long first = pageable.getOffset();
+        int size = pageable.getPageSize();
+        List<Long> content = new ArrayList<>(size);
+        long total = 0;
+        
+        lock.readLock().lock();
+        try {
+            // Queries under three characters have no trigram to narrow by; scanning every slot
+            // is still only a few milliseconds at a million accounts
+            int[] candidates = trigrams.candidates(q);
+            int count = candidates != null ? candidates.length : slots;
+            for (int i = 0; i < count; i++) {
+                int slot = candidates != null ? candidates[i] : i;
+                if (statuses[slot] == DELETED
+                        || (status != null && statuses[slot] != status.ordinal())
+                        || (role != null && roles[slot] != role.ordinal())
+                        || !texts[slot].contains(q)) {
+                    continue;
+                }
+                if (total >= first && content.size() < size) {
+                    content.add(userIds[slot]);
+                }
+                total++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+    
+    @TransactionalEventListener
+    public void onUserEvent(UserEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (buildLock) {
+            if (!ready) {
+                pendingEvents.add(event);
+                return;
+            }
+        }
+        apply(event);
+    }
+    
+    private void build() {
+        long start = System.currentTimeMillis();
+        long afterId = 0;
+        try {
+            List<Object[]> chunk;
+            do {
+                chunk = userRepository.findSearchFieldsAfter(afterId, PageRequest.of(0, buildChunkSize));
+                lock.writeLock().lock();
+                try {
+                    for (Object[] row : chunk) {
+                        index((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                              (User.Role) row[4], (User.Status) row[5]);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!chunk.isEmpty()) {
+                    afterId = (Long) chunk.get(chunk.size() - 1)[0];
+                }
+            } while (chunk.size() == buildChunkSize);
+        } catch (RuntimeException ex) {
+            // Stay not ready, so searches keep going to the database
+            log.error("Could not build patron search index", ex);
+            return;
+        }
+        
+        synchronized (buildLock) {
+            pendingEvents.forEach(this::apply);
+            pendingEvents.clear();
+            ready = true;
+        }
+        log.info("Built patron search index for {} accounts ({} trigrams) in {} ms",
+                 slots, trigrams.size(), System.currentTimeMillis() - start);
+    }
+    
+    private void apply(UserEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == UserEvent.Type.DELETED) {
+                int slot = slotByUser.get(event.getUserId()) - 1;
+                if (slot >= 0) {
+                    statuses[slot] = DELETED;
+                }
+                return;
+            }
+            index(event.getUserId(), event.getFullName(), event.getEmail(), event.getPhone(),
+                  event.getRole(), event.getStatus());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Caller holds the write lock
+    private void index(long userId, String fullName, String email, String phone,
+                       User.Role role, User.Status status) {
+        String text = normalizeText(fullName) + '\n' + normalizeText(email) + '\n' + digits(phone);
+        int slot = slotByUser.get(userId) - 1;
+        if (slot >= 0 && statuses[slot] != DELETED && texts[slot].equals(text)) {
+            roles[slot] = (byte) role.ordinal();
+            statuses[slot] = (byte) status.ordinal();
+            return;
+        }
+        if (slot >= 0) {
+            // Searchable text changed: the old slot's trigrams cannot be removed, so retire it
+            statuses[slot] = DELETED;
+        }
+        
+        if (slots == userIds.length) {
+            int capacity = slots * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            roles = Arrays.copyOf(roles, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        slot = slots++;
+        userIds[slot] = userId;
+        roles[slot] = (byte) role.ordinal();
+        statuses[slot] = (byte) status.ordinal();
+        texts[slot] = text;
+        trigrams.add(slot, text);
+        slotByUser.put(userId, slot + 1);
+    }
+    
+    private static String normalizeText(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+    }
+    
+    // Phone numbers are indexed as digits only, so "555 123" finds "(555) 123-4567"
+    private static String digits(String phone) {
+        return phone == null ? "" : phone.replaceAll("\\D", "");
+    }
+    
+    // What the digits-only phone part of the index is searched with, for the database fallback
+    public static String phoneQuery(String query) {
+        return normalizeQuery(query);
+    }
+    
+    private static String normalizeQuery(String query) {
+        String q = normalizeText(query);
+        if (q.matches("[0-9 ()+./-]*\\d[0-9 ()+./-]*")) {
+            return digits(q);
+        }
+        return q;
+    }
+}
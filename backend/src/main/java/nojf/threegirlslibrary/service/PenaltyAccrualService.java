@@ -0,0 +1,126 @@
+package nojf.threegirlslibrary.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.config.PenaltyProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Nightly job that gives every loan still out past its due date a running penalty. It
+ * creates the penalty or raises its amount to the fee as of now. The whole job is set-based
+ * SQL, one INSERT ... SELECT ... ON DUPLICATE KEY UPDATE per chunk of loan ids, and fee
+ * schedules are inlined as CASE expressions, so no loan or penalty is loaded into the JVM.
+ * Waived penalties are left alone.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PenaltyAccrualService {
+    
+    // DECIMAL(10, 2) limit of penalties.amount, stands in for "no cap"
+    private static final long UNCAPPED_FEE_CENTS = 9_999_999_999L;
+    
+    private static final String OVERDUE_LOANS =
+        "FROM loans WHERE status IN ('BORROWED', 'OVERDUE') AND due_date < ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final PenaltyProperties penaltyProperties;
+    
+    @Scheduled(cron = "${library.penalties.accrual-cron:0 30 1 * * *}")
+    public void scheduledAccrual() {
+        accrueOverdueLoans();
+    }
+    
+    // Returns the JDBC row count of all chunks (MySQL counts inserts once and updates twice)
+    public long accrueOverdueLoans() {
+        long start = System.currentTimeMillis();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) " + OVERDUE_LOANS, Long.class, now);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) " + OVERDUE_LOANS, Long.class, now);
+        if (minId == null) {
+            return 0;
+        }
+        
+        List<String> genres = new ArrayList<>(penaltyProperties.getGenres().keySet());
+        String sql = accrualSql(genres.size());
+        long rows = 0;
+        for (long fromId = minId; fromId <= maxId; fromId += penaltyProperties.getAccrualChunkSize()) {
+            long toId = fromId + penaltyProperties.getAccrualChunkSize();
+            rows += jdbcTemplate.update(sql, accrualParameters(penaltyProperties, genres, now, fromId, toId));
+        }
+        log.info("Penalty accrual over loans {}..{} touched {} rows in {} ms",
+                 minId, maxId, rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+    
+    // Accrual statement for loan ids in [fromId, toId), with one CASE branch per genre schedule.
+    // Public so PenaltyAccrualBenchmark runs exactly the statement the job runs.
+    public static String accrualSql(int genreSchedules) {
+        return "INSERT INTO penalties (user_id, loan_id, amount, days_late, status, created_at, updated_at) " +
+               "SELECT s.user_id, s.loan_id, " +
+               "LEAST((s.days_late - s.grace_days) * s.rate_cents, s.max_cents) / 100, " +
+               "s.days_late, 'UNPAID', ?, ? " +
+               "FROM (" +
+               "SELECT l.user_id, l.id AS loan_id, TIMESTAMPDIFF(DAY, l.due_date, ?) AS days_late, " +
+               caseByGenre(genreSchedules) + " AS rate_cents, " +
+               caseByGenre(genreSchedules) + " AS grace_days, " +
+               caseByGenre(genreSchedules) + " AS max_cents " +
+               "FROM loans l JOIN books b ON b.id = l.book_id " +
+               "WHERE l.status IN ('BORROWED', 'OVERDUE') AND l.due_date < ? AND l.id >= ? AND l.id < ?" +
+               ") s " +
+               "WHERE s.days_late > s.grace_days " +
+               // updated_at goes first: MySQL applies these assignments left to right
+               "ON DUPLICATE KEY UPDATE " +
+               "updated_at = IF(penalties.status = 'UNPAID' AND penalties.amount <> VALUES(amount), " +
+               "VALUES(updated_at), penalties.updated_at), " +
+               "amount = IF(penalties.status = 'UNPAID', VALUES(amount), penalties.amount), " +
+               "days_late = IF(penalties.status = 'UNPAID', VALUES(days_late), penalties.days_late)";
+    }
+    
+    public static Object[] accrualParameters(PenaltyProperties properties, List<String> genres,
+                                             Timestamp now, long fromId, long toId) {
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(now);
+        parameters.add(now);
+        parameters.add(now);
+        addCaseParameters(parameters, properties, genres, PenaltyProperties.FeeSchedule::getDailyRateCents);
+        addCaseParameters(parameters, properties, genres, schedule -> (long) schedule.getGraceDays());
+        addCaseParameters(parameters, properties, genres,
+            schedule -> schedule.getMaxFeeCents() > 0 ? schedule.getMaxFeeCents() : UNCAPPED_FEE_CENTS);
+        parameters.add(now);
+        parameters.add(fromId);
+        parameters.add(toId);
+        return parameters.toArray();
+    }
+    
+    private static String caseByGenre(int genreSchedules) {
+        if (genreSchedules == 0) {
+            return "?";
+        }
+        StringBuilder sql = new StringBuilder("CASE b.genre");
+        for (int i = 0; i < genreSchedules; i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        return sql.append(" ELSE ? END").toString();
+    }
+    
+    private static void addCaseParameters(List<Object> parameters, PenaltyProperties properties,
+                                          List<String> genres,
+                                          ToLongFunction<PenaltyProperties.FeeSchedule> field) {
+        Map<String, PenaltyProperties.FeeSchedule> schedules = properties.getGenres();
+        for (String genre : genres) {
+            parameters.add(genre);
+            parameters.add(field.applyAsLong(schedules.get(genre)));
+        }
+        parameters.add(field.applyAsLong(properties.getDefaultSchedule()));
+    }
+}
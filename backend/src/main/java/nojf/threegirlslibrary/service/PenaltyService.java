@@ -1,13 +1,19 @@
 package nojf.threegirlslibrary.service;
 
+import nojf.threegirlslibrary.config.PenaltyProperties;
 import nojf.threegirlslibrary.entity.Penalty;
+import nojf.threegirlslibrary.event.PenaltyEvent;
 import nojf.threegirlslibrary.exception.ResourceNotFoundException;
+import nojf.threegirlslibrary.repository.LoanRepository;
 import nojf.threegirlslibrary.repository.PenaltyRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
@@ -15,6 +21,9 @@ import java.util.List;
 public class PenaltyService {
     
     private final PenaltyRepository penaltyRepository;
+    private final LoanRepository loanRepository;
+    private final PenaltyProperties penaltyProperties;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional(readOnly = true)
     public List<Penalty> getAllPenalties() {
@@ -39,14 +48,27 @@ public class PenaltyService {
     
     @Transactional(readOnly = true)
     public BigDecimal getTotalUnpaidPenalties(Long userId) {
-        BigDecimal total = penaltyRepository.getTotalUnpaidPenaltiesByUserId(userId);
-        return total != null ? total : BigDecimal.ZERO;
+        BigDecimal settled = penaltyRepository.getTotalUnpaidPenaltiesOfReturnedLoans(userId);
+        
+        // Books still out keep accruing between nightly runs, so price them as of now
+        LocalDateTime now = LocalDateTime.now();
+        long accruingCents = 0;
+        for (Object[] loan : loanRepository.findAccruingLoans(userId, now)) {
+            long daysLate = ChronoUnit.DAYS.between((LocalDateTime) loan[0], now);
+            accruingCents += penaltyProperties.scheduleFor((String) loan[1]).feeCents(daysLate);
+        }
+        
+        BigDecimal total = settled != null ? settled : BigDecimal.ZERO;
+        return total.add(BigDecimal.valueOf(accruingCents, 2));
     }
     
     @Transactional
     public Penalty waivePenalty(Long id) {
         Penalty penalty = getPenaltyById(id);
         penalty.setStatus(Penalty.Status.WAIVED);
-        return penaltyRepository.save(penalty);
+        Penalty savedPenalty = penaltyRepository.save(penalty);
+        eventPublisher.publishEvent(new PenaltyEvent(PenaltyEvent.Type.WAIVED, savedPenalty.getId(),
+                                                     savedPenalty.getUser().getId()));
+        return savedPenalty;
     }
 }
\ No newline at end of file
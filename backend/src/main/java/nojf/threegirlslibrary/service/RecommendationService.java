@@ -0,0 +1,240 @@
+package nojf.threegirlslibrary.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.dto.RelatedBookResponse;
+import nojf.threegirlslibrary.event.LoanEvent;
+import nojf.threegirlslibrary.repository.LoanRepository;
+import nojf.threegirlslibrary.util.LongIntHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * "Patrons who borrowed this also borrowed": a sparse book-to-book co-occurrence matrix built
+ * from loan history. Each row is a primitive map guarded by its own lock; lookups never hit
+ * the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationService {
+    
+    private final LoanRepository loanRepository;
+    
+    // Users per leaf task of the startup build
+    @Value("${library.recommendations.partition-size:5000}")
+    private int partitionSize;
+    
+    // Leaf tasks each hold a database connection, so keep this below the Hikari pool size
+    @Value("${library.recommendations.build-parallelism:4}")
+    private int buildParallelism;
+    
+    // Heavy borrowers only contribute their first N distinct books, to bound the quadratic pairing cost
+    @Value("${library.recommendations.max-history-per-user:500}")
+    private int maxHistoryPerUser;
+    
+    // bookId -> (other bookId -> number of patrons who borrowed both)
+    private final ConcurrentHashMap<Long, LongIntHashMap> coOccurrence = new ConcurrentHashMap<>();
+    
+    // bookId -> number of distinct patrons who borrowed it
+    private final LongIntHashMap borrowers = new LongIntHashMap(1024);
+    
+    // userId -> distinct books borrowed (value unused)
+    private final ConcurrentHashMap<Long, LongIntHashMap> userHistory = new ConcurrentHashMap<>();
+    
+    // Borrows that commit while the initial build runs are applied once it finishes
+    private final List<long[]> pendingBorrows = new ArrayList<>();
+    private final Object buildLock = new Object();
+    private volatile boolean ready;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread builder = new Thread(this::build, "recommendation-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public List<RelatedBookResponse> getRelatedBooks(Long bookId, int limit) {
+        LongIntHashMap row = coOccurrence.get(bookId);
+        if (row == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        
+        int own;
+        synchronized (borrowers) {
+            own = Math.max(1, borrowers.get(bookId));
+        }
+        
+        // Min-heap of the best K candidates by cosine similarity
+        PriorityQueue<RelatedBookResponse> top = new PriorityQueue<>(
+            (a, b) -> Double.compare(a.getScore(), b.getScore()));
+        synchronized (row) {
+            row.forEach((otherId, count) -> {
+                int other;
+                synchronized (borrowers) {
+                    other = Math.max(1, borrowers.get(otherId));
+                }
+                double score = count / Math.sqrt((double) own * other);
+                if (top.size() < limit) {
+                    top.add(new RelatedBookResponse(otherId, count, score));
+                } else if (score > top.peek().getScore()) {
+                    top.poll();
+                    top.add(new RelatedBookResponse(otherId, count, score));
+                }
+            });
+        }
+        
+        List<RelatedBookResponse> result = new ArrayList<>(top);
+        result.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return result;
+    }
+    
+    @TransactionalEventListener
+    public void onLoanEvent(LoanEvent event) {
+        if (event.getType() != LoanEvent.Type.BORROWED) {
+            return;
+        }
+        synchronized (buildLock) {
+            if (!ready) {
+                pendingBorrows.add(new long[] { event.getUserId(), event.getBookId() });
+                return;
+            }
+        }
+        recordBorrow(event.getUserId(), event.getBookId());
+    }
+    
+    private void build() {
+        long start = System.currentTimeMillis();
+        Long minUserId = null;
+        Long maxUserId = null;
+        try {
+            minUserId = loanRepository.findMinUserId();
+            maxUserId = loanRepository.findMaxUserId();
+        } catch (RuntimeException ex) {
+            log.error("Could not load loan history for recommendations", ex);
+        }
+        
+        if (minUserId != null) {
+            ForkJoinPool pool = new ForkJoinPool(buildParallelism);
+            try {
+                pool.invoke(new PartitionTask(minUserId, maxUserId + 1));
+            } catch (RuntimeException ex) {
+                // Serve whatever was counted rather than nothing; new borrows keep filling it in
+                log.error("Recommendation matrix build failed, serving a partial matrix", ex);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        
+        synchronized (buildLock) {
+            for (long[] borrow : pendingBorrows) {
+                recordBorrow(borrow[0], borrow[1]);
+            }
+            pendingBorrows.clear();
+            ready = true;
+        }
+        log.info("Built recommendation matrix for {} books from {} patrons in {} ms",
+                 coOccurrence.size(), userHistory.size(), System.currentTimeMillis() - start);
+    }
+    
+    private void recordBorrow(long userId, long bookId) {
+        LongIntHashMap history = userHistory.computeIfAbsent(userId, k -> new LongIntHashMap());
+        long[] previous;
+        synchronized (history) {
+            if (history.containsKey(bookId) || history.size() >= maxHistoryPerUser) {
+                return;
+            }
+            previous = history.keys();
+            history.put(bookId, 1);
+        }
+        
+        synchronized (borrowers) {
+            borrowers.addTo(bookId, 1);
+        }
+        LongIntHashMap row = coOccurrence.computeIfAbsent(bookId, k -> new LongIntHashMap());
+        synchronized (row) {
+            for (long other : previous) {
+                row.addTo(other, 1);
+            }
+        }
+        for (long other : previous) {
+            LongIntHashMap otherRow = coOccurrence.computeIfAbsent(other, k -> new LongIntHashMap());
+            synchronized (otherRow) {
+                otherRow.addTo(bookId, 1);
+            }
+        }
+    }
+    
+    // Splits the user id range until it is small enough, then loads and counts one partition
+    private class PartitionTask extends RecursiveAction {
+        
+        private final long fromUserId;
+        private final long toUserId;
+        
+        PartitionTask(long fromUserId, long toUserId) {
+            this.fromUserId = fromUserId;
+            this.toUserId = toUserId;
+        }
+        
+        @Override
+        protected void compute() {
+            if (toUserId - fromUserId > partitionSize) {
+                long middle = fromUserId + (toUserId - fromUserId) / 2;
+                invokeAll(new PartitionTask(fromUserId, middle), new PartitionTask(middle, toUserId));
+                return;
+            }
+            
+            Map<Long, LongIntHashMap> histories = new HashMap<>();
+            for (Object[] pair : loanRepository.findUserBookPairs(fromUserId, toUserId)) {
+                LongIntHashMap history = histories.computeIfAbsent((Long) pair[0], k -> new LongIntHashMap());
+                if (history.size() < maxHistoryPerUser) {
+                    history.put((Long) pair[1], 1);
+                }
+            }
+            
+            // Count locally first so each shared row is locked once per partition, not once per pair
+            Map<Long, LongIntHashMap> localRows = new HashMap<>();
+            LongIntHashMap localBorrowers = new LongIntHashMap();
+            for (LongIntHashMap history : histories.values()) {
+                long[] books = history.keys();
+                for (int i = 0; i < books.length; i++) {
+                    localBorrowers.addTo(books[i], 1);
+                    LongIntHashMap row = localRows.computeIfAbsent(books[i], k -> new LongIntHashMap());
+                    for (int j = 0; j < books.length; j++) {
+                        if (i != j) {
+                            row.addTo(books[j], 1);
+                        }
+                    }
+                }
+            }
+            
+            localRows.forEach((bookId, localRow) -> {
+                LongIntHashMap row = coOccurrence.computeIfAbsent(bookId, k -> new LongIntHashMap());
+                synchronized (row) {
+                    localRow.forEach(row::addTo);
+                }
+            });
+            synchronized (borrowers) {
+                localBorrowers.forEach(borrowers::addTo);
+            }
+            userHistory.putAll(histories);
+        }
+    }
+}
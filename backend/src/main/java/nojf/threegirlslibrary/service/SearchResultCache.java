@@ -0,0 +1,154 @@
+package nojf.threegirlslibrary.service;
+
+import nojf.threegirlslibrary.dto.SearchCacheStats;
+import nojf.threegirlslibrary.event.BookEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Results of GET /books/search as book id lists, in a bounded in-memory LRU map keyed by
+ * normalized keyword, page, size and sort. Entries hold ids, not books, so availability is
+ * always read fresh; only which books match is cached.
+ *
+ * Every entry carries the catalog version it was loaded at. Book writes bump the version after
+ * they commit, which invalidates every entry at once: older entries count as missing and are
+ * replaced on their next lookup or age out of the LRU. A load that started before the bump is
+ * tagged with the old version, so it can never be served as current. The TTL bounds staleness
+ * from writes on other instances, which do not bump this one's version.
+ *
+ * Concurrent misses for the same key are single-flight: the first caller runs the query and
+ * the others wait for its result instead of sending the same query.
+ */
+@Service
+public class SearchResultCache {
+    
+    @Value("${library.search-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${library.search-cache.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${library.search-cache.ttl:PT5M}")
+    private Duration ttl;
+    
+    private final AtomicLong catalogVersion = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    
+    public record Key(String keyword, int page, int size, String sort) {
+    }
+    
+    // One page of matching book ids, in result order, and the total number of matches
+    public record Ids(List<Long> ids, long total) {
+    }
+    
+    public Ids get(Key key, Supplier<Ids> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        
+        long version = catalogVersion.get();
+        long now = System.nanoTime();
+        Entry entry;
+        boolean leader = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || entry.version < version || now - entry.loadedAt > ttl.toNanos()) {
+                entry = new Entry(version, now);
+                entries.put(key, entry);
+                leader = true;
+            }
+        }
+        
+        if (leader) {
+            misses.increment();
+            try {
+                Ids ids = loader.get();
+                entry.result.complete(ids);
+                return ids;
+            } catch (Throwable ex) {
+                // Not cached, the next lookup tries again; waiters get the same failure, errors included
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.result.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+        
+        if (entry.result.isDone()) {
+            hits.increment();
+        } else {
+            coalesced.increment();
+        }
+        try {
+            return entry.result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+    
+    // Any book insert, edit, cover change or delete can change which books match a keyword
+    @TransactionalEventListener
+    public void onBookEvent(BookEvent event) {
+        bumpCatalogVersion();
+    }
+    
+    // For writes that bypass BookService, e.g. descriptions filled in by enrichment (full-text search)
+    public void bumpCatalogVersion() {
+        catalogVersion.incrementAndGet();
+    }
+    
+    public SearchCacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long coalescedCount = coalesced.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + coalescedCount + missCount;
+        // Coalesced lookups did not query the database either, so they count towards the ratio
+        double hitRatio = lookups == 0 ? 0 : (double) (hitCount + coalescedCount) / lookups;
+        return new SearchCacheStats(enabled, catalogVersion.get(), size, hitCount, coalescedCount, missCount,
+                                    hitRatio);
+    }
+    
+    private static class Entry {
+        
+        private final long version;
+        private final long loadedAt;
+        private final CompletableFuture<Ids> result = new CompletableFuture<>();
+        
+        Entry(long version, long loadedAt) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
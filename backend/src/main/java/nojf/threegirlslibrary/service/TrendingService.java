@@ -0,0 +1,274 @@
+package nojf.threegirlslibrary.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import nojf.threegirlslibrary.dto.TrendingBookResponse;
+import nojf.threegirlslibrary.event.LoanEvent;
+import nojf.threegirlslibrary.exception.BadRequestException;
+import nojf.threegirlslibrary.util.CountMinSketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "Popular now": exponentially decayed borrow and view counts per book, kept in a Count-Min
+ * sketch with a bounded set of heavy-hitter candidates per window. Memory does not grow with
+ * the catalog, and the state is snapshotted to disk so a restart picks up where it left off.
+ */
+@Service
+@Slf4j
+public class TrendingService {
+    
+    private static final int SNAPSHOT_MAGIC = 0x54524E44;
+    private static final int SNAPSHOT_VERSION = 1;
+    
+    // Window name -> half-life, so an event one window ago counts half as much as one now
+    private static final Map<String, Duration> WINDOWS = new LinkedHashMap<>();
+    static {
+        WINDOWS.put("hour", Duration.ofHours(1));
+        WINDOWS.put("day", Duration.ofDays(1));
+        WINDOWS.put("week", Duration.ofDays(7));
+    }
+    
+    @Value("${library.trending.sketch-depth:4}")
+    private int sketchDepth;
+    
+    // Power of two; 4 x 4096 doubles is 128 KB per window
+    @Value("${library.trending.sketch-width:4096}")
+    private int sketchWidth;
+    
+    // Heavy-hitter candidates tracked per window, the most /books/trending can return
+    @Value("${library.trending.capacity:100}")
+    private int capacity;
+    
+    @Value("${library.trending.borrow-weight:5}")
+    private double borrowWeight;
+    
+    @Value("${library.trending.view-weight:1}")
+    private double viewWeight;
+    
+    @Value("${library.trending.snapshot-path:data/trending.snapshot}")
+    private String snapshotPath;
+    
+    private final Map<String, Tracker> trackers = new LinkedHashMap<>();
+    
+    @PostConstruct
+    void init() {
+        resetTrackers();
+        loadSnapshot();
+    }
+    
+    public void recordView(Long bookId) {
+        record(bookId, viewWeight);
+    }
+    
+    @TransactionalEventListener
+    public void onLoanEvent(LoanEvent event) {
+        if (event.getType() == LoanEvent.Type.BORROWED) {
+            record(event.getBookId(), borrowWeight);
+        }
+    }
+    
+    public List<TrendingBookResponse> getTrending(String window, int limit) {
+        Tracker tracker = trackers.get(window);
+        if (tracker == null) {
+            throw new BadRequestException("Unknown window '" + window + "', expected one of " + WINDOWS.keySet());
+        }
+        return tracker.top(limit, System.currentTimeMillis());
+    }
+    
+    @Scheduled(fixedDelayString = "${library.trending.snapshot-interval:PT5M}",
+               initialDelayString = "${library.trending.snapshot-interval:PT5M}")
+    public void saveSnapshot() {
+        Path path = Path.of(snapshotPath);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(trackers.size());
+                for (Map.Entry<String, Tracker> entry : trackers.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().writeTo(out);
+                }
+            }
+            // Readers never see a half-written snapshot
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not write trending snapshot to {}", path, ex);
+        }
+    }
+    
+    @PreDestroy
+    void saveOnShutdown() {
+        saveSnapshot();
+    }
+    
+    private void record(Long bookId, double weight) {
+        if (bookId == null || weight <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Tracker tracker : trackers.values()) {
+            tracker.add(bookId, weight, now);
+        }
+    }
+    
+    private void resetTrackers() {
+        trackers.clear();
+        WINDOWS.forEach((name, halfLife) ->
+            trackers.put(name, new Tracker(halfLife, sketchDepth, sketchWidth, capacity)));
+    }
+    
+    private void loadSnapshot() {
+        Path path = Path.of(snapshotPath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unrecognised snapshot format");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                Tracker tracker = trackers.get(name);
+                if (tracker == null) {
+                    throw new IOException("Unknown window " + name);
+                }
+                tracker.readFrom(in);
+            }
+            log.info("Restored trending counters from {}", path);
+        } catch (IOException ex) {
+            // Start empty rather than serve half-restored counters
+            log.warn("Ignoring trending snapshot {}: {}", path, ex.getMessage());
+            resetTrackers();
+        }
+    }
+    
+    // One decayed window. Uses forward decay: new events are weighted up by e^(lambda * age of
+    // the landmark) instead of decaying every counter down, and the whole state is rescaled to
+    // a new landmark before the weights can overflow.
+    private static class Tracker {
+        
+        private static final double RESCALE_EXPONENT = 30;
+        
+        private final double lambda;
+        private final CountMinSketch sketch;
+        private final int capacity;
+        private final Map<Long, Double> candidates = new HashMap<>();
+        private long landmark = System.currentTimeMillis();
+        // Never above the smallest candidate value, so most non-candidates are rejected without a scan
+        private double candidateFloor;
+        
+        Tracker(Duration halfLife, int depth, int width, int capacity) {
+            this.lambda = Math.log(2) / halfLife.toMillis();
+            this.sketch = new CountMinSketch(depth, width);
+            this.capacity = capacity;
+        }
+        
+        synchronized void add(long bookId, double weight, long now) {
+            double exponent = lambda * (now - landmark);
+            if (exponent > RESCALE_EXPONENT) {
+                rescale(now);
+                exponent = 0;
+            }
+            double value = sketch.add(bookId, weight * Math.exp(exponent));
+            
+            if (candidates.containsKey(bookId)) {
+                candidates.put(bookId, value);
+                return;
+            }
+            if (candidates.size() < capacity) {
+                candidateFloor = candidates.isEmpty() ? value : Math.min(candidateFloor, value);
+                candidates.put(bookId, value);
+                return;
+            }
+            if (value <= candidateFloor) {
+                return;
+            }
+            
+            // Candidate values only grow, so the floor may be stale; find the real minimum
+            long minId = 0;
+            double min = Double.MAX_VALUE;
+            for (Map.Entry<Long, Double> entry : candidates.entrySet()) {
+                if (entry.getValue() < min) {
+                    min = entry.getValue();
+                    minId = entry.getKey();
+                }
+            }
+            candidateFloor = min;
+            if (value > min) {
+                candidates.remove(minId);
+                candidates.put(bookId, value);
+            }
+        }
+        
+        synchronized List<TrendingBookResponse> top(int limit, long now) {
+            double decay = Math.exp(-lambda * (now - landmark));
+            List<Map.Entry<Long, Double>> entries = new ArrayList<>(candidates.entrySet());
+            entries.sort(Map.Entry.<Long, Double>comparingByValue().reversed());
+            
+            List<TrendingBookResponse> result = new ArrayList<>(Math.min(limit, entries.size()));
+            for (int i = 0; i < entries.size() && i < limit; i++) {
+                Map.Entry<Long, Double> entry = entries.get(i);
+                double score = Math.round(entry.getValue() * decay * 100) / 100.0;
+                result.add(new TrendingBookResponse(entry.getKey(), score));
+            }
+            return result;
+        }
+        
+        synchronized void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(landmark);
+            sketch.writeTo(out);
+            out.writeInt(candidates.size());
+            for (Map.Entry<Long, Double> entry : candidates.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+        }
+        
+        synchronized void readFrom(DataInputStream in) throws IOException {
+            landmark = in.readLong();
+            sketch.readFrom(in);
+            candidates.clear();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                candidates.put(in.readLong(), in.readDouble());
+            }
+            // Keep only the strongest candidates if capacity was lowered since the snapshot
+            while (candidates.size() > capacity) {
+                candidates.values().remove(candidates.values().stream().min(Double::compare).orElseThrow());
+            }
+            candidateFloor = candidates.values().stream().min(Double::compare).orElse(0.0);
+        }
+        
+        private void rescale(long now) {
+            double factor = Math.exp(-lambda * (now - landmark));
+            sketch.scale(factor);
+            candidates.replaceAll((id, value) -> value * factor);
+            candidateFloor *= factor;
+            landmark = now;
+        }
+    }
+}
@@ -1,19 +1,37 @@
 package nojf.threegirlslibrary.service;
 
 import nojf.threegirlslibrary.entity.User;
+import nojf.threegirlslibrary.event.UserEvent;
+import nojf.threegirlslibrary.exception.BadRequestException;
 import nojf.threegirlslibrary.exception.ResourceNotFoundException;
 import nojf.threegirlslibrary.repository.UserRepository;
+import nojf.threegirlslibrary.util.BatchLoader;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     
+    private static final int MAX_IDS_PER_REQUEST = 100;
+    
     private final UserRepository userRepository;
+    private final LoanArchiveService loanArchiveService;
+    private final BatchLoader<Long, User> userLoader;
+    private final PatronSearchIndex patronSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional(readOnly = true)
     public List<User> getAllUsers() {
@@ -26,6 +44,42 @@ public class UserService {
             .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
     }
     
+    // Read-only lookup for GET /users/{id}: concurrent requests share one IN query (see BatchingConfig).
+    // The user is detached, so use getUserById when it is going to be changed.
+    public User loadUserById(Long id) {
+        User user = userLoader.get(id);
+        if (user == null) {
+            throw new ResourceNotFoundException("User", "id", id);
+        }
+        return user;
+    }
+    
+    // In the order requested; unknown ids are left out
+    @Transactional(readOnly = true)
+    public List<User> getUsersByIds(List<Long> ids) {
+        if (ids.size() > MAX_IDS_PER_REQUEST) {
+            throw new BadRequestException("At most " + MAX_IDS_PER_REQUEST + " ids per request");
+        }
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(ids).forEach(user -> users.put(user.getId(), user));
+        return ids.stream().distinct().map(users::get).filter(Objects::nonNull).toList();
+    }
+    
+    // Name, email or phone containing query; served from PatronSearchIndex once it is built
+    @Transactional(readOnly = true)
+    public Page<User> searchUsers(String query, User.Status status, User.Role role, Pageable pageable) {
+        Page<Long> ids = patronSearchIndex.search(query, status, role, pageable);
+        if (ids == null) {
+            Pageable byId = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"));
+            String trimmed = query == null ? "" : query.trim();
+            return userRepository.searchUsers(trimmed, PatronSearchIndex.phoneQuery(trimmed), status, role, byId);
+        }
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(ids.getContent()).forEach(user -> users.put(user.getId(), user));
+        List<User> content = ids.getContent().stream().map(users::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
+    }
+    
     @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
@@ -41,19 +95,25 @@ public class UserService {
     public User suspendUser(Long id) {
         User user = getUserById(id);
         user.setStatus(User.Status.SUSPENDED);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.UPDATED, savedUser));
+        return savedUser;
     }
     
     @Transactional
     public User activateUser(Long id) {
         User user = getUserById(id);
         user.setStatus(User.Status.ACTIVE);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.UPDATED, savedUser));
+        return savedUser;
     }
     
     @Transactional
     public void deleteUser(Long id) {
         User user = getUserById(id);
         userRepository.delete(user);
+        loanArchiveService.deleteHistoryOfUser(id);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.DELETED, user));
     }
 }
\ No newline at end of file
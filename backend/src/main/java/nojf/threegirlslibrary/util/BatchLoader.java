@@ -0,0 +1,117 @@
+package nojf.threegirlslibrary.util;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-key lookups from concurrent callers into batched lookups, in the style of
+ * DataLoader. The first key of a batch opens a window; every key requested until the window
+ * closes (or the batch is full) is loaded with one call of the batch function, e.g. one
+ * findAllById. Callers asking for the same key in the same window share the result.
+ *
+ * A zero window turns batching off: every load calls the batch function with one key on the
+ * calling thread.
+ */
+public class BatchLoader<K, V> {
+    
+    private final Function<Iterable<K>, Map<K, V>> batchFunction;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService executor;
+    
+    // Keys of the batch currently collecting; guarded by this
+    private Map<K, CompletableFuture<V>> batch;
+    
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    
+    public BatchLoader(Function<Iterable<K>, Map<K, V>> batchFunction, Duration window, int maxBatchSize,
+                       ScheduledExecutorService executor) {
+        this.batchFunction = batchFunction;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.executor = executor;
+    }
+    
+    // Completes with null when the batch function returned nothing for the key
+    public CompletableFuture<V> load(K key) {
+        loads.incrementAndGet();
+        if (windowNanos <= 0) {
+            batches.incrementAndGet();
+            try {
+                return CompletableFuture.completedFuture(batchFunction.apply(Collections.singleton(key)).get(key));
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        
+        CompletableFuture<V> future;
+        Map<K, CompletableFuture<V>> full = null;
+        synchronized (this) {
+            if (batch == null) {
+                Map<K, CompletableFuture<V>> opened = new HashMap<>();
+                batch = opened;
+                executor.schedule(() -> dispatchIfCurrent(opened), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            future = batch.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                batch = null;
+            }
+        }
+        if (full != null) {
+            Map<K, CompletableFuture<V>> ready = full;
+            executor.execute(() -> dispatch(ready));
+        }
+        return future;
+    }
+    
+    // Blocking load for request threads; failures of the batch are rethrown as they were thrown
+    public V get(K key) {
+        try {
+            return load(key).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+    
+    public long getLoadCount() {
+        return loads.get();
+    }
+    
+    public long getBatchCount() {
+        return batches.get();
+    }
+    
+    // The window closed; the batch may already have been dispatched because it filled up
+    private void dispatchIfCurrent(Map<K, CompletableFuture<V>> scheduled) {
+        synchronized (this) {
+            if (batch != scheduled) {
+                return;
+            }
+            batch = null;
+        }
+        dispatch(scheduled);
+    }
+    
+    private void dispatch(Map<K, CompletableFuture<V>> futures) {
+        batches.incrementAndGet();
+        try {
+            Map<K, V> values = batchFunction.apply(futures.keySet());
+            futures.forEach((key, future) -> future.complete(values.get(key)));
+        } catch (RuntimeException ex) {
+            futures.values().forEach(future -> future.completeExceptionally(ex));
+        }
+    }
+}
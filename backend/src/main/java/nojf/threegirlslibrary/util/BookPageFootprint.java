@@ -0,0 +1,138 @@
+package nojf.threegirlslibrary.util;
+
+import nojf.threegirlslibrary.repository.BookRepository;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to compare what a page of the book list costs with every column of books (what
+ * GET /books read before it returned BookSummary) against the summary columns only.
+ *
+ * For each variant it reads the same pages, sorted by title like GET /books, and reports per page:
+ *    bytes read    bytes the server sent for the page (MySQL session status Bytes_sent)
+ *    heap          bytes allocated while reading the page into row arrays (thread allocation
+ *                  counter), close to what the rows take on the heap before they are mapped
+ *    time          average time per page
+ *
+ * Run it against a database filled by DatasetGenerator, which writes a description for every book.
+ *
+ * Usage:
+ *    java BookPageFootprint --pages 200 --size 100
+ *
+ * Options (defaults in brackets):
+ *    --url        JDBC url [jdbc:mysql://localhost:3306/three_girls_library]
+ *    --user       database user [root]
+ *    --password   database password []
+ *    --pages      pages to read per variant [200]
+ *    --size       books per page [100]
+ *    --warmup     pages to read first, not counted [20]
+ */
+public class BookPageFootprint {
+    
+    private static final String ALL_COLUMNS = "*";
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        
+        String url = options.getOrDefault("url",
+            "jdbc:mysql://localhost:3306/three_girls_library?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true");
+        String dbUser = options.getOrDefault("user", "root");
+        String dbPassword = options.getOrDefault("password", "");
+        int pages = Integer.parseInt(options.getOrDefault("pages", "200"));
+        int size = Integer.parseInt(options.getOrDefault("size", "100"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+        
+        try (Connection connection = DriverManager.getConnection(url, dbUser, dbPassword)) {
+            int total = count(connection);
+            if (total == 0) {
+                throw new IllegalStateException("No books, run DatasetGenerator first");
+            }
+            System.out.printf("%-16s %14s %14s %10s%n", "columns", "bytes read", "heap", "time");
+            for (String columns : List.of(ALL_COLUMNS, BookRepository.SUMMARY_COLUMNS)) {
+                readPages(connection, columns, warmup, size, total);
+                
+                long bytesBefore = bytesSent(connection);
+                long heapBefore = allocatedBytes();
+                long start = System.nanoTime();
+                readPages(connection, columns, pages, size, total);
+                long nanos = System.nanoTime() - start;
+                long heap = allocatedBytes() - heapBefore;
+                // Minus the SHOW STATUS result itself, which is the same size every time
+                long bytes = bytesSent(connection) - bytesBefore - statusSize(connection);
+                
+                System.out.printf("%-16s %11.1f KB %11.1f KB %7.2f ms%n",
+                    columns == ALL_COLUMNS ? "all (entity)" : "summary",
+                    bytes / 1024.0 / pages, heap / 1024.0 / pages, nanos / 1e6 / pages);
+            }
+        }
+    }
+    
+    // Pages wrap around when the table has fewer than pages * size books
+    private static void readPages(Connection connection, String columns, int pages, int size, int total)
+            throws SQLException {
+        String sql = "SELECT " + columns + " FROM books ORDER BY title LIMIT ? OFFSET ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int page = 0; page < pages; page++) {
+                statement.setInt(1, size);
+                statement.setInt(2, (int) ((long) page * size % total));
+                try (ResultSet rs = statement.executeQuery()) {
+                    int width = rs.getMetaData().getColumnCount();
+                    List<Object[]> result = new ArrayList<>(size);
+                    while (rs.next()) {
+                        Object[] row = new Object[width];
+                        for (int i = 0; i < width; i++) {
+                            row[i] = rs.getObject(i + 1);
+                        }
+                        result.add(row);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static long statusSize(Connection connection) throws SQLException {
+        long before = bytesSent(connection);
+        return bytesSent(connection) - before;
+    }
+    
+    private static long bytesSent(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW SESSION STATUS LIKE 'Bytes_sent'")) {
+            rs.next();
+            return rs.getLong(2);
+        }
+    }
+    
+    private static int count(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM books")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+    
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,165 @@
+package nojf.threegirlslibrary.util;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Utility class to compare catalog read throughput of the MVC backend with the reactive
+ * catalog (catalog-reactive module) on the same database.
+ *
+ * Each target gets the same read-only mix (a page of /books, /books/{id}, /books/search,
+ * /books/genres) from a fixed number of requests in flight. Requests are sent asynchronously,
+ * so high concurrency does not need a thread per request on the client side either. Run it
+ * against a database filled by DatasetGenerator, with both servers up.
+ *
+ * Usage:
+ *    java CatalogReadBenchmark --concurrency 64,256,1024 --duration 30
+ *
+ * Options (defaults in brackets):
+ *    --mvc-url       MVC backend base url [http://localhost:8080/api]
+ *    --reactive-url  reactive catalog base url [http://localhost:8081/api]
+ *    --concurrency   comma-separated requests in flight to try [64,256,1024]
+ *    --duration      measured seconds per run [30]
+ *    --warmup        unmeasured warm-up seconds per run [10]
+ *    --books         highest book id used by random lookups [100000]
+ */
+public class CatalogReadBenchmark {
+    
+    private static final String[] SEARCH_TERMS = {
+        "shadow", "river", "garden", "night", "secret", "winter", "harry", "python",
+        "mystery", "history", "johnson", "smith", "lost", "star", "city", "dream"
+    };
+    
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newFixedThreadPool(8))
+            .build();
+    
+    private final int maxBookId;
+    
+    CatalogReadBenchmark(int maxBookId) {
+        this.maxBookId = maxBookId;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Map<String, String> targets = new LinkedHashMap<>();
+        targets.put("mvc", options.getOrDefault("mvc-url", "http://localhost:8080/api"));
+        targets.put("reactive", options.getOrDefault("reactive-url", "http://localhost:8081/api"));
+        int[] concurrencies = Arrays.stream(options.getOrDefault("concurrency", "64,256,1024").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int maxBookId = Integer.parseInt(options.getOrDefault("books", "100000"));
+        
+        CatalogReadBenchmark benchmark = new CatalogReadBenchmark(maxBookId);
+        System.out.printf("%-10s %12s %12s %10s %10s %10s %8s%n",
+                "target", "concurrency", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (int concurrency : concurrencies) {
+            for (Map.Entry<String, String> target : targets.entrySet()) {
+                benchmark.run(target.getValue(), concurrency, warmup, false);
+                Result result = benchmark.run(target.getValue(), concurrency, duration, true);
+                System.out.printf("%-10s %12d %12.0f %10.1f %10.1f %10.1f %8d%n",
+                        target.getKey(), concurrency, result.throughput(), result.percentile(50),
+                        result.percentile(99), result.percentile(100), result.errors);
+            }
+        }
+        System.exit(0);
+    }
+    
+    private Result run(String baseUrl, int concurrency, int seconds, boolean measured) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(nextRequest(baseUrl), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null || response.statusCode() >= 400) {
+                        errors.incrementAndGet();
+                    } else if (measured) {
+                        latencies.add(System.nanoTime() - sent);
+                    }
+                    inFlight.release();
+                });
+        }
+        inFlight.acquire(concurrency);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return new Result(new ArrayList<>(latencies), errors.get(), elapsed);
+    }
+    
+    private HttpRequest nextRequest(String baseUrl) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        String path;
+        if (roll < 40) {
+            path = "/books/" + (1 + random.nextInt(maxBookId));
+        } else if (roll < 70) {
+            path = "/books?page=" + random.nextInt(50) + "&size=20";
+        } else if (roll < 95) {
+            path = "/books/search?keyword=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)] + "&size=20";
+        } else {
+            path = "/books/genres";
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+    
+    private static class Result {
+        
+        private final long[] latencies;
+        private final long errors;
+        private final double seconds;
+        
+        Result(List<Long> latencies, long errors, double seconds) {
+            this.latencies = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            this.errors = errors;
+            this.seconds = seconds;
+        }
+        
+        double throughput() {
+            return latencies.length / seconds;
+        }
+        
+        double percentile(int p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = Math.min(latencies.length - 1, (int) Math.ceil(p / 100.0 * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,223 @@
+package nojf.threegirlslibrary.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the in-memory catalog, read back with FileChannel.map so a restarting
+ * node does not have to scan the books table. Records are fixed width, so record i is at a
+ * known offset; strings live in a pool after the records and are only decoded when asked for.
+ *
+ * Layout (big-endian):
+ *    header   magic "TGLC", format int, catalogVersion long, createdAt long (epoch millis),
+ *             records int, poolOffset long                                    (36 bytes)
+ *    records  bookId long, publishedYear int (MIN_VALUE = none), availableCopies int,
+ *             genre int, text int                                             (24 bytes each)
+ *    pool     strings as [length int][UTF-8 bytes]; genre and text are offsets into the pool,
+ *             -1 = null. Repeated genres are stored once.
+ *
+ * catalogVersion is the book_changes version the snapshot is known to include; changes after
+ * it have to be replayed on top.
+ */
+public class CatalogSnapshot {
+    
+    private static final int MAGIC = 0x54474C43; // "TGLC"
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 36;
+    private static final int RECORD_SIZE = 24;
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+    
+    private final MappedByteBuffer buffer;
+    private final long catalogVersion;
+    private final long createdAt;
+    private final int size;
+    private final int poolOffset;
+    
+    private CatalogSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            throw new IllegalArgumentException("Not a catalog snapshot (format " + FORMAT + ")");
+        }
+        this.catalogVersion = buffer.getLong(8);
+        this.createdAt = buffer.getLong(16);
+        this.size = buffer.getInt(24);
+        long pool = buffer.getLong(28);
+        if (pool != HEADER_SIZE + (long) size * RECORD_SIZE || pool > buffer.limit()) {
+            throw new IllegalArgumentException("Truncated catalog snapshot");
+        }
+        this.poolOffset = (int) pool;
+    }
+    
+    // The mapping stays valid after the channel is closed and is released when unreachable
+    public static CatalogSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Catalog snapshot larger than 2 GB");
+            }
+            return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+    
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public long bookId(int record) {
+        return buffer.getLong(offset(record));
+    }
+    
+    public Integer publishedYear(int record) {
+        int year = buffer.getInt(offset(record) + 8);
+        return year == NO_YEAR ? null : year;
+    }
+    
+    public int availableCopies(int record) {
+        return buffer.getInt(offset(record) + 12);
+    }
+    
+    public String genre(int record) {
+        return string(buffer.getInt(offset(record) + 16));
+    }
+    
+    public String text(int record) {
+        return string(buffer.getInt(offset(record) + 20));
+    }
+    
+    private int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+    
+    private String string(int ref) {
+        if (ref < 0) {
+            return null;
+        }
+        int at = poolOffset + ref;
+        byte[] bytes = new byte[buffer.getInt(at)];
+        buffer.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Streams records and pool into two temporary files and joins them behind the header on
+     * {@link #finish}, so writing a large catalog needs no more memory than the genre table.
+     * The snapshot replaces the target file atomically; readers never see a partial one.
+     */
+    public static class Writer implements Closeable {
+        
+        private final Path file;
+        private final long catalogVersion;
+        private final Path recordsFile;
+        private final Path poolFile;
+        private final DataOutputStream records;
+        private final DataOutputStream pool;
+        private final Map<String, Integer> genreRefs = new HashMap<>();
+        private long poolSize;
+        private int size;
+        
+        public Writer(Path file, long catalogVersion) throws IOException {
+            this.file = file;
+            this.catalogVersion = catalogVersion;
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            this.recordsFile = Files.createTempFile(directory, "catalog", ".records");
+            this.poolFile = Files.createTempFile(directory, "catalog", ".pool");
+            this.records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsFile), 1 << 16));
+            this.pool = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(poolFile), 1 << 16));
+        }
+        
+        public void add(long bookId, Integer publishedYear, int availableCopies, String genre, String text)
+                throws IOException {
+            Integer genreRef = genre == null ? Integer.valueOf(-1) : genreRefs.get(genre);
+            if (genreRef == null) {
+                genreRef = append(genre);
+                genreRefs.put(genre, genreRef);
+            }
+            int textRef = text == null ? -1 : append(text);
+            
+            records.writeLong(bookId);
+            records.writeInt(publishedYear == null ? NO_YEAR : publishedYear);
+            records.writeInt(availableCopies);
+            records.writeInt(genreRef);
+            records.writeInt(textRef);
+            size++;
+        }
+        
+        public void finish() throws IOException {
+            records.close();
+            pool.close();
+            Path assembled = Files.createTempFile(file.toAbsolutePath().getParent(), "catalog", ".snapshot");
+            try {
+                assemble(assembled);
+                Files.move(assembled, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(assembled);
+                close();
+            }
+        }
+        
+        private void assemble(Path assembled) throws IOException {
+            try (FileChannel out = FileChannel.open(assembled, StandardOpenOption.WRITE);
+                 FileChannel recordsIn = FileChannel.open(recordsFile, StandardOpenOption.READ);
+                 FileChannel poolIn = FileChannel.open(poolFile, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT).putLong(catalogVersion).putLong(System.currentTimeMillis())
+                      .putInt(size).putLong(HEADER_SIZE + (long) size * RECORD_SIZE).flip();
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                transfer(recordsIn, out);
+                transfer(poolIn, out);
+                out.force(true);
+            }
+        }
+        
+        // Removes the temporary files; the previous snapshot stays in place if finish was not reached
+        @Override
+        public void close() throws IOException {
+            records.close();
+            pool.close();
+            Files.deleteIfExists(recordsFile);
+            Files.deleteIfExists(poolFile);
+        }
+        
+        private int append(String value) throws IOException {
+            if (poolSize > Integer.MAX_VALUE - 4 - value.length() * 3L) {
+                throw new IOException("Catalog snapshot string pool exceeds 2 GB");
+            }
+            int ref = (int) poolSize;
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            pool.writeInt(bytes.length);
+            pool.write(bytes);
+            poolSize += 4 + bytes.length;
+            return ref;
+        }
+        
+        private static void transfer(FileChannel from, FileChannel to) throws IOException {
+            long position = 0;
+            long size = from.size();
+            while (position < size) {
+                position += from.transferTo(position, size - position, to);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package nojf.threegirlslibrary.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Count-Min sketch over long keys with double counters, so it can hold time-weighted counts.
+ * Estimates never undercount; with conservative update they overcount by at most
+ * about total / width with probability 1 - 2^-depth. Not thread-safe.
+ */
+public class CountMinSketch {
+    
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+        0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x85EBCA77C2B2AE63L, 0x27D4EB2F165667C5L
+    };
+    
+    private final int depth;
+    private final int mask;
+    private final double[] counters;
+    
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + SEEDS.length);
+        }
+        if (width < 1 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Width must be a power of two");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counters = new double[depth * width];
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public int getWidth() {
+        return mask + 1;
+    }
+    
+    // Conservative update: only raise the counters that are below the new estimate
+    public double add(long key, double amount) {
+        double estimate = estimate(key) + amount;
+        for (int row = 0; row < depth; row++) {
+            int i = index(key, row);
+            if (counters[i] < estimate) {
+                counters[i] = estimate;
+            }
+        }
+        return estimate;
+    }
+    
+    public double estimate(long key) {
+        double min = Double.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[index(key, row)]);
+        }
+        return min;
+    }
+    
+    public void scale(double factor) {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] *= factor;
+        }
+    }
+    
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(depth);
+        out.writeInt(getWidth());
+        for (double counter : counters) {
+            out.writeDouble(counter);
+        }
+    }
+    
+    // Reads counters written by writeTo into this sketch, which must have the same dimensions
+    public void readFrom(DataInputStream in) throws IOException {
+        int storedDepth = in.readInt();
+        int storedWidth = in.readInt();
+        if (storedDepth != depth || storedWidth != getWidth()) {
+            throw new IOException("Sketch dimensions changed from " + storedDepth + "x" + storedWidth
+                    + " to " + depth + "x" + getWidth());
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = in.readDouble();
+        }
+    }
+    
+    private int index(long key, int row) {
+        // Independent-enough hash per row: seed the key, then a murmur3-style finalizer
+        long h = key ^ SEEDS[row];
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return row * (mask + 1) + ((int) h & mask);
+    }
+}
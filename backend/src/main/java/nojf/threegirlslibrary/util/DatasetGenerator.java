@@ -0,0 +1,443 @@
+package nojf.threegirlslibrary.util;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Utility class to fill the library database with a large synthetic dataset for load testing.
+ *
+ * Book popularity follows a Zipf distribution (a few titles get most of the loans) and
+ * borrow dates follow a seasonal curve with peaks in summer and around the holidays.
+ * Rows are written with batched inserts and explicit ids, so the generator expects to be
+ * the only writer while it runs.
+ *
+ * All generated patrons use the password 'password123' and emails of the form
+ * loadtest-patron-ID@library.local, ID being their user id, so runs can be repeated on the same
+ * database. The id ranges to hand to LoadDriver are printed at the end.
+ *
+ * Usage:
+ *    java DatasetGenerator --users 100000 --books 1000000 --loans 10000000
+ *
+ * Options (defaults in brackets):
+ *    --url        JDBC url [jdbc:mysql://localhost:3306/three_girls_library?rewriteBatchedStatements=true]
+ *    --user       database user [root]
+ *    --password   database password []
+ *    --users      number of patrons to create [10000]
+ *    --books      number of books to create [100000]
+ *    --loans      number of loans to create [1000000]
+ *    --batch      rows per batch/commit [5000]
+ *    --zipf       Zipf exponent for book popularity [1.07]
+ *    --days       how many days of history to spread loans over [730]
+ *    --seed       random seed [42]
+ */
+public class DatasetGenerator {
+    
+    private static final int LOAN_PERIOD_DAYS = 14;
+    private static final int LATE_FEE_CENTS_PER_DAY = 100;
+    
+    private static final String[] GENRES = {
+        "Fiction", "Mystery", "Science Fiction", "Fantasy", "Romance", "Thriller",
+        "Biography", "History", "Science", "Self-Help", "Children", "Poetry",
+        "Programming", "Philosophy", "Travel", "Cooking"
+    };
+    
+    private static final String[] FIRST_NAMES = {
+        "Alice", "Bob", "Carol", "David", "Emma", "Frank", "Grace", "Henry", "Ivy", "Jack",
+        "Karen", "Liam", "Maya", "Noah", "Olivia", "Paul", "Quinn", "Rosa", "Sam", "Tara"
+    };
+    
+    private static final String[] LAST_NAMES = {
+        "Johnson", "Smith", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+        "Rodriguez", "Martinez", "Lopez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore"
+    };
+    
+    private static final String[] TITLE_WORDS = {
+        "Shadow", "River", "Garden", "Night", "Empire", "Secret", "Winter", "Silent", "Golden",
+        "Last", "Lost", "Broken", "Hidden", "Distant", "Burning", "Glass", "Iron", "Paper",
+        "House", "Road", "Sea", "Star", "Storm", "Kingdom", "Letter", "Song", "City", "Dream"
+    };
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        
+        String url = options.getOrDefault("url",
+            "jdbc:mysql://localhost:3306/three_girls_library?useSSL=false&serverTimezone=UTC" +
+            "&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true");
+        String dbUser = options.getOrDefault("user", "root");
+        String dbPassword = options.getOrDefault("password", "");
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        int books = Integer.parseInt(options.getOrDefault("books", "100000"));
+        long loans = Long.parseLong(options.getOrDefault("loans", "1000000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "5000"));
+        double zipfExponent = Double.parseDouble(options.getOrDefault("zipf", "1.07"));
+        int historyDays = Integer.parseInt(options.getOrDefault("days", "730"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        
+        SplittableRandom random = new SplittableRandom(seed);
+        
+        try (Connection connection = DriverManager.getConnection(url, dbUser, dbPassword)) {
+            connection.setAutoCommit(false);
+            
+            long firstUserId = nextId(connection, "users");
+            long firstBookId = nextId(connection, "books");
+            long firstLoanId = nextId(connection, "loans");
+            long firstPenaltyId = nextId(connection, "penalties");
+            
+            long start = System.nanoTime();
+            generateUsers(connection, firstUserId, users, batchSize, random);
+            report("users", users, start);
+            
+            start = System.nanoTime();
+            generateBooks(connection, firstBookId, books, batchSize, zipfExponent, random);
+            report("books", books, start);
+            
+            start = System.nanoTime();
+            long penalties = generateLoans(connection, firstUserId, users, firstBookId, books,
+                firstLoanId, loans, firstPenaltyId, batchSize, zipfExponent, historyDays, random);
+            report("loans", loans, start);
+            System.out.println("Penalties created: " + penalties);
+            
+            start = System.nanoTime();
+            reconcileAvailability(connection, firstBookId);
+            report("availability fix-up", books, start);
+            
+            System.out.printf("LoadDriver options for this dataset: --first-patron %d --patrons %d " +
+                              "--first-book %d --books %d%n", firstUserId, users, firstBookId, books);
+        }
+    }
+    
+    private static void generateUsers(Connection connection, long firstId, int count,
+                                      int batchSize, SplittableRandom random) throws SQLException {
+        // BCrypt is deliberately slow, so hash once and reuse it for every generated patron
+        String passwordHash = new BCryptPasswordEncoder().encode("password123");
+        String sql = "INSERT INTO users (id, full_name, email, phone, password_hash, role, status) " +
+                     "VALUES (?, ?, ?, ?, ?, 'PATRON', ?)";
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                statement.setLong(1, firstId + i);
+                statement.setString(2, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " +
+                                       LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+                statement.setString(3, patronEmail(firstId + i));
+                statement.setString(4, String.format("555-%07d", i % 10_000_000));
+                statement.setString(5, passwordHash);
+                statement.setString(6, random.nextInt(100) < 2 ? "SUSPENDED" : "ACTIVE");
+                statement.addBatch();
+                
+                if ((i + 1) % batchSize == 0) {
+                    flush(connection, statement);
+                }
+            }
+            flush(connection, statement);
+        }
+    }
+    
+    private static void generateBooks(Connection connection, long firstId, int count, int batchSize,
+                                      double zipfExponent, SplittableRandom random) throws SQLException {
+        String sql = "INSERT INTO books (id, title, author, isbn, genre, description, published_year, " +
+                     "total_copies, available_copies) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        RankPermutation permutation = new RankPermutation(count);
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                // Popular titles (low Zipf rank) get more copies, like a real branch would stock them
+                long rank = permutation.rankOf(i) + 1;
+                int copies = Math.max(1, (int) Math.round(20.0 / Math.pow(rank, zipfExponent / 2)));
+                String title = "The " + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " +
+                               TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + (firstId + i);
+                String author = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " +
+                                LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                String genre = GENRES[random.nextInt(GENRES.length)];
+                
+                statement.setLong(1, firstId + i);
+                statement.setString(2, title);
+                statement.setString(3, author);
+                statement.setString(4, String.format("LT-%015d", firstId + i));
+                statement.setString(5, genre);
+                statement.setString(6, "A " + genre.toLowerCase() + " title by " + author + ".");
+                statement.setInt(7, 1900 + random.nextInt(126));
+                statement.setInt(8, copies);
+                statement.setInt(9, copies);
+                statement.addBatch();
+                
+                if ((i + 1) % batchSize == 0) {
+                    flush(connection, statement);
+                }
+            }
+            flush(connection, statement);
+        }
+    }
+    
+    private static long generateLoans(Connection connection, long firstUserId, int users,
+                                      long firstBookId, int books, long firstLoanId, long count,
+                                      long firstPenaltyId, int batchSize, double zipfExponent,
+                                      int historyDays, SplittableRandom random) throws SQLException {
+        String loanSql = "INSERT INTO loans (id, user_id, book_id, borrowed_at, due_date, returned_at, status) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String penaltySql = "INSERT INTO penalties (id, user_id, loan_id, amount, days_late, status) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)";
+        
+        ZipfSampler bookSampler = new ZipfSampler(books, zipfExponent);
+        // Patron activity is skewed too, but much flatter than book popularity
+        ZipfSampler userSampler = new ZipfSampler(users, 0.6);
+        RankPermutation bookPermutation = new RankPermutation(books);
+        RankPermutation userPermutation = new RankPermutation(users);
+        LocalDateTime now = LocalDateTime.now();
+        long penaltyId = firstPenaltyId;
+        
+        try (PreparedStatement loanStatement = connection.prepareStatement(loanSql);
+             PreparedStatement penaltyStatement = connection.prepareStatement(penaltySql)) {
+            for (long i = 0; i < count; i++) {
+                long loanId = firstLoanId + i;
+                long userId = firstUserId + userPermutation.indexOf(userSampler.sample(random) - 1);
+                long bookId = firstBookId + bookPermutation.indexOf(bookSampler.sample(random) - 1);
+                
+                LocalDateTime borrowedAt = now.minusDays(seasonalDaysAgo(historyDays, now, random))
+                                              .minusMinutes(random.nextInt(24 * 60));
+                LocalDateTime dueDate = borrowedAt.plusDays(LOAN_PERIOD_DAYS);
+                LocalDateTime returnedAt = null;
+                String status;
+                
+                if (dueDate.isAfter(now)) {
+                    status = "BORROWED";
+                } else if (random.nextInt(100) < 95) {
+                    // Most patrons return on time; the tail is a week or two late
+                    int keptDays = random.nextInt(100) < 85
+                        ? 1 + random.nextInt(LOAN_PERIOD_DAYS)
+                        : LOAN_PERIOD_DAYS + 1 + random.nextInt(21);
+                    returnedAt = borrowedAt.plusDays(keptDays).plusMinutes(random.nextInt(600));
+                    if (returnedAt.isAfter(now)) {
+                        returnedAt = now;
+                    }
+                    status = "RETURNED";
+                } else {
+                    status = "OVERDUE";
+                }
+                
+                loanStatement.setLong(1, loanId);
+                loanStatement.setLong(2, userId);
+                loanStatement.setLong(3, bookId);
+                loanStatement.setTimestamp(4, Timestamp.valueOf(borrowedAt));
+                loanStatement.setTimestamp(5, Timestamp.valueOf(dueDate));
+                loanStatement.setTimestamp(6, returnedAt != null ? Timestamp.valueOf(returnedAt) : null);
+                loanStatement.setString(7, status);
+                loanStatement.addBatch();
+                
+                if (returnedAt != null && returnedAt.isAfter(dueDate)) {
+                    long daysLate = java.time.temporal.ChronoUnit.DAYS.between(dueDate, returnedAt);
+                    if (daysLate > 0) {
+                        long cents = daysLate * LATE_FEE_CENTS_PER_DAY;
+                        penaltyStatement.setLong(1, penaltyId++);
+                        penaltyStatement.setLong(2, userId);
+                        penaltyStatement.setLong(3, loanId);
+                        penaltyStatement.setBigDecimal(4, java.math.BigDecimal.valueOf(cents, 2));
+                        penaltyStatement.setInt(5, (int) daysLate);
+                        penaltyStatement.setString(6, random.nextInt(100) < 20 ? "WAIVED" : "UNPAID");
+                        penaltyStatement.addBatch();
+                    }
+                }
+                
+                if ((i + 1) % batchSize == 0) {
+                    // Loans must land before the penalties that reference them
+                    loanStatement.executeBatch();
+                    penaltyStatement.executeBatch();
+                    connection.commit();
+                    if ((i + 1) % (batchSize * 100L) == 0) {
+                        System.out.println("  ... " + (i + 1) + " loans");
+                    }
+                }
+            }
+            loanStatement.executeBatch();
+            penaltyStatement.executeBatch();
+            connection.commit();
+        }
+        return penaltyId - firstPenaltyId;
+    }
+    
+    private static void reconcileAvailability(Connection connection, long firstBookId) throws SQLException {
+        // Active generated loans must be backed by copies that are actually checked out
+        String sql = "UPDATE books b JOIN (" +
+                     "  SELECT book_id, COUNT(*) AS active FROM loans " +
+                     "  WHERE status <> 'RETURNED' AND book_id >= ? GROUP BY book_id) a " +
+                     "ON a.book_id = b.id " +
+                     "SET b.available_copies = GREATEST(b.total_copies, a.active) - a.active, " +
+                     "    b.total_copies = GREATEST(b.total_copies, a.active)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, firstBookId);
+            statement.executeUpdate();
+        }
+        connection.commit();
+    }
+    
+    static String patronEmail(long userId) {
+        return "loadtest-patron-" + userId + "@library.local";
+    }
+    
+    // Rejection sampling against a yearly curve peaking in July and late December
+    private static int seasonalDaysAgo(int historyDays, LocalDateTime now, SplittableRandom random) {
+        while (true) {
+            int daysAgo = random.nextInt(historyDays);
+            int dayOfYear = now.minusDays(daysAgo).getDayOfYear();
+            double summer = Math.cos(2 * Math.PI * (dayOfYear - 196) / 365.0);
+            double holidays = Math.cos(2 * Math.PI * (dayOfYear - 355) / 365.0);
+            double weight = 1.0 + 0.35 * Math.max(0, summer) + 0.25 * Math.max(0, holidays);
+            if (random.nextDouble() * 1.6 < weight) {
+                return daysAgo;
+            }
+        }
+    }
+    
+    private static long nextId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    private static void flush(Connection connection, PreparedStatement statement) throws SQLException {
+        statement.executeBatch();
+        connection.commit();
+    }
+    
+    private static void report(String what, long rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("Generated %-20s %,12d rows in %8.1fs (%,.0f rows/s)%n",
+            what, rows, seconds, rows / Math.max(seconds, 1e-9));
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+    
+    /**
+     * Bijection between Zipf ranks and row offsets, so popular rows aren't all clustered at the
+     * start of the id range. Both directions are a multiplication modulo n.
+     */
+    static final class RankPermutation {
+        private final long n;
+        private final long stride;
+        private final long inverse;
+        
+        RankPermutation(long n) {
+            long candidate = 1_000_003L % n;
+            while (n > 1 && gcd(candidate, n) != 1) {
+                candidate = (candidate + 1) % n;
+            }
+            this.n = n;
+            this.stride = n > 1 ? candidate : 0;
+            this.inverse = n > 1 ? modInverse(candidate, n) : 0;
+        }
+        
+        long indexOf(long rank) {
+            return Math.floorMod(rank * stride, n);
+        }
+        
+        long rankOf(long index) {
+            return Math.floorMod(index * inverse, n);
+        }
+        
+        private static long gcd(long a, long b) {
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+        
+        private static long modInverse(long a, long m) {
+            long oldR = a, r = m, oldS = 1, s = 0;
+            while (r != 0) {
+                long q = oldR / r;
+                long t = oldR - q * r;
+                oldR = r;
+                r = t;
+                t = oldS - q * s;
+                oldS = s;
+                s = t;
+            }
+            return Math.floorMod(oldS, m);
+        }
+    }
+    
+    /**
+     * Zipf sampler using rejection-inversion (Hormann and Derflinger), which needs O(1) memory
+     * so it works for tens of millions of elements. Returns ranks in [1, n].
+     */
+    static final class ZipfSampler {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+        
+        ZipfSampler(long n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1.0;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+        }
+        
+        long sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = (long) (x + 0.5);
+                if (k < 1) {
+                    k = 1;
+                } else if (k > n) {
+                    k = n;
+                }
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+        
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1.0 - exponent) * logX) * logX;
+        }
+        
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+        
+        private double hIntegralInverse(double x) {
+            double t = x * (1.0 - exponent);
+            if (t < -1.0) {
+                t = -1.0;
+            }
+            return Math.exp(helper1(t) * x);
+        }
+        
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+        }
+        
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+        }
+    }
+}
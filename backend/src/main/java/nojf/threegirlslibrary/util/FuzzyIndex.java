@@ -0,0 +1,326 @@
+package nojf.threegirlslibrary.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Typo-tolerant word search over short texts such as titles and authors, plus ISBN lookup.
+ *
+ * Texts are split into words (lower-cased, accents removed) and every distinct word is kept
+ * once, with the documents containing it. A query word matches every indexed word within a
+ * small edit distance: 0 for up to three letters, 1 for up to seven, 2 beyond that, where
+ * swapping two adjacent letters counts as one edit ("tolkein" matches "tolkien"). Candidate
+ * words come from a trigram index over the padded words, since a word within k edits of
+ * another still shares all but at most 4k of its trigrams; only those few candidates of about
+ * the right length have their distance computed, with a bounded dynamic program that gives up
+ * as soon as a row exceeds k.
+ *
+ * A document matches when each query word matches one of its words: the documents of the
+ * rarest query word are walked in order and looked up in the sorted lists of the others. Results are ranked
+ * by the sum of edit distances, then document order. Numbers only match exactly. ISBN queries
+ * (ISBN-10 or -13, any dashes) match on the ISBN-13 body instead, see {@link Isbn}.
+ *
+ * Documents must be added in ascending order and are never removed; callers filter dead ones.
+ * Not thread-safe.
+ */
+public class FuzzyIndex {
+    
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<Postings> wordDocs = new ArrayList<>();
+    private final TrigramIndex wordTrigrams = new TrigramIndex();
+    private final Map<String, Postings> isbnDocs = new HashMap<>();
+    
+    public void add(int doc, String text, String isbn) {
+        for (String word : words(text)) {
+            wordDocs.get(wordId(word)).append(doc);
+        }
+        
+        String body = Isbn.body(isbn);
+        if (body != null) {
+            isbnDocs.computeIfAbsent(body, b -> new Postings()).append(doc);
+        }
+    }
+    
+    // Matching documents, best first
+    public int[] search(String query, IntPredicate live) {
+        if (Isbn.looksLikeIsbn(query)) {
+            return searchIsbn(query, live);
+        }
+        List<String> terms = words(query);
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+        
+        List<Map<Integer, Integer>> matches = new ArrayList<>();
+        for (String term : terms) {
+            Map<Integer, Integer> words = matchingWords(term);
+            if (words.isEmpty()) {
+                return new int[0];
+            }
+            matches.add(words);
+        }
+        // Walk the rarest term's documents and look each one up in the others' words
+        matches.sort(Comparator.comparingLong(this::documentCount));
+        TermDocs rarest = termDocs(matches.get(0));
+        List<WordCursor> others = new ArrayList<>();
+        for (int t = 1; t < matches.size(); t++) {
+            others.add(cursor(matches.get(t)));
+        }
+        
+        // Scores are small, so count per score and place instead of sorting; docs arrive in order
+        int[] scores = new int[rarest.size];
+        int[] perScore = new int[1];
+        for (int i = 0; i < rarest.size; i++) {
+            int doc = rarest.docs[i];
+            int score = rarest.distances[i];
+            for (int t = 0; t < others.size() && score >= 0; t++) {
+                int distance = others.get(t).distance(doc);
+                score = distance < 0 ? -1 : score + distance;
+            }
+            if (score >= 0 && !live.test(doc)) {
+                score = -1;
+            }
+            scores[i] = score;
+            if (score >= 0) {
+                if (score >= perScore.length) {
+                    perScore = Arrays.copyOf(perScore, score + 1);
+                }
+                perScore[score]++;
+            }
+        }
+        
+        int[] next = new int[perScore.length];
+        for (int score = 1; score < perScore.length; score++) {
+            next[score] = next[score - 1] + perScore[score - 1];
+        }
+        int[] result = new int[next[perScore.length - 1] + perScore[perScore.length - 1]];
+        for (int i = 0; i < rarest.size; i++) {
+            if (scores[i] >= 0) {
+                result[next[scores[i]]++] = rarest.docs[i];
+            }
+        }
+        return result;
+    }
+    
+    public int wordCount() {
+        return words.size();
+    }
+    
+    // Lower-cased words without accents: "García Márquez" -> [garcia, marquez]
+    public static List<String> words(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                                  .replaceAll("\\p{M}+", "")
+                                  .toLowerCase(Locale.ROOT);
+        Set<String> result = new LinkedHashSet<>();
+        for (String word : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+    
+    // Edits allowed for a query word of this length
+    static int maxDistance(int length) {
+        return length <= 3 ? 0 : length <= 7 ? 1 : 2;
+    }
+    
+    /**
+     * Optimal string alignment distance (Levenshtein plus swaps of adjacent characters), or
+     * max + 1 as soon as it is known to exceed max: every later row of the table is at least
+     * the minimum of the current one.
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+                                     previous[j - 1] + (ca == cb ? 0 : 1));
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+    
+    // Indexed word id -> distance for every word the term may have meant
+    private Map<Integer, Integer> matchingWords(String term) {
+        Map<Integer, Integer> result = new HashMap<>();
+        // Numbers are typed as they are meant, "1984" must not find "1985"
+        int max = term.chars().allMatch(Character::isDigit) ? 0 : maxDistance(term.length());
+        if (max == 0) {
+            Integer exact = wordIds.get(term);
+            if (exact != null) {
+                result.put(exact, 0);
+            }
+            return result;
+        }
+        String padded = ' ' + term + ' ';
+        int minShared = Math.max(1, term.length() - 4 * max);
+        for (int word : wordTrigrams.sharing(padded, minShared)) {
+            int distance = distance(term, words.get(word), max);
+            if (distance <= max) {
+                result.put(word, distance);
+            }
+        }
+        return result;
+    }
+    
+    private long documentCount(Map<Integer, Integer> matches) {
+        long count = 0;
+        for (int word : matches.keySet()) {
+            count += wordDocs.get(word).size;
+        }
+        return count;
+    }
+    
+    // Sorted documents containing any of the matched words, each with its smallest distance
+    private TermDocs termDocs(Map<Integer, Integer> matches) {
+        if (matches.size() == 1) {
+            Map.Entry<Integer, Integer> only = matches.entrySet().iterator().next();
+            Postings docs = wordDocs.get(only.getKey());
+            byte[] distances = new byte[docs.size];
+            Arrays.fill(distances, only.getValue().byteValue());
+            return new TermDocs(docs.docs, distances, docs.size);
+        }
+        
+        // doc << 8 | distance sorts by document, then distance, so the first of each doc is its best
+        int total = (int) documentCount(matches);
+        long[] packed = new long[total];
+        int n = 0;
+        for (Map.Entry<Integer, Integer> match : matches.entrySet()) {
+            Postings docs = wordDocs.get(match.getKey());
+            for (int i = 0; i < docs.size; i++) {
+                packed[n++] = (long) docs.docs[i] << 8 | match.getValue();
+            }
+        }
+        Arrays.sort(packed);
+        int[] docs = new int[total];
+        byte[] distances = new byte[total];
+        int size = 0;
+        for (long entry : packed) {
+            int doc = (int) (entry >>> 8);
+            if (size == 0 || docs[size - 1] != doc) {
+                docs[size] = doc;
+                distances[size++] = (byte) (entry & 0xFF);
+            }
+        }
+        return new TermDocs(docs, distances, size);
+    }
+    
+    private WordCursor cursor(Map<Integer, Integer> matches) {
+        WordCursor cursor = new WordCursor(new Postings[matches.size()], new int[matches.size()],
+                                           new int[matches.size()]);
+        int w = 0;
+        for (Map.Entry<Integer, Integer> match : matches.entrySet()) {
+            cursor.docs[w] = wordDocs.get(match.getKey());
+            cursor.distances[w++] = match.getValue();
+        }
+        return cursor;
+    }
+    
+    // Books with the ISBN as typed first, then those it is one slip away from
+    private int[] searchIsbn(String query, IntPredicate live) {
+        Set<Integer> result = new LinkedHashSet<>();
+        for (String body : Isbn.candidateBodies(query)) {
+            Postings docs = isbnDocs.get(body);
+            if (docs != null) {
+                for (int i = 0; i < docs.size; i++) {
+                    if (live.test(docs.docs[i])) {
+                        result.add(docs.docs[i]);
+                    }
+                }
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    private int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id == null) {
+            id = words.size();
+            words.add(word);
+            wordIds.put(word, id);
+            wordDocs.add(new Postings());
+            // Padding gives the first and last letters trigrams of their own
+            wordTrigrams.add(id, ' ' + word + ' ');
+        }
+        return id;
+    }
+    
+    private record TermDocs(int[] docs, byte[] distances, int size) {
+    }
+    
+    /**
+     * The words one query word matched, probed with ascending documents: each word remembers
+     * where its last binary search ended, so the next one starts there.
+     */
+    private record WordCursor(Postings[] docs, int[] distances, int[] from) {
+        
+        // Smallest distance of a matched word the document contains, or -1 when it has none
+        int distance(int doc) {
+            int best = -1;
+            for (int w = 0; w < docs.length; w++) {
+                int found = Arrays.binarySearch(docs[w].docs, from[w], docs[w].size, doc);
+                from[w] = found >= 0 ? found + 1 : -found - 1;
+                if (found >= 0 && (best < 0 || distances[w] < best)) {
+                    best = distances[w];
+                }
+            }
+            return best;
+        }
+    }
+    
+    private static class Postings {
+        
+        private int[] docs = new int[2];
+        private int size;
+        
+        void append(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package nojf.threegirlslibrary.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Utility class to measure the typo-tolerant book search (FuzzyIndex, behind
+ * GET /books/search?fuzzy=true) against the books in the database.
+ *
+ * It indexes every book the way CatalogFacetService does, then runs misspelled queries made
+ * from random books: one title or author word (four letters or more) gets a random slip
+ * (wrong, missing, extra or swapped letter, two of them for words of eight letters or more),
+ * and books with a valid ISBN are also looked up with dashes and one wrong digit. It reports
+ * latency percentiles and recall, the share of queries that found the book they were made from.
+ *
+ * Usage:
+ *    java FuzzySearchBenchmark --queries 10000
+ *
+ * Options (defaults in brackets):
+ *    --url        JDBC url [jdbc:mysql://localhost:3306/three_girls_library]
+ *    --user       database user [root]
+ *    --password   database password []
+ *    --queries    misspelled queries to run [10000]
+ *    --warmup     queries to run first, not measured [2000]
+ *    --seed       random seed [42]
+ */
+public class FuzzySearchBenchmark {
+    
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        
+        String url = options.getOrDefault("url",
+            "jdbc:mysql://localhost:3306/three_girls_library?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true");
+        String dbUser = options.getOrDefault("user", "root");
+        String dbPassword = options.getOrDefault("password", "");
+        int queries = Integer.parseInt(options.getOrDefault("queries", "10000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "2000"));
+        SplittableRandom random = new SplittableRandom(Long.parseLong(options.getOrDefault("seed", "42")));
+        
+        List<String> texts = new ArrayList<>();
+        List<String> isbns = new ArrayList<>();
+        FuzzyIndex index = new FuzzyIndex();
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, dbUser, dbPassword);
+             Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Streams rows instead of buffering the whole table in the driver
+            statement.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = statement.executeQuery("SELECT title, author, isbn FROM books ORDER BY id")) {
+                while (rs.next()) {
+                    String text = rs.getString(1) + '\n' + rs.getString(2);
+                    index.add(texts.size(), text, rs.getString(3));
+                    texts.add(text);
+                    isbns.add(rs.getString(3));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not read books from " + url, ex);
+        }
+        if (texts.isEmpty()) {
+            throw new IllegalStateException("No books, run DatasetGenerator first");
+        }
+        System.out.printf("indexed %d books, %d distinct words in %.1f s%n",
+            texts.size(), index.wordCount(), (System.nanoTime() - start) / 1e9);
+        
+        run(index, texts, isbns, random, warmup, null);
+        run(index, texts, isbns, random, queries, "misspelled words");
+        run(index, texts, isbns, random, queries, "misspelled ISBNs");
+    }
+    
+    // what == null runs word and ISBN queries unmeasured
+    private static void run(FuzzyIndex index, List<String> texts, List<String> isbns, SplittableRandom random,
+                            int count, String what) {
+        boolean isbnQueries = "misspelled ISBNs".equals(what);
+        long[] nanos = new long[count];
+        int ran = 0;
+        int found = 0;
+        long results = 0;
+        for (int attempt = 0; ran < count && attempt < count * 20; attempt++) {
+            int doc = random.nextInt(texts.size());
+            String query = isbnQueries || (what == null && random.nextBoolean())
+                ? misspellIsbn(isbns.get(doc), random)
+                : misspellWord(texts.get(doc), random);
+            if (query == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            int[] matches = index.search(query, d -> true);
+            nanos[ran++] = System.nanoTime() - start;
+            results += matches.length;
+            for (int match : matches) {
+                if (match == doc) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        if (what == null) {
+            return;
+        }
+        if (ran == 0) {
+            System.out.printf("%-18s no books to make queries from%n", what);
+            return;
+        }
+        long[] measured = Arrays.copyOf(nanos, ran);
+        Arrays.sort(measured);
+        System.out.printf("%-18s %6d queries  p50 %6.2f ms  p95 %6.2f ms  p99 %6.2f ms  max %7.2f ms  " +
+                          "recall %5.1f%%  %.1f results/query%n",
+            what, ran, percentile(measured, 0.50), percentile(measured, 0.95), percentile(measured, 0.99),
+            measured[ran - 1] / 1e6, 100.0 * found / ran, (double) results / ran);
+    }
+    
+    // The text with one of its longer words misspelled, or null when it has none
+    private static String misspellWord(String text, SplittableRandom random) {
+        List<String> words = FuzzyIndex.words(text);
+        List<String> candidates = words.stream().filter(w -> w.length() >= 4 && w.chars().allMatch(Character::isLetter))
+                                       .toList();
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        String word = candidates.get(random.nextInt(candidates.size()));
+        String typo = word;
+        int slips = word.length() >= 8 ? 2 : 1;
+        for (int i = 0; i < slips; i++) {
+            typo = slip(typo, random);
+        }
+        // The misspelled word plus one other word, like a patron typing "tolkein hobbit"
+        String other = words.get(random.nextInt(words.size()));
+        return other.equals(word) ? typo : typo + " " + other;
+    }
+    
+    private static String slip(String word, SplittableRandom random) {
+        int at = random.nextInt(word.length() - 1);
+        char letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        return switch (random.nextInt(4)) {
+            case 0 -> word.substring(0, at) + letter + word.substring(at + 1);
+            case 1 -> word.substring(0, at) + word.substring(at + 1);
+            case 2 -> word.substring(0, at) + letter + word.substring(at);
+            default -> word.substring(0, at) + word.charAt(at + 1) + word.charAt(at) + word.substring(at + 2);
+        };
+    }
+    
+    // A valid ISBN-13 with dashes and one digit changed, or null when the book has no valid ISBN
+    private static String misspellIsbn(String isbn, SplittableRandom random) {
+        String body = Isbn.body(isbn);
+        if (body == null || !Isbn.candidateBodies(isbn).equals(List.of(body))) {
+            return null;
+        }
+        char[] digits = Isbn.normalize(isbn).toCharArray();
+        int at = random.nextInt(digits.length - 1);
+        digits[at] = (char) ('0' + (digits[at] - '0' + 1 + random.nextInt(9)) % 10);
+        String typed = new String(digits);
+        return typed.substring(0, 3) + "-" + typed.substring(3, 4) + "-" + typed.substring(4);
+    }
+    
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,122 @@
+package nojf.threegirlslibrary.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ISBN-10/13 helpers for matching ISBNs however they were typed. Both forms of a book share
+ * the same 12-digit ISBN-13 body ("978" + the nine ISBN-10 digits), so the body is the key to
+ * compare on; the check digit only tells whether the digits before it were typed correctly.
+ */
+public final class Isbn {
+    
+    private Isbn() {
+    }
+    
+    // "978-0-261-10236-1" -> "9780261102361"; anything but digits and X is dropped
+    public static String normalize(String isbn) {
+        return isbn == null ? "" : isbn.replaceAll("[^0-9Xx]", "").toUpperCase();
+    }
+    
+    // True when text is nothing but an ISBN-10 or ISBN-13 with optional dashes and spaces
+    public static boolean looksLikeIsbn(String text) {
+        if (text == null || !text.trim().matches("[0-9Xx][0-9Xx\\- ]*")) {
+            return false;
+        }
+        return parse(normalize(text)) != null;
+    }
+    
+    // 12-digit ISBN-13 body, or null when isbn is not a well-formed ISBN-10 or ISBN-13
+    public static String body(String isbn) {
+        Parsed parsed = parse(normalize(isbn));
+        return parsed == null ? null : parsed.body();
+    }
+    
+    /**
+     * Bodies the typed ISBN may have meant, most likely first: the body as typed, then (when
+     * its check digit is wrong) every valid ISBN one substituted digit or one swap of adjacent
+     * digits away, check digit included. Those are exactly the slips a check digit is designed
+     * to catch. Empty when the text is not an ISBN at all.
+     */
+    public static List<String> candidateBodies(String isbn) {
+        String normalized = normalize(isbn);
+        Parsed parsed = parse(normalized);
+        if (parsed == null) {
+            return List.of();
+        }
+        Set<String> bodies = new LinkedHashSet<>();
+        bodies.add(parsed.body());
+        if (parsed.checks()) {
+            return new ArrayList<>(bodies);
+        }
+        
+        // Corrected in the form that was typed, since its check digit covers those digits
+        char[] chars = normalized.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char original = chars[i];
+            boolean isbn10Check = chars.length == 10 && i == 9;
+            for (char d = '0'; d <= (isbn10Check ? '9' + 1 : '9'); d++) {
+                chars[i] = d > '9' ? 'X' : d;
+                if (chars[i] != original) {
+                    addIfValid(bodies, new String(chars));
+                }
+            }
+            chars[i] = original;
+            if (i + 1 < chars.length && chars[i] != chars[i + 1]) {
+                swap(chars, i);
+                addIfValid(bodies, new String(chars));
+                swap(chars, i);
+            }
+        }
+        return new ArrayList<>(bodies);
+    }
+    
+    private static char checkDigit10(String nineDigits) {
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (10 - i) * (nineDigits.charAt(i) - '0');
+        }
+        int check = (11 - sum % 11) % 11;
+        return check == 10 ? 'X' : (char) ('0' + check);
+    }
+    
+    private static char checkDigit13(String twelveDigits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (i % 2 == 0 ? 1 : 3) * (twelveDigits.charAt(i) - '0');
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+    
+    // Null when normalized is neither ten digits (last may be X) nor thirteen digits
+    private static Parsed parse(String normalized) {
+        if (normalized.length() == 10 && normalized.substring(0, 9).chars().allMatch(Character::isDigit)) {
+            String digits = normalized.substring(0, 9);
+            return new Parsed("978" + digits, checkDigit10(digits) == normalized.charAt(9));
+        }
+        if (normalized.length() == 13 && normalized.chars().allMatch(Character::isDigit)) {
+            String digits = normalized.substring(0, 12);
+            return new Parsed(digits, checkDigit13(digits) == normalized.charAt(12));
+        }
+        return null;
+    }
+    
+    
+    private static void addIfValid(Set<String> bodies, String normalized) {
+        Parsed parsed = parse(normalized);
+        if (parsed != null && parsed.checks()) {
+            bodies.add(parsed.body());
+        }
+    }
+    
+    private static void swap(char[] chars, int i) {
+        char c = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = c;
+    }
+    
+    private record Parsed(String body, boolean checks) {
+    }
+}
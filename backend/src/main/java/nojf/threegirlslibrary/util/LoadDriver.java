@@ -0,0 +1,339 @@
+package nojf.threegirlslibrary.util;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class to replay a mixed library workload against a running backend and report
+ * throughput and latency percentiles per endpoint.
+ *
+ * Meant to be used against a database filled by DatasetGenerator: patrons log in as
+ * loadtest-patron-ID@library.local / password123, and returns are made with the admin account.
+ * DatasetGenerator prints the --first-patron/--patrons/--first-book/--books of what it wrote.
+ *
+ * Usage:
+ *    java LoadDriver --threads 32 --duration 60 --mix browse=50,search=30,borrow=8,return=7,login=5
+ *
+ * Options (defaults in brackets):
+ *    --base-url        backend base url [http://localhost:8080/api]
+ *    --threads         concurrent clients [16]
+ *    --duration        measured seconds [60]
+ *    --warmup          unmeasured warm-up seconds [10]
+ *    --mix             operation weights [browse=50,search=30,borrow=8,return=7,login=5]
+ *    --first-patron    user id of the first generated patron [1]
+ *    --patrons         how many generated patrons to spread logins over [10000]
+ *    --first-book      lowest book id used by random lookups and borrows [1]
+ *    --books           how many book ids, from --first-book, to use [100000]
+ *    --admin-email     admin account used for returns [admin@library.com]
+ *    --admin-password  admin password [password123]
+ */
+public class LoadDriver {
+    
+    private static final String[] SEARCH_TERMS = {
+        "shadow", "river", "garden", "night", "secret", "winter", "harry", "python",
+        "mystery", "history", "johnson", "smith", "lost", "star", "city", "dream"
+    };
+    
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern FIRST_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+    
+    private final String baseUrl;
+    private final long firstPatron;
+    private final int patrons;
+    private final long firstBook;
+    private final int books;
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final ConcurrentLinkedQueue<Long> borrowedLoanIds = new ConcurrentLinkedQueue<>();
+    private volatile String adminToken;
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        
+        LoadDriver driver = new LoadDriver(
+            options.getOrDefault("base-url", "http://localhost:8080/api"),
+            options.getOrDefault("mix", "browse=50,search=30,borrow=8,return=7,login=5"),
+            Long.parseLong(options.getOrDefault("first-patron", "1")),
+            Integer.parseInt(options.getOrDefault("patrons", "10000")),
+            Long.parseLong(options.getOrDefault("first-book", "1")),
+            Integer.parseInt(options.getOrDefault("books", "100000")));
+        
+        driver.adminToken = driver.login(
+            options.getOrDefault("admin-email", "admin@library.com"),
+            options.getOrDefault("admin-password", "password123"),
+            null);
+        if (driver.adminToken == null) {
+            System.out.println("WARNING: admin login failed, return operations will be skipped");
+        }
+        
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        
+        if (warmup > 0) {
+            System.out.println("Warming up for " + warmup + "s ...");
+            driver.run(threads, warmup);
+        }
+        System.out.println("Measuring for " + duration + "s with " + threads + " clients ...");
+        Map<String, Recorder> results = driver.run(threads, duration);
+        printReport(results, duration);
+    }
+    
+    LoadDriver(String baseUrl, String mix, long firstPatron, int patrons, long firstBook, int books) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.firstPatron = firstPatron;
+        this.patrons = patrons;
+        this.firstBook = firstBook;
+        this.books = books;
+        
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            weights.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+        this.operations = weights.keySet().toArray(new String[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+    
+    private Map<String, Recorder> run(int threads, int seconds) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Map<String, Recorder>> perThread = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        
+        for (int t = 0; t < threads; t++) {
+            Map<String, Recorder> recorders = new HashMap<>();
+            perThread.add(recorders);
+            executor.execute(() -> {
+                try {
+                    clientLoop(recorders, deadline);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+        
+        Map<String, Recorder> merged = new LinkedHashMap<>();
+        for (Map<String, Recorder> recorders : perThread) {
+            recorders.forEach((endpoint, recorder) ->
+                merged.computeIfAbsent(endpoint, k -> new Recorder()).merge(recorder));
+        }
+        return merged;
+    }
+    
+    private void clientLoop(Map<String, Recorder> recorders, long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String patronToken = login(DatasetGenerator.patronEmail(firstPatron + random.nextInt(patrons)),
+                                   "password123", null);
+        
+        while (System.nanoTime() < deadline) {
+            String operation = pickOperation(random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]));
+            switch (operation) {
+                case "browse" -> {
+                    if (random.nextBoolean()) {
+                        call(recorders, "GET /books", get("/books?page=" + random.nextInt(50) + "&size=20", null));
+                    } else {
+                        call(recorders, "GET /books/{id}", get("/books/" + (firstBook + random.nextInt(books)), null));
+                    }
+                }
+                case "search" -> {
+                    String keyword = SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)];
+                    call(recorders, "GET /books/search",
+                        get("/books/search?keyword=" + URLEncoder.encode(keyword, StandardCharsets.UTF_8), null));
+                }
+                case "borrow" -> {
+                    if (patronToken == null) {
+                        break;
+                    }
+                    String body = "{\"bookId\":" + (firstBook + random.nextInt(books)) + "}";
+                    HttpResponse<String> response = call(recorders, "POST /loans/borrow",
+                        post("/loans/borrow", body, patronToken));
+                    if (response != null && response.statusCode() == 201) {
+                        Matcher m = FIRST_ID.matcher(response.body());
+                        if (m.find()) {
+                            borrowedLoanIds.add(Long.parseLong(m.group(1)));
+                        }
+                    }
+                }
+                case "return" -> {
+                    Long loanId = borrowedLoanIds.poll();
+                    if (loanId == null || adminToken == null) {
+                        break;
+                    }
+                    call(recorders, "PUT /loans/{id}/return",
+                        HttpRequest.newBuilder(URI.create(baseUrl + "/loans/" + loanId + "/return"))
+                            .header("Authorization", "Bearer " + adminToken)
+                            .PUT(HttpRequest.BodyPublishers.noBody())
+                            .build());
+                }
+                case "login" -> {
+                    String token = login(DatasetGenerator.patronEmail(firstPatron + random.nextInt(patrons)),
+                                         "password123", recorders);
+                    if (token != null) {
+                        patronToken = token;
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown operation in mix: " + operation);
+            }
+        }
+    }
+    
+    private String login(String email, String password, Map<String, Recorder> recorders) {
+        String body = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+        HttpRequest request = post("/auth/login", body, null);
+        HttpResponse<String> response = recorders != null
+            ? call(recorders, "POST /auth/login", request)
+            : send(request);
+        if (response == null || response.statusCode() != 200) {
+            return null;
+        }
+        Matcher m = TOKEN.matcher(response.body());
+        return m.find() ? m.group(1) : null;
+    }
+    
+    private String pickOperation(int roll) {
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+    
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+    
+    private HttpRequest post(String path, String json, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+    
+    private HttpResponse<String> call(Map<String, Recorder> recorders, String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        HttpResponse<String> response = send(request);
+        long elapsedMicros = (System.nanoTime() - start) / 1_000;
+        recorders.computeIfAbsent(endpoint, k -> new Recorder())
+                 .record(elapsedMicros, response != null ? response.statusCode() : -1);
+        return response;
+    }
+    
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    private static void printReport(Map<String, Recorder> results, int seconds) {
+        System.out.println();
+        System.out.printf("%-24s %10s %9s %8s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "req/s", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        long totalRequests = 0;
+        for (Map.Entry<String, Recorder> entry : results.entrySet()) {
+            Recorder r = entry.getValue();
+            long[] sorted = r.sortedLatencies();
+            totalRequests += r.count;
+            System.out.printf("%-24s %10d %9.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                entry.getKey(), r.count, r.count / (double) seconds, r.errors,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                percentile(sorted, 99.9), sorted.length > 0 ? sorted[sorted.length - 1] / 1000.0 : 0.0);
+        }
+        System.out.printf("%nTotal: %d requests, %.1f req/s%n", totalRequests, totalRequests / (double) seconds);
+    }
+    
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+    
+    // Per-thread latency log in microseconds; merged and sorted once at the end of a run
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        
+        void record(long micros, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = micros;
+            if (status < 200 || status >= 400) {
+                errors++;
+            }
+        }
+        
+        void merge(Recorder other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+        
+        long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package nojf.threegirlslibrary.util;
+
+import nojf.threegirlslibrary.config.PenaltyProperties;
+import nojf.threegirlslibrary.service.PenaltyAccrualService;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Utility class to measure penalty accrual over a large number of overdue loans.
+ *
+ * It adds the requested number of overdue loans for existing patrons and books (run
+ * DatasetGenerator first), then times:
+ *    1. the fee formula itself, long cents against the old BigDecimal arithmetic
+ *    2. the nightly bulk SQL job on first run (every penalty inserted)
+ *    3. the same job a day later (every penalty updated)
+ *
+ * The added loans and their penalties are deleted again at the end unless --keep is given.
+ * Use a scratch database: the loans do not change book availability.
+ *
+ * Usage:
+ *    java PenaltyAccrualBenchmark --loans 1000000
+ *
+ * Options (defaults in brackets):
+ *    --url        JDBC url [jdbc:mysql://localhost:3306/three_girls_library?rewriteBatchedStatements=true]
+ *    --user       database user [root]
+ *    --password   database password []
+ *    --loans      number of overdue loans to add [1000000]
+ *    --chunk      loans per accrual statement [50000]
+ *    --batch      rows per insert batch/commit [5000]
+ *    --keep       keep the added loans and penalties (true/false) [false]
+ *    --seed       random seed [42]
+ */
+public class PenaltyAccrualBenchmark {
+    
+    private static final int LOAN_PERIOD_DAYS = 14;
+    private static final int MAX_DAYS_OVERDUE = 180;
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        
+        String url = options.getOrDefault("url",
+            "jdbc:mysql://localhost:3306/three_girls_library?useSSL=false&serverTimezone=UTC" +
+            "&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true");
+        String dbUser = options.getOrDefault("user", "root");
+        String dbPassword = options.getOrDefault("password", "");
+        int loans = Integer.parseInt(options.getOrDefault("loans", "1000000"));
+        int chunkSize = Integer.parseInt(options.getOrDefault("chunk", "50000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "5000"));
+        boolean keep = Boolean.parseBoolean(options.getOrDefault("keep", "false"));
+        SplittableRandom random = new SplittableRandom(Long.parseLong(options.getOrDefault("seed", "42")));
+        
+        PenaltyProperties properties = new PenaltyProperties();
+        properties.setAccrualChunkSize(chunkSize);
+        
+        benchmarkFeeFormula(properties.getDefaultSchedule(), loans, random);
+        
+        try (Connection connection = DriverManager.getConnection(url, dbUser, dbPassword)) {
+            connection.setAutoCommit(false);
+            long[] userIds = ids(connection, "users");
+            long[] bookIds = ids(connection, "books");
+            if (userIds.length == 0 || bookIds.length == 0) {
+                throw new IllegalStateException("Needs existing users and books, run DatasetGenerator first");
+            }
+            
+            long firstLoanId = nextId(connection, "loans");
+            long start = System.nanoTime();
+            insertOverdueLoans(connection, firstLoanId, loans, userIds, bookIds, batchSize, random);
+            report("insert overdue loans", loans, start);
+            
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                start = System.nanoTime();
+                long rows = accrue(connection, properties, firstLoanId, firstLoanId + loans, now);
+                report("accrual, first run (" + rows + " rows)", loans, start);
+                
+                start = System.nanoTime();
+                rows = accrue(connection, properties, firstLoanId, firstLoanId + loans, now.plusDays(1));
+                report("accrual, next day (" + rows + " rows)", loans, start);
+            } finally {
+                if (!keep) {
+                    start = System.nanoTime();
+                    deleteFrom(connection, firstLoanId, batchSize * 10);
+                    report("clean-up", loans, start);
+                }
+            }
+        }
+    }
+    
+    // Same fee for the same inputs both ways; only the arithmetic differs
+    private static void benchmarkFeeFormula(PenaltyProperties.FeeSchedule schedule, int loans,
+                                            SplittableRandom random) {
+        int[] daysLate = new int[loans];
+        for (int i = 0; i < loans; i++) {
+            daysLate[i] = 1 + random.nextInt(MAX_DAYS_OVERDUE);
+        }
+        BigDecimal dailyRate = BigDecimal.valueOf(schedule.getDailyRateCents(), 2);
+        
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            long totalCents = 0;
+            for (int days : daysLate) {
+                totalCents += schedule.feeCents(days);
+            }
+            long cents = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int days : daysLate) {
+                total = total.add(dailyRate.multiply(BigDecimal.valueOf(days)));
+            }
+            long decimal = System.nanoTime() - start;
+            
+            if (BigDecimal.valueOf(totalCents, 2).compareTo(total) != 0) {
+                throw new IllegalStateException("Fee formulas disagree: " + totalCents + " vs " + total);
+            }
+            System.out.printf("fee formula round %d: long cents %.2f ns/loan, BigDecimal %.2f ns/loan%n",
+                round + 1, (double) cents / loans, (double) decimal / loans);
+        }
+    }
+    
+    private static long accrue(Connection connection, PenaltyProperties properties,
+                               long fromId, long toId, LocalDateTime now) throws SQLException {
+        List<String> genres = new ArrayList<>(properties.getGenres().keySet());
+        String sql = PenaltyAccrualService.accrualSql(genres.size());
+        long rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (long chunk = fromId; chunk < toId; chunk += properties.getAccrualChunkSize()) {
+                Object[] parameters = PenaltyAccrualService.accrualParameters(properties, genres,
+                    Timestamp.valueOf(now), chunk, Math.min(chunk + properties.getAccrualChunkSize(), toId));
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                rows += statement.executeUpdate();
+                connection.commit();
+            }
+        }
+        return rows;
+    }
+    
+    private static void insertOverdueLoans(Connection connection, long firstId, int count, long[] userIds,
+                                           long[] bookIds, int batchSize, SplittableRandom random) throws SQLException {
+        String sql = "INSERT INTO loans (id, user_id, book_id, borrowed_at, due_date, status) " +
+                     "VALUES (?, ?, ?, ?, ?, 'OVERDUE')";
+        LocalDateTime now = LocalDateTime.now();
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                LocalDateTime dueDate = now.minusDays(1 + random.nextInt(MAX_DAYS_OVERDUE))
+                                           .minusMinutes(random.nextInt(24 * 60));
+                statement.setLong(1, firstId + i);
+                statement.setLong(2, userIds[random.nextInt(userIds.length)]);
+                statement.setLong(3, bookIds[random.nextInt(bookIds.length)]);
+                statement.setTimestamp(4, Timestamp.valueOf(dueDate.minusDays(LOAN_PERIOD_DAYS)));
+                statement.setTimestamp(5, Timestamp.valueOf(dueDate));
+                statement.addBatch();
+                
+                if ((i + 1) % batchSize == 0) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+    
+    private static void deleteFrom(Connection connection, long firstLoanId, int batchSize) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // Penalties go with their loans (ON DELETE CASCADE)
+            while (statement.executeUpdate("DELETE FROM loans WHERE id >= " + firstLoanId +
+                                           " LIMIT " + batchSize) > 0) {
+                connection.commit();
+            }
+            connection.commit();
+        }
+    }
+    
+    private static long[] ids(Connection connection, String table) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id FROM " + table)) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+    
+    private static long nextId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    private static void report(String what, long rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-40s %8.2f s  %12.0f loans/s%n", what, seconds, rows / seconds);
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
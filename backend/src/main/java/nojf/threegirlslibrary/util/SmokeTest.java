@@ -0,0 +1,193 @@
+package nojf.threegirlslibrary.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class to check that a backend build can log in, search, borrow and return.
+ * Used to verify the native image, but works against any running backend.
+ *
+ * It borrows the first available book as a patron and returns it again as the admin,
+ * so it leaves the catalog as it found it.
+ *
+ * Usage:
+ *    java SmokeTest --launch build/native/nativeCompile/threegirlslibrary
+ *    java SmokeTest --base-url http://localhost:8080/api
+ *
+ * Options (defaults in brackets):
+ *    --launch           executable to start before testing and stop afterwards [none]
+ *    --base-url         backend base url [http://localhost:8080/api]
+ *    --admin-email      [admin@library.com]
+ *    --patron-email     [alice@example.com]
+ *    --password         password of both accounts [password123]
+ */
+public class SmokeTest {
+    
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern FIRST_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    
+    private final String baseUrl;
+    private int failures;
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        SmokeTest smokeTest = new SmokeTest(options.getOrDefault("base-url", "http://localhost:8080/api"));
+        
+        Process process = null;
+        if (options.containsKey("launch")) {
+            long start = System.nanoTime();
+            process = new ProcessBuilder(options.get("launch"))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            smokeTest.awaitStartup(process);
+            System.out.printf("Started in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        }
+        
+        try {
+            smokeTest.run(
+                options.getOrDefault("admin-email", "admin@library.com"),
+                options.getOrDefault("patron-email", "alice@example.com"),
+                options.getOrDefault("password", "password123"));
+        } finally {
+            if (process != null) {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+        
+        if (smokeTest.failures > 0) {
+            System.out.println(smokeTest.failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+    
+    SmokeTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+    
+    private void run(String adminEmail, String patronEmail, String password) {
+        String adminToken = login(adminEmail, password);
+        String patronToken = login(patronEmail, password);
+        if (adminToken == null || patronToken == null) {
+            return;
+        }
+        
+        HttpResponse<String> search = send(request("/books/search?keyword=the", null).GET().build());
+        check("search", search, 200, "\"content\"");
+        
+        HttpResponse<String> available = send(request("/books/available", null).GET().build());
+        check("list available books", available, 200, "\"id\"");
+        Long bookId = firstId(available);
+        if (bookId == null) {
+            return;
+        }
+        
+        HttpResponse<String> borrow = send(request("/loans/borrow", patronToken)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"bookId\":" + bookId + "}"))
+                .build());
+        check("borrow book " + bookId, borrow, 201, "\"BORROWED\"");
+        Long loanId = firstId(borrow);
+        if (loanId == null) {
+            return;
+        }
+        
+        HttpResponse<String> giveBack = send(request("/loans/" + loanId + "/return", adminToken)
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build());
+        check("return loan " + loanId, giveBack, 200, "\"RETURNED\"");
+    }
+    
+    private String login(String email, String password) {
+        HttpResponse<String> response = send(request("/auth/login", null)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}"))
+                .build());
+        if (!check("login " + email, response, 200, "\"token\"")) {
+            return null;
+        }
+        Matcher m = TOKEN.matcher(response.body());
+        return m.find() ? m.group(1) : null;
+    }
+    
+    private boolean check(String name, HttpResponse<String> response, int expectedStatus, String expectedText) {
+        boolean ok = response != null
+                && response.statusCode() == expectedStatus
+                && response.body().contains(expectedText);
+        System.out.printf("[%s] %s%s%n", ok ? "PASS" : "FAIL", name,
+            ok ? "" : " (status " + (response != null ? response.statusCode() : "none") + ")");
+        if (!ok) {
+            failures++;
+        }
+        return ok;
+    }
+    
+    private void awaitStartup(Process process) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofMinutes(2).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Backend exited with code " + process.exitValue());
+            }
+            HttpResponse<String> response = send(request("/books/genres", null).GET().build());
+            if (response != null && response.statusCode() == 200) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Backend did not start within 2 minutes");
+    }
+    
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(10));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+    
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    private static Long firstId(HttpResponse<String> response) {
+        if (response == null) {
+            return null;
+        }
+        Matcher m = FIRST_ID.matcher(response.body());
+        return m.find() ? Long.parseLong(m.group(1)) : null;
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
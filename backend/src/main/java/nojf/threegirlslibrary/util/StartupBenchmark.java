@@ -0,0 +1,203 @@
+package nojf.threegirlslibrary.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to compare backend startup modes. Each mode is launched as a separate JVM,
+ * timed until the first successful request, and its resident memory (RSS) is sampled right
+ * after that request. Needs a reachable database, just like a normal start.
+ *
+ * Modes:
+ *    jvm        plain java -jar
+ *    lazy       startup profile (lazy bean initialization, quieter logging)
+ *    cds        startup profile, extracted jar with the AppCDS archive
+ *    aot        startup profile with Spring AOT (jar must be built with -Pstartup)
+ *    aot-cds    AOT and AppCDS together
+ *    native     GraalVM native binary (./gradlew nativeCompile -Pnative)
+ *
+ * Usage (after ./gradlew cdsTrainingRun, optionally with -Pstartup):
+ *    java StartupBenchmark --modes jvm,lazy,cds --runs 5
+ *
+ * With --catalog-snapshot every run is done twice: cold (snapshot file deleted first, so the
+ * catalog columns are loaded from the database) and warm (from the snapshot the cold run wrote
+ * at shutdown). Use --path /api/books/facets to time until the catalog is served.
+ *
+ * Options (defaults in brackets):
+ *    --jar        fat jar [build/libs/threegirlslibrary-0.0.1-SNAPSHOT.jar]
+ *    --extracted  directory with the extracted jar and application.jsa [build/startup/app]
+ *    --native     native binary [build/native/nativeCompile/threegirlslibrary]
+ *    --modes      comma separated modes [jvm,lazy,cds]
+ *    --runs       launches per mode [5]
+ *    --port       port for the launched servers [18080]
+ *    --path       request used to detect readiness [/api/books/genres]
+ *    --catalog-snapshot  snapshot file the launched servers use [not compared]
+ */
+public class StartupBenchmark {
+    
+    private static final long TIMEOUT_MILLIS = 120_000;
+    
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String jar = options.getOrDefault("jar", "build/libs/threegirlslibrary-0.0.1-SNAPSHOT.jar");
+        String extracted = options.getOrDefault("extracted", "build/startup/app");
+        String nativeBinary = options.getOrDefault("native", "build/native/nativeCompile/threegirlslibrary");
+        String[] modes = options.getOrDefault("modes", "jvm,lazy,cds").split(",");
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        int port = Integer.parseInt(options.getOrDefault("port", "18080"));
+        String path = options.getOrDefault("path", "/api/books/genres");
+        String snapshot = options.get("catalog-snapshot");
+        List<String> starts = snapshot == null ? List.of("") : List.of("cold", "warm");
+        
+        StartupBenchmark benchmark = new StartupBenchmark();
+        Map<String, long[][]> results = new LinkedHashMap<>();
+        
+        for (String mode : modes) {
+            for (String start : starts) {
+                String label = start.isEmpty() ? mode.trim() : mode.trim() + "/" + start;
+                List<String> command = command(mode.trim(), jar, extracted, nativeBinary, port);
+                if (snapshot != null) {
+                    command.add("--library.catalog-snapshot.path=" + Path.of(snapshot).toAbsolutePath());
+                }
+                long[][] samples = new long[runs][];
+                for (int run = 0; run < runs; run++) {
+                    if (start.equals("cold")) {
+                        Files.deleteIfExists(Path.of(snapshot));
+                    } else if (start.equals("warm") && !Files.exists(Path.of(snapshot))) {
+                        throw new IllegalStateException("No catalog snapshot was written at shutdown: " + snapshot);
+                    }
+                    samples[run] = benchmark.measure(command, port, path);
+                    System.out.printf("%-13s run %d: first request after %d ms, RSS %d MB%n",
+                        label, run + 1, samples[run][0], samples[run][1] / 1024);
+                }
+                results.put(label, samples);
+            }
+        }
+        
+        System.out.println();
+        System.out.printf("%-13s %22s %16s%n", "mode", "first request (ms)", "RSS (MB)");
+        for (Map.Entry<String, long[][]> entry : results.entrySet()) {
+            System.out.printf("%-13s %22d %16d%n", entry.getKey(),
+                median(entry.getValue(), 0), median(entry.getValue(), 1) / 1024);
+        }
+    }
+    
+    // Returns {milliseconds until first 2xx response, RSS in KB}
+    private long[] measure(List<String> command, int port, String path) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        
+        URI uri = URI.create("http://localhost:" + port + path);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Backend exited with code " + process.exitValue() +
+                                                    " while starting: " + String.join(" ", command));
+                }
+                if (isUp(uri)) {
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    return new long[] { elapsed, residentSetKb(process.pid()) };
+                }
+                if ((System.nanoTime() - start) / 1_000_000 > TIMEOUT_MILLIS) {
+                    throw new IllegalStateException("Backend did not answer within " + TIMEOUT_MILLIS + " ms");
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+    
+    private boolean isUp(URI uri) {
+        try {
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                                                      HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 300;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private static List<String> command(String mode, String jar, String extracted, String nativeBinary, int port) {
+        if (mode.equals("native")) {
+            return new ArrayList<>(List.of(nativeBinary, "--server.port=" + port));
+        }
+        boolean cds = mode.equals("cds") || mode.equals("aot-cds");
+        boolean aot = mode.equals("aot") || mode.equals("aot-cds");
+        if (!mode.equals("jvm") && !mode.equals("lazy") && !cds && !aot) {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (cds) {
+            command.add("-XX:SharedArchiveFile=" + new File(extracted, "application.jsa").getAbsolutePath());
+        }
+        if (aot) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        if (!mode.equals("jvm")) {
+            command.add("-Dspring.profiles.active=startup");
+        }
+        command.add("-Dserver.port=" + port);
+        command.add("-jar");
+        // The CDS archive only matches the extracted layout it was trained on
+        command.add(cds ? new File(extracted, new File(jar).getName()).getAbsolutePath() : jar);
+        return command;
+    }
+    
+    // Linux only; other platforms report 0
+    private static long residentSetKb(long pid) {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+        return 0;
+    }
+    
+    private static long median(long[][] samples, int column) {
+        long[] values = Arrays.stream(samples).mapToLong(s -> s[column]).sorted().toArray();
+        return values[values.length / 2];
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
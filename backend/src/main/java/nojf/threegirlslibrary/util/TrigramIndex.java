@@ -0,0 +1,125 @@
+package nojf.threegirlslibrary.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from three-character substrings to the int documents containing them. Every
+ * document holding a string also holds all of its trigrams, so intersecting the posting lists
+ * of a query's trigrams gives a small superset of the documents containing the query, which the
+ * caller then checks exactly.
+ *
+ * Documents must be added in ascending order, which keeps every posting list sorted without
+ * sorting. Nothing is ever removed; callers skip dead documents themselves. Not thread-safe.
+ */
+public class TrigramIndex {
+    
+    private final Map<Long, Postings> postings = new HashMap<>();
+    
+    // text should already be normalized (e.g. lower-cased) the same way queries will be
+    public void add(int doc, String text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            postings.computeIfAbsent(key(text, i), k -> new Postings()).append(doc);
+        }
+    }
+    
+    // Sorted documents containing every trigram of query, or null when query is shorter than
+    // three characters and so cannot be narrowed down
+    public int[] candidates(String query) {
+        if (query.length() < 3) {
+            return null;
+        }
+        
+        // Start from the rarest trigram so the intersection never grows past its size
+        int count = query.length() - 2;
+        Postings[] lists = new Postings[count];
+        for (int i = 0; i < count; i++) {
+            Postings list = postings.get(key(query, i));
+            if (list == null) {
+                return new int[0];
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        
+        int[] result = Arrays.copyOf(lists[0].docs, lists[0].size);
+        int length = result.length;
+        for (int l = 1; l < lists.length && length > 0; l++) {
+            if (lists[l] == lists[l - 1]) {
+                continue;
+            }
+            length = intersect(result, length, lists[l]);
+        }
+        return Arrays.copyOf(result, length);
+    }
+    
+    // Documents sharing at least minShared distinct trigrams with query, in no particular order.
+    // For similarity rather than containment: every edit to a string changes only a few trigrams.
+    public int[] sharing(String query, int minShared) {
+        LongIntHashMap counts = new LongIntHashMap(64);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            long key = key(query, i);
+            Postings list = postings.get(key);
+            if (list != null && seen.add(key)) {
+                for (int j = 0; j < list.size; j++) {
+                    // Keys are doc + 1, 0 is the empty marker
+                    counts.addTo(list.docs[j] + 1L, 1);
+                }
+            }
+        }
+        int[] result = new int[counts.size()];
+        int[] length = new int[1];
+        counts.forEach((doc, count) -> {
+            if (count >= minShared) {
+                result[length[0]++] = (int) doc - 1;
+            }
+        });
+        return Arrays.copyOf(result, length[0]);
+    }
+    
+    public int size() {
+        return postings.size();
+    }
+    
+    // Keeps the docs of result[0..length) that are also in list; returns the new length
+    private static int intersect(int[] result, int length, Postings list) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < length && from < list.size; i++) {
+            // Binary search from the last match: result is usually far shorter than list
+            int found = Arrays.binarySearch(list.docs, from, list.size, result[i]);
+            if (found >= 0) {
+                result[kept++] = result[i];
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+        }
+        return kept;
+    }
+    
+    private static long key(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+    
+    private static class Postings {
+        
+        private int[] docs = new int[4];
+        private int size;
+        
+        void append(int doc) {
+            // A document with the same trigram twice is listed once
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
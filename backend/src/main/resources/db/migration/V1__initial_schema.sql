@@ -0,0 +1,99 @@
+-- ============================================================
+-- V1: Initial schema
+-- ============================================================
+-- Same tables as database-setup.sql (without sample data).
+-- Databases that were created with database-setup.sql or by
+-- Hibernate ddl-auto are baselined at this version instead of
+-- running it (spring.flyway.baseline-on-migrate).
+-- ============================================================
+
+-- ------------------------------------------------------------
+-- Table: users
+-- Description: Stores user accounts (patrons and administrators)
+-- ------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    full_name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    phone VARCHAR(20),
+    password_hash VARCHAR(255) NOT NULL,
+    role ENUM('PATRON', 'ADMIN') NOT NULL DEFAULT 'PATRON',
+    status ENUM('ACTIVE', 'SUSPENDED') NOT NULL DEFAULT 'ACTIVE',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_email (email),
+    INDEX idx_status (status),
+    INDEX idx_role (role)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ------------------------------------------------------------
+-- Table: books
+-- Description: Stores library book catalog
+-- ------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS books (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    author VARCHAR(255) NOT NULL,
+    isbn VARCHAR(20) UNIQUE,
+    genre VARCHAR(100),
+    description TEXT,
+    cover_image_url VARCHAR(500),
+    published_year INT,
+    total_copies INT NOT NULL DEFAULT 1,
+    available_copies INT NOT NULL DEFAULT 1,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_title (title),
+    INDEX idx_author (author),
+    INDEX idx_isbn (isbn),
+    INDEX idx_genre (genre),
+    INDEX idx_available (available_copies),
+    CONSTRAINT chk_total_copies CHECK (total_copies >= 0),
+    CONSTRAINT chk_available_copies CHECK (available_copies >= 0),
+    CONSTRAINT chk_copies_logic CHECK (available_copies <= total_copies)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ------------------------------------------------------------
+-- Table: loans
+-- Description: Tracks book borrowing transactions
+-- ------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS loans (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    borrowed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    due_date TIMESTAMP NOT NULL,
+    returned_at TIMESTAMP NULL,
+    status ENUM('BORROWED', 'RETURNED', 'OVERDUE') NOT NULL DEFAULT 'BORROWED',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE,
+    INDEX idx_user_id (user_id),
+    INDEX idx_book_id (book_id),
+    INDEX idx_status (status),
+    INDEX idx_due_date (due_date),
+    INDEX idx_borrowed_at (borrowed_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ------------------------------------------------------------
+-- Table: penalties
+-- Description: Tracks late return penalties/fines
+-- ------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS penalties (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    loan_id BIGINT NOT NULL UNIQUE,
+    amount DECIMAL(10, 2) NOT NULL,
+    days_late INT NOT NULL,
+    status ENUM('UNPAID', 'WAIVED') NOT NULL DEFAULT 'UNPAID',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (loan_id) REFERENCES loans(id) ON DELETE CASCADE,
+    INDEX idx_user_id (user_id),
+    INDEX idx_loan_id (loan_id),
+    INDEX idx_status (status),
+    CONSTRAINT chk_amount CHECK (amount >= 0),
+    CONSTRAINT chk_days_late CHECK (days_late >= 0)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
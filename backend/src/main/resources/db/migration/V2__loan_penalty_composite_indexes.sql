@@ -0,0 +1,15 @@
+-- ============================================================
+-- V2: Composite indexes for the hot loan and penalty queries
+-- ============================================================
+
+-- findByUserIdAndStatus, countActiveLoansByUserId
+CREATE INDEX idx_loans_user_status ON loans (user_id, status);
+
+-- findOverdueLoans: status = 'BORROWED' AND due_date < :now
+CREATE INDEX idx_loans_status_due_date ON loans (status, due_date);
+
+-- existsByUserIdAndBookIdAndStatus (duplicate borrow check)
+CREATE INDEX idx_loans_user_book_status ON loans (user_id, book_id, status);
+
+-- findByUserIdAndStatus, getTotalUnpaidPenaltiesByUserId
+CREATE INDEX idx_penalties_user_status ON penalties (user_id, status);
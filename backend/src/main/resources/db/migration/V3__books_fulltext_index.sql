@@ -0,0 +1,5 @@
+-- ============================================================
+-- V3: FULLTEXT index for catalog search (library.search.engine=fulltext)
+-- ============================================================
+
+ALTER TABLE books ADD FULLTEXT INDEX ft_books_title_author_description (title, author, description);
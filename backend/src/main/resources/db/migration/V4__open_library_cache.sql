@@ -0,0 +1,14 @@
+-- ============================================================
+-- V4: Cache of Open Library lookups by ISBN (BookEnrichmentService)
+-- Rows with found = FALSE remember ISBNs Open Library does not know
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS open_library_cache (
+    isbn VARCHAR(20) PRIMARY KEY,
+    found BOOLEAN NOT NULL,
+    description TEXT,
+    cover_image_url VARCHAR(500),
+    fetched_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    INDEX idx_open_library_cache_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
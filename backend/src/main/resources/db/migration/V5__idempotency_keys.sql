@@ -0,0 +1,15 @@
+-- ============================================================
+-- V5: Stored responses of requests sent with an Idempotency-Key
+-- Only used when library.idempotency.persist is true
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    scope_key VARCHAR(300) PRIMARY KEY,
+    fingerprint CHAR(64) NOT NULL,
+    status INT NOT NULL,
+    content_type VARCHAR(255),
+    body MEDIUMBLOB,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    INDEX idx_idempotency_keys_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
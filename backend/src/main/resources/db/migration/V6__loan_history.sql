@@ -0,0 +1,35 @@
+-- ============================================================
+-- V6: Archive of returned loans (LoanArchiveService)
+-- Returned loans older than library.loan-archive.horizon move here with their
+-- waived penalty folded into the row, one partition per year of return.
+-- Partitioned tables cannot have foreign keys, so user_id and book_id are plain
+-- columns; the primary key must include the partitioning column.
+-- LoanArchiveService adds next year's partition before it is needed.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS loan_history (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    borrowed_at DATETIME NULL,
+    due_date DATETIME NOT NULL,
+    returned_at DATETIME NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    penalty_id BIGINT NULL,
+    penalty_amount DECIMAL(10, 2) NULL,
+    penalty_days_late INT NULL,
+    penalty_status VARCHAR(20) NULL,
+    created_at DATETIME NULL,
+    archived_at DATETIME NOT NULL,
+    PRIMARY KEY (id, returned_at),
+    INDEX idx_loan_history_user_id (user_id, id),
+    INDEX idx_loan_history_book_id (book_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+PARTITION BY RANGE COLUMNS (returned_at) (
+    PARTITION p2023 VALUES LESS THAN ('2024-01-01'),
+    PARTITION p2024 VALUES LESS THAN ('2025-01-01'),
+    PARTITION p2025 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p2026 VALUES LESS THAN ('2027-01-01'),
+    PARTITION p2027 VALUES LESS THAN ('2028-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,19 @@
+-- ============================================================
+-- V7: Catalog change log behind GET /books/changes (CatalogChangeFeedService)
+-- One row per book insert, edit, availability change or delete, written in the
+-- same transaction as the change. version is the catalog version clients sync
+-- from. Compaction deletes rows superseded by a newer row for the same book,
+-- so the log holds about one row per book plus a tombstone per deleted book.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS book_changes (
+    version BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_id BIGINT NOT NULL,
+    change_type VARCHAR(10) NOT NULL,
+    changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_book_changes_book_id (book_id, version)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Existing books are the first versions, so a client starting from since=0 gets the whole catalog
+INSERT INTO book_changes (book_id, change_type)
+SELECT id, 'UPSERT' FROM books ORDER BY id;
@@ -0,0 +1,9 @@
+-- ============================================================
+-- V8: Uploaded covers are stored as /books/covers/{hash}, relative to the API
+-- base URL, instead of an absolute URL with the host they were uploaded on.
+-- Open Library and other external cover URLs are left as they are.
+-- ============================================================
+
+UPDATE books
+SET cover_image_url = SUBSTRING(cover_image_url, LOCATE('/books/covers/', cover_image_url))
+WHERE cover_image_url LIKE 'http%/books/covers/%';
@@ -3,7 +3,7 @@ package nojf.threegirlslibrary;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "library.open-library.enabled=false")
 class ThreegirlslibraryApplicationTests {
 
 	@Test
@@ -0,0 +1,59 @@
+package nojf.threegirlslibrary.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PenaltyPropertiesTest {
+    
+    @Test
+    void feeStartsAfterTheGraceDays() {
+        PenaltyProperties.FeeSchedule schedule = schedule(100, 3, 0);
+        assertEquals(0, schedule.feeCents(-2));
+        assertEquals(0, schedule.feeCents(0));
+        assertEquals(0, schedule.feeCents(3));
+        assertEquals(100, schedule.feeCents(4));
+        assertEquals(700, schedule.feeCents(10));
+    }
+    
+    @Test
+    void feeIsCappedAtMaxFee() {
+        PenaltyProperties.FeeSchedule schedule = schedule(100, 0, 1_000);
+        assertEquals(900, schedule.feeCents(9));
+        assertEquals(1_000, schedule.feeCents(10));
+        assertEquals(1_000, schedule.feeCents(365));
+    }
+    
+    @Test
+    void zeroMaxFeeMeansUncapped() {
+        PenaltyProperties.FeeSchedule schedule = schedule(250, 0, 0);
+        assertEquals(250L * 10_000, schedule.feeCents(10_000));
+    }
+    
+    @Test
+    void defaultScheduleChargesHundredCentsPerDay() {
+        assertEquals(500, new PenaltyProperties.FeeSchedule().feeCents(5));
+    }
+    
+    @Test
+    void genresWithoutScheduleUseTheDefault() {
+        PenaltyProperties properties = new PenaltyProperties();
+        PenaltyProperties.FeeSchedule reference = schedule(500, 0, 5_000);
+        properties.getGenres().put("Reference", reference);
+        
+        assertSame(reference, properties.scheduleFor("Reference"));
+        assertSame(properties.getDefaultSchedule(), properties.scheduleFor("Fantasy"));
+        assertSame(properties.getDefaultSchedule(), properties.scheduleFor(null));
+        assertEquals(1_500, properties.scheduleFor("Reference").feeCents(3));
+        assertEquals(300, properties.scheduleFor("Fantasy").feeCents(3));
+    }
+    
+    private static PenaltyProperties.FeeSchedule schedule(long dailyRateCents, int graceDays, long maxFeeCents) {
+        PenaltyProperties.FeeSchedule schedule = new PenaltyProperties.FeeSchedule();
+        schedule.setDailyRateCents(dailyRateCents);
+        schedule.setGraceDays(graceDays);
+        schedule.setMaxFeeCents(maxFeeCents);
+        return schedule;
+    }
+}
@@ -0,0 +1,30 @@
+package nojf.threegirlslibrary.config;
+
+import nojf.threegirlslibrary.service.BookEnrichmentService;
+import nojf.threegirlslibrary.service.BookService;
+import nojf.threegirlslibrary.service.LoanArchiveService;
+import nojf.threegirlslibrary.service.PenaltyAccrualService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StartupConfigTest {
+    
+    private final LazyInitializationExcludeFilter filter = StartupConfig.eagerScheduledBeans();
+    
+    // Under lazy initialization a job bean is only scheduled if it is created at startup
+    @Test
+    void scheduledJobsStayEager() {
+        assertTrue(filter.isExcluded("penaltyAccrualService", null, PenaltyAccrualService.class));
+        assertTrue(filter.isExcluded("loanArchiveService", null, LoanArchiveService.class));
+        assertTrue(filter.isExcluded("bookEnrichmentService", null, BookEnrichmentService.class));
+    }
+    
+    @Test
+    void requestPathBeansStayLazy() {
+        assertFalse(filter.isExcluded("bookService", null, BookService.class));
+        assertFalse(filter.isExcluded("unknown", null, null));
+    }
+}
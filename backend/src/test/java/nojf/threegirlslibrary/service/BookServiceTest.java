@@ -0,0 +1,92 @@
+package nojf.threegirlslibrary.service;
+
+import nojf.threegirlslibrary.dto.BookSummary;
+import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.repository.BookRepository;
+import nojf.threegirlslibrary.search.FullTextQueries;
+import nojf.threegirlslibrary.util.BatchLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookServiceTest {
+    
+    private final Pageable pageable = PageRequest.of(0, 10);
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private BookService bookService;
+    
+    @BeforeEach
+    void setUp() {
+        @SuppressWarnings("unchecked")
+        BatchLoader<Long, Book> bookLoader = mock(BatchLoader.class);
+        // Constructed without Spring, so the result cache is disabled and every search hits the repository
+        bookService = new BookService(bookRepository, mock(ApplicationEventPublisher.class), bookLoader,
+                                      new SearchResultCache(), mock(CatalogFacetService.class));
+        ReflectionTestUtils.setField(bookService, "searchEngine", "fulltext");
+        ReflectionTestUtils.setField(bookService, "fullTextMode", "boolean");
+        
+        Page<BookSummary> empty = new PageImpl<>(List.of(), pageable, 0);
+        when(bookRepository.searchBooks(anyString(), any())).thenReturn(empty);
+        when(bookRepository.fullTextSearchBooksBoolean(anyString(), any())).thenReturn(empty);
+    }
+    
+    @Test
+    void everyTermIsRequiredAndMatchesAsPrefix() {
+        assertEquals("+harry* +pot*", FullTextQueries.toBooleanQuery("harry pot"));
+        assertEquals("+harry* +potter*", FullTextQueries.toBooleanQuery("  harry   potter "));
+    }
+    
+    @Test
+    void typedOperatorsAreStripped() {
+        assertEquals("+harry* +potter*", FullTextQueries.toBooleanQuery("+harry -potter"));
+        assertEquals("+eighty* +four*", FullTextQueries.toBooleanQuery("\"eighty-four\""));
+        assertEquals("+hobbit*", FullTextQueries.toBooleanQuery("(hobbit*) ~<>@2"));
+    }
+    
+    @Test
+    void stopwordsAndShortTermsAreLeftOut() {
+        assertEquals("+hobbit*", FullTextQueries.toBooleanQuery("the hobbit"));
+        assertEquals("+programming*", FullTextQueries.toBooleanQuery("c programming"));
+        assertEquals("+Lord* +Rings*", FullTextQueries.toBooleanQuery("The Lord of the Rings"));
+    }
+    
+    @Test
+    void nothingLeftIsAnEmptyQuery() {
+        assertEquals("", FullTextQueries.toBooleanQuery(""));
+        assertEquals("", FullTextQueries.toBooleanQuery("+-()*"));
+        assertEquals("", FullTextQueries.toBooleanQuery("it is a c"));
+    }
+    
+    @Test
+    void searchUsesBooleanFullText() {
+        bookService.searchBooks("The Hobbit", pageable);
+        
+        verify(bookRepository).fullTextSearchBooksBoolean("+hobbit*", pageable);
+        verify(bookRepository, never()).searchBooks(anyString(), any());
+    }
+    
+    @Test
+    void emptyBooleanQueryFallsBackToLike() {
+        bookService.searchBooks("The", pageable);
+        bookService.searchBooks("C++", pageable);
+        
+        verify(bookRepository).searchBooks("the", pageable);
+        verify(bookRepository).searchBooks("c++", pageable);
+        verify(bookRepository, never()).fullTextSearchBooksBoolean(anyString(), any());
+    }
+}
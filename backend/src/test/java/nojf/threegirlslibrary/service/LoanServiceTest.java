@@ -0,0 +1,109 @@
+package nojf.threegirlslibrary.service;
+
+import nojf.threegirlslibrary.config.PenaltyProperties;
+import nojf.threegirlslibrary.entity.Book;
+import nojf.threegirlslibrary.entity.Loan;
+import nojf.threegirlslibrary.entity.Penalty;
+import nojf.threegirlslibrary.entity.User;
+import nojf.threegirlslibrary.repository.LoanRepository;
+import nojf.threegirlslibrary.repository.PenaltyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class LoanServiceTest {
+    
+    private static final LocalDateTime DUE = LocalDateTime.of(2026, 3, 1, 12, 0);
+    
+    private PenaltyRepository penaltyRepository;
+    private PenaltyProperties penaltyProperties;
+    private LoanService loanService;
+    
+    @BeforeEach
+    void setUp() {
+        penaltyRepository = mock(PenaltyRepository.class);
+        penaltyProperties = new PenaltyProperties();
+        // 1.00 a day after one day of grace
+        penaltyProperties.getDefaultSchedule().setDailyRateCents(100);
+        penaltyProperties.getDefaultSchedule().setGraceDays(1);
+        loanService = new LoanService(mock(LoanRepository.class), penaltyRepository, mock(UserService.class),
+                                      mock(BookService.class), mock(ApplicationEventPublisher.class), penaltyProperties,
+                                      mock(LoanPolicyService.class));
+    }
+    
+    @Test
+    void lateReturnOpensPenalty() {
+        Loan loan = loan(DUE.plusDays(4));
+        
+        assertEquals(300, loanService.createPenalty(loan));
+        verify(penaltyRepository).save(any(Penalty.class));
+    }
+    
+    @Test
+    void penaltyOpenedByAccrualJobIsUpdatedToTheFinalFee() {
+        Loan loan = loan(DUE.plusDays(6));
+        Penalty penalty = accrued(loan);
+        
+        assertEquals(500, loanService.createPenalty(loan));
+        assertSame(penalty, loan.getPenalty());
+        assertEquals(BigDecimal.valueOf(500, 2), penalty.getAmount());
+        assertEquals(6, penalty.getDaysLate());
+    }
+    
+    @Test
+    void penaltyOpenedByAccrualJobIsDroppedWhenNothingIsOwed() {
+        Loan loan = loan(DUE.plusDays(3));
+        accrued(loan);
+        // Grace raised after the job opened the penalty
+        penaltyProperties.getDefaultSchedule().setGraceDays(7);
+        
+        assertEquals(0, loanService.createPenalty(loan));
+        assertNull(loan.getPenalty());
+        verify(penaltyRepository, never()).save(any(Penalty.class));
+    }
+    
+    @Test
+    void waivedPenaltyIsLeftAlone() {
+        Loan loan = loan(DUE.plusDays(6));
+        Penalty penalty = accrued(loan);
+        penalty.setStatus(Penalty.Status.WAIVED);
+        
+        assertEquals(0, loanService.createPenalty(loan));
+        assertSame(penalty, loan.getPenalty());
+        assertEquals(BigDecimal.valueOf(100, 2), penalty.getAmount());
+    }
+    
+    private static Loan loan(LocalDateTime returnedAt) {
+        Book book = new Book();
+        book.setGenre("Fiction");
+        Loan loan = new Loan();
+        loan.setUser(new User());
+        loan.setBook(book);
+        loan.setDueDate(DUE);
+        loan.setReturnedAt(returnedAt);
+        return loan;
+    }
+    
+    // As the nightly accrual job leaves it after two days late
+    private static Penalty accrued(Loan loan) {
+        Penalty penalty = new Penalty();
+        penalty.setUser(loan.getUser());
+        penalty.setLoan(loan);
+        penalty.setAmount(BigDecimal.valueOf(100, 2));
+        penalty.setDaysLate(2);
+        penalty.setStatus(Penalty.Status.UNPAID);
+        loan.setPenalty(penalty);
+        return penalty;
+    }
+}
@@ -0,0 +1,150 @@
+package nojf.threegirlslibrary.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the client against a local stub of /api/books
+class OpenLibraryClientTest {
+    
+    private static final String HOBBIT = "9780261102361";
+    private static final String NINETEEN_EIGHTY_FOUR = "0451524934";
+    private static final String UNKNOWN = "9780000000002";
+    
+    private static final String BOOKS = """
+        {
+          "ISBN:9780261102361": {
+            "title": "The Hobbit",
+            "excerpts": [{"text": "In a hole in the ground there lived a hobbit."}],
+            "notes": "Not used while there is an excerpt",
+            "cover": {
+              "small": "https://covers.openlibrary.org/b/id/1-S.jpg",
+              "large": "https://covers.openlibrary.org/b/id/1-L.jpg"
+            }
+          },
+          "ISBN:0451524934": {
+            "title": "Nineteen Eighty-Four",
+            "notes": {"type": "/type/text", "value": "Big Brother is watching you."}
+          }
+        }
+        """;
+    
+    private static final long INITIAL_BACKOFF_MILLIS = 50;
+    private static final int MAX_ATTEMPTS = 3;
+    
+    // Statuses of the next responses; 200 with BOOKS once they run out
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private final List<Long> requestNanos = new CopyOnWriteArrayList<>();
+    
+    private HttpServer server;
+    private OpenLibraryClient client;
+    
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/books", exchange -> {
+            requestNanos.add(System.nanoTime());
+            queries.add(exchange.getRequestURI().getQuery());
+            Integer status = statuses.poll();
+            if (status != null) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                byte[] body = BOOKS.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        
+        client = new OpenLibraryClient();
+        ReflectionTestUtils.setField(client, "baseUrl",
+                                     "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "connectTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(client, "readTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(client, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(client, "initialBackoff", Duration.ofMillis(INITIAL_BACKOFF_MILLIS));
+        client.init();
+    }
+    
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+    
+    @Test
+    void batchOfIsbnsIsOneRequest() {
+        Map<String, OpenLibraryClient.Metadata> found = client.fetch(List.of(HOBBIT, NINETEEN_EIGHTY_FOUR, UNKNOWN));
+        
+        assertEquals(1, queries.size());
+        assertTrue(queries.get(0).contains("bibkeys=ISBN:" + HOBBIT + ",ISBN:" + NINETEEN_EIGHTY_FOUR
+                                           + ",ISBN:" + UNKNOWN), queries.get(0));
+        assertTrue(queries.get(0).contains("jscmd=data"), queries.get(0));
+        
+        assertEquals(2, found.size());
+        assertEquals("In a hole in the ground there lived a hobbit.", found.get(HOBBIT).getDescription());
+        assertEquals("https://covers.openlibrary.org/b/id/1-L.jpg", found.get(HOBBIT).getCoverImageUrl());
+        assertEquals("Big Brother is watching you.", found.get(NINETEEN_EIGHTY_FOUR).getDescription());
+        assertNull(found.get(NINETEEN_EIGHTY_FOUR).getCoverImageUrl());
+        assertNull(found.get(UNKNOWN));
+    }
+    
+    @Test
+    void throttlingAndServerErrorsAreRetriedWithGrowingBackoff() {
+        statuses.add(503);
+        statuses.add(429);
+        
+        Map<String, OpenLibraryClient.Metadata> found = client.fetch(List.of(HOBBIT));
+        
+        assertEquals(1, found.size());
+        assertEquals(3, requestNanos.size());
+        // Backoff doubles per attempt, jitter only adds to it
+        assertTrue(millisBetween(0, 1) >= INITIAL_BACKOFF_MILLIS, "first backoff " + millisBetween(0, 1));
+        assertTrue(millisBetween(1, 2) >= 2 * INITIAL_BACKOFF_MILLIS, "second backoff " + millisBetween(1, 2));
+    }
+    
+    @Test
+    void givesUpAfterMaxAttempts() {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            statuses.add(500);
+        }
+        
+        assertThrows(HttpServerErrorException.class, () -> client.fetch(List.of(HOBBIT)));
+        assertEquals(MAX_ATTEMPTS, requestNanos.size());
+    }
+    
+    @Test
+    void clientErrorsAreNotRetried() {
+        statuses.add(404);
+        
+        assertThrows(HttpClientErrorException.class, () -> client.fetch(List.of(HOBBIT)));
+        assertEquals(1, requestNanos.size());
+    }
+    
+    private long millisBetween(int request, int next) {
+        return TimeUnit.NANOSECONDS.toMillis(requestNanos.get(next) - requestNanos.get(request));
+    }
+}
@@ -0,0 +1,90 @@
+package nojf.threegirlslibrary.service;
+
+import nojf.threegirlslibrary.config.PenaltyProperties;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PenaltyAccrualServiceTest {
+    
+    private static final Timestamp NOW = Timestamp.valueOf(LocalDateTime.of(2026, 3, 1, 1, 30));
+    
+    @Test
+    void oneParameterPerPlaceholder() {
+        PenaltyProperties properties = properties();
+        for (int genres = 0; genres <= 2; genres++) {
+            List<String> names = List.of("Reference", "New release").subList(0, genres);
+            String sql = PenaltyAccrualService.accrualSql(genres);
+            Object[] parameters = PenaltyAccrualService.accrualParameters(properties, names, NOW, 1, 2);
+            assertEquals(sql.chars().filter(c -> c == '?').count(), parameters.length);
+        }
+    }
+    
+    @Test
+    void caseBranchesGetTheirGenresFees() {
+        String sql = inline(PenaltyAccrualService.accrualSql(2),
+                            PenaltyAccrualService.accrualParameters(properties(), List.of("Reference", "New release"),
+                                                                    NOW, 1_000, 51_000));
+        
+        assertContains(sql, "CASE b.genre WHEN 'Reference' THEN 500 WHEN 'New release' THEN 200 ELSE 100 END"
+            + " AS rate_cents");
+        assertContains(sql, "CASE b.genre WHEN 'Reference' THEN 0 WHEN 'New release' THEN 2 ELSE 1 END"
+            + " AS grace_days");
+        // maxFeeCents 0 is uncapped, which the DECIMAL(10, 2) amount column stands in for
+        assertContains(sql, "CASE b.genre WHEN 'Reference' THEN 5000 WHEN 'New release' THEN 9999999999"
+            + " ELSE 1500 END AS max_cents");
+        assertContains(sql, "'UNPAID', '" + NOW + "', '" + NOW + "' FROM");
+        assertContains(sql, "TIMESTAMPDIFF(DAY, l.due_date, '" + NOW + "')");
+        assertContains(sql, "l.due_date < '" + NOW + "' AND l.id >= 1000 AND l.id < 51000)");
+    }
+    
+    @Test
+    void withoutGenreSchedulesOnlyTheDefaultApplies() {
+        String sql = inline(PenaltyAccrualService.accrualSql(0),
+                            PenaltyAccrualService.accrualParameters(properties(), List.of(), NOW, 1, 2));
+        
+        assertContains(sql, "100 AS rate_cents, 1 AS grace_days, 1500 AS max_cents");
+        assertContains(sql, "l.id >= 1 AND l.id < 2)");
+    }
+    
+    private static PenaltyProperties properties() {
+        PenaltyProperties properties = new PenaltyProperties();
+        properties.setDefaultSchedule(schedule(100, 1, 1_500));
+        properties.getGenres().put("Reference", schedule(500, 0, 5_000));
+        properties.getGenres().put("New release", schedule(200, 2, 0));
+        return properties;
+    }
+    
+    private static PenaltyProperties.FeeSchedule schedule(long dailyRateCents, int graceDays, long maxFeeCents) {
+        PenaltyProperties.FeeSchedule schedule = new PenaltyProperties.FeeSchedule();
+        schedule.setDailyRateCents(dailyRateCents);
+        schedule.setGraceDays(graceDays);
+        schedule.setMaxFeeCents(maxFeeCents);
+        return schedule;
+    }
+    
+    // The statement with every placeholder replaced by its parameter, strings and timestamps quoted
+    private static String inline(String sql, Object[] parameters) {
+        StringBuilder inlined = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c != '?') {
+                inlined.append(c);
+            } else {
+                Object value = parameters[parameter++];
+                inlined.append(value instanceof Number ? value.toString() : "'" + value + "'");
+            }
+        }
+        assertEquals(parameters.length, parameter);
+        return inlined.toString();
+    }
+    
+    private static void assertContains(String sql, String expected) {
+        assertTrue(sql.contains(expected), () -> "Expected " + expected + " in " + sql);
+    }
+}
@@ -0,0 +1,97 @@
+package nojf.threegirlslibrary.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchResultCacheTest {
+    
+    private static final SearchResultCache.Key KEY = new SearchResultCache.Key("hobbit", 0, 20, "title");
+    private static final SearchResultCache.Ids IDS = new SearchResultCache.Ids(List.of(1L, 2L), 2);
+    
+    private SearchResultCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+    }
+    
+    @Test
+    void loadsOnceAndServesHits() {
+        AtomicInteger loads = new AtomicInteger();
+        
+        cache.get(KEY, () -> {
+            loads.incrementAndGet();
+            return IDS;
+        });
+        SearchResultCache.Ids second = cache.get(KEY, () -> {
+            loads.incrementAndGet();
+            return IDS;
+        });
+        
+        assertSame(IDS, second);
+        assertEquals(1, loads.get());
+    }
+    
+    @Test
+    void failedLoadIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> cache.get(KEY, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        
+        assertSame(IDS, cache.get(KEY, () -> IDS));
+    }
+    
+    @Test
+    void errorInLoaderReachesWaitersAndIsNotCached() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SearchResultCache.Ids> leader = executor.submit(() -> cache.get(KEY, () -> {
+                loading.countDown();
+                await(release);
+                throw new StackOverflowError();
+            }));
+            loading.await(5, TimeUnit.SECONDS);
+            Future<SearchResultCache.Ids> waiter = executor.submit(() -> cache.get(KEY, () -> IDS));
+            // Give the waiter time to join the leader's load before it fails
+            Thread.sleep(100);
+            release.countDown();
+            
+            assertEquals(StackOverflowError.class,
+                         assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause().getClass());
+            assertEquals(StackOverflowError.class,
+                         assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS)).getCause().getClass());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // Without cleanup the failed entry would stay and every later lookup would rethrow
+        assertSame(IDS, cache.get(KEY, () -> IDS));
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
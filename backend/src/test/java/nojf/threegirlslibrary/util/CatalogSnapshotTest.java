@@ -0,0 +1,156 @@
+package nojf.threegirlslibrary.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotTest {
+    
+    private static final int HEADER_SIZE = 36;
+    private static final int RECORD_SIZE = 24;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void roundTrip() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        long before = System.currentTimeMillis();
+        try (CatalogSnapshot.Writer writer = new CatalogSnapshot.Writer(file, 42)) {
+            writer.add(7, 1937, 3, "Fantasy", "The Hobbit\nJ.R.R. Tolkien");
+            writer.add(9, -50, 0, "Poesía", "Cien años de soledad\nGabriel García Márquez");
+            writer.finish();
+        }
+        
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertEquals(42, snapshot.getCatalogVersion());
+        assertTrue(snapshot.getCreatedAt() >= before && snapshot.getCreatedAt() <= System.currentTimeMillis());
+        assertEquals(2, snapshot.size());
+        
+        assertEquals(7, snapshot.bookId(0));
+        assertEquals(1937, snapshot.publishedYear(0));
+        assertEquals(3, snapshot.availableCopies(0));
+        assertEquals("Fantasy", snapshot.genre(0));
+        assertEquals("The Hobbit\nJ.R.R. Tolkien", snapshot.text(0));
+        
+        assertEquals(9, snapshot.bookId(1));
+        assertEquals(-50, snapshot.publishedYear(1));
+        assertEquals(0, snapshot.availableCopies(1));
+        assertEquals("Poesía", snapshot.genre(1));
+        assertEquals("Cien años de soledad\nGabriel García Márquez", snapshot.text(1));
+    }
+    
+    @Test
+    void nullsAreStoredAsNoYearAndMinusOne() throws IOException {
+        Path file = write(writer -> writer.add(1, null, 1, null, null));
+        
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertNull(snapshot.publishedYear(0));
+        assertNull(snapshot.genre(0));
+        assertNull(snapshot.text(0));
+        
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(Integer.MIN_VALUE, bytes.getInt(HEADER_SIZE + 8));
+        assertEquals(-1, bytes.getInt(HEADER_SIZE + 16));
+        assertEquals(-1, bytes.getInt(HEADER_SIZE + 20));
+        assertEquals(HEADER_SIZE + RECORD_SIZE, bytes.limit());
+    }
+    
+    @Test
+    void repeatedGenresAreStoredOnce() throws IOException {
+        Path file = write(writer -> {
+            writer.add(1, 2001, 1, "Fantasy", null);
+            writer.add(2, 2002, 1, "Horror", null);
+            writer.add(3, 2003, 1, "Fantasy", null);
+        });
+        
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertEquals("Fantasy", snapshot.genre(0));
+        assertEquals("Horror", snapshot.genre(1));
+        assertEquals("Fantasy", snapshot.genre(2));
+        
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(bytes.getInt(HEADER_SIZE + 16), bytes.getInt(HEADER_SIZE + 2 * RECORD_SIZE + 16));
+        int pool = (4 + "Fantasy".length()) + (4 + "Horror".length());
+        assertEquals(HEADER_SIZE + 3 * RECORD_SIZE + pool, bytes.limit());
+    }
+    
+    @Test
+    void emptyCatalog() throws IOException {
+        Path file = write(writer -> {
+        });
+        
+        assertEquals(0, CatalogSnapshot.open(file).size());
+    }
+    
+    @Test
+    void truncatedSnapshotIsRejected() throws IOException {
+        Path file = write(writer -> {
+            writer.add(1, 2001, 1, "Fantasy", "Title");
+            writer.add(2, 2002, 1, "Fantasy", "Other title");
+        });
+        byte[] bytes = Files.readAllBytes(file);
+        
+        Files.write(file, Arrays.copyOf(bytes, HEADER_SIZE + RECORD_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.open(file));
+        
+        Files.write(file, Arrays.copyOf(bytes, HEADER_SIZE - 1));
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.open(file));
+    }
+    
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        Files.write(file, "not a catalog snapshot, just some text".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.open(file));
+        
+        // Right magic, other format
+        byte[] bytes = Files.readAllBytes(write(writer -> writer.add(1, 2001, 1, "Fantasy", "Title")));
+        ByteBuffer.wrap(bytes).putInt(4, 2);
+        Files.write(file, bytes);
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.open(file));
+    }
+    
+    @Test
+    void unfinishedWriterKeepsThePreviousSnapshot() throws IOException {
+        Path file = write(writer -> writer.add(1, 2001, 1, "Fantasy", "Title"));
+        
+        try (CatalogSnapshot.Writer writer = new CatalogSnapshot.Writer(file, 2)) {
+            writer.add(2, 2002, 1, "Horror", "Other title");
+        }
+        
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertEquals(1, snapshot.getCatalogVersion());
+        assertEquals(1, snapshot.bookId(0));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+    
+    private Path write(Books books) throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        try (CatalogSnapshot.Writer writer = new CatalogSnapshot.Writer(file, 1)) {
+            books.addTo(writer);
+            writer.finish();
+        }
+        return file;
+    }
+    
+    @FunctionalInterface
+    private interface Books {
+        void addTo(CatalogSnapshot.Writer writer) throws IOException;
+    }
+}
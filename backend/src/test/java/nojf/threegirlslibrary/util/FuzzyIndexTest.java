@@ -0,0 +1,99 @@
+package nojf.threegirlslibrary.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FuzzyIndexTest {
+    
+    private final FuzzyIndex index = new FuzzyIndex();
+    
+    @BeforeEach
+    void addBooks() {
+        index.add(0, "The Hobbit\nJ.R.R. Tolkien", "978-0-261-10236-1");
+        index.add(1, "Nineteen Eighty-Four\nGeorge Orwell", "0451524934");
+        index.add(2, "Cien años de soledad\nGabriel García Márquez", null);
+        index.add(3, "The Old Man and the Sea\nErnest Hemingway", "0684801221");
+        index.add(4, "Summer of 1984\nAnna Field", null);
+        index.add(5, "Silent Spring\nRachel Carson", null);
+        index.add(6, "Silent Sprint\nRachel Carlson", null);
+    }
+    
+    @Test
+    void distanceCountsSwapsOfAdjacentLettersAsOneEdit() {
+        assertEquals(0, FuzzyIndex.distance("tolkien", "tolkien", 1));
+        assertEquals(1, FuzzyIndex.distance("tolkein", "tolkien", 1));
+        assertEquals(1, FuzzyIndex.distance("hobit", "hobbit", 1));
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting", 3));
+    }
+    
+    @Test
+    void distanceGivesUpAtMaxPlusOne() {
+        assertEquals(2, FuzzyIndex.distance("kitten", "sitting", 1));
+        assertEquals(2, FuzzyIndex.distance("hobbit", "orwell", 1));
+        assertEquals(3, FuzzyIndex.distance("tolkien", "tolkienesque", 2));
+        assertEquals(1, FuzzyIndex.distance("abc", "abd", 0));
+    }
+    
+    @Test
+    void longerWordsAllowMoreEdits() {
+        assertEquals(0, FuzzyIndex.maxDistance(3));
+        assertEquals(1, FuzzyIndex.maxDistance(4));
+        assertEquals(1, FuzzyIndex.maxDistance(7));
+        assertEquals(2, FuzzyIndex.maxDistance(8));
+    }
+    
+    @Test
+    void wordsAreFoldedAndDistinct() {
+        assertEquals(List.of("garcia", "marquez"), FuzzyIndex.words("García Márquez, GARCIA!"));
+        assertEquals(List.of("j", "r", "tolkien"), FuzzyIndex.words("J.R.R. Tolkien"));
+        assertEquals(List.of(), FuzzyIndex.words(null));
+    }
+    
+    @Test
+    void typosFindTheBook() {
+        assertArrayEquals(new int[] {0}, index.search("tolkein", doc -> true));
+        assertArrayEquals(new int[] {0}, index.search("hobit tolkien", doc -> true));
+        assertArrayEquals(new int[] {1}, index.search("orwel", doc -> true));
+        assertArrayEquals(new int[] {2}, index.search("garcia marquez", doc -> true));
+        assertArrayEquals(new int[] {3}, index.search("hemmingway sea", doc -> true));
+    }
+    
+    @Test
+    void shortWordsAndNumbersOnlyMatchExactly() {
+        assertArrayEquals(new int[] {4}, index.search("1984", doc -> true));
+        assertArrayEquals(new int[0], index.search("1985", doc -> true));
+        assertArrayEquals(new int[0], index.search("sae", doc -> true));
+    }
+    
+    @Test
+    void everyWordMustMatch() {
+        assertArrayEquals(new int[] {0, 3}, index.search("the", doc -> true));
+        assertArrayEquals(new int[0], index.search("hobbit orwell", doc -> true));
+    }
+    
+    @Test
+    void fewerEditsRankFirst() {
+        assertArrayEquals(new int[] {5, 6}, index.search("silent spring carson", doc -> true));
+        assertArrayEquals(new int[] {6, 5}, index.search("silent sprint carlson", doc -> true));
+        // Tied scores keep document order
+        assertArrayEquals(new int[] {5, 6}, index.search("rachel silent", doc -> true));
+    }
+    
+    @Test
+    void deadDocumentsAreSkipped() {
+        assertArrayEquals(new int[] {6}, index.search("silent spring", doc -> doc != 5));
+    }
+    
+    @Test
+    void isbnQueriesMatchEitherFormAndCorrectTypos() {
+        assertArrayEquals(new int[] {0}, index.search("9780261102361", doc -> true));
+        assertArrayEquals(new int[] {0}, index.search("0-261-10236-2", doc -> true));
+        assertArrayEquals(new int[] {1}, index.search("978-0-451-52493-5", doc -> true));
+        assertArrayEquals(new int[] {1}, index.search("0451524943", doc -> true));
+    }
+}
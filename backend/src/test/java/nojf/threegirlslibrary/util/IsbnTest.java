@@ -0,0 +1,78 @@
+package nojf.threegirlslibrary.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsbnTest {
+    
+    @Test
+    void normalizeKeepsDigitsAndCheckX() {
+        assertEquals("9780261102361", Isbn.normalize("978-0-261-10236-1"));
+        assertEquals("080442957X", Isbn.normalize("0 8044 2957 x"));
+        assertEquals("", Isbn.normalize(null));
+    }
+    
+    @Test
+    void isbn10AndIsbn13ShareTheirBody() {
+        assertEquals("978045152493", Isbn.body("0451524934"));
+        assertEquals("978045152493", Isbn.body("978-0-451-52493-5"));
+        assertEquals("978026110236", Isbn.body("0-261-10236-2"));
+        assertEquals("978026110236", Isbn.body("9780261102361"));
+        assertEquals("978080442957", Isbn.body("0-8044-2957-X"));
+    }
+    
+    @Test
+    void bodyIsNullForWrongLengths() {
+        assertNull(Isbn.body("12345"));
+        assertNull(Isbn.body("978026110236"));
+        assertNull(Isbn.body("97802611023610"));
+        assertNull(Isbn.body("X451524934"));
+    }
+    
+    @Test
+    void looksLikeIsbnIgnoresCheckDigit() {
+        assertTrue(Isbn.looksLikeIsbn("978-0-261-10236-1"));
+        assertTrue(Isbn.looksLikeIsbn("978 0 261 10236 9"));
+        assertTrue(Isbn.looksLikeIsbn("080442957x"));
+        assertFalse(Isbn.looksLikeIsbn("1984"));
+        assertFalse(Isbn.looksLikeIsbn("tolkien 9780261102361"));
+        assertFalse(Isbn.looksLikeIsbn(null));
+    }
+    
+    @Test
+    void validIsbnHasOnlyItsOwnBody() {
+        assertEquals(List.of("978026110236"), Isbn.candidateBodies("978-0-261-10236-1"));
+        assertEquals(List.of("978080442957"), Isbn.candidateBodies("080442957X"));
+    }
+    
+    @Test
+    void candidatesCorrectOneMistypedDigit() {
+        List<String> bodies = Isbn.candidateBodies("978-0-261-10286-1");
+        assertEquals("978026110286", bodies.get(0));
+        assertTrue(bodies.contains("978026110236"));
+        
+        // Wrong check digit: the body as typed is itself a candidate
+        assertEquals("978026110236", Isbn.candidateBodies("978-0-261-10236-9").get(0));
+    }
+    
+    @Test
+    void candidatesCorrectOneSwapOfAdjacentDigits() {
+        List<String> bodies = Isbn.candidateBodies("0451524943");
+        assertEquals("978045152494", bodies.get(0));
+        assertTrue(bodies.contains("978045152493"));
+        
+        assertTrue(Isbn.candidateBodies("9780261120361").contains("978026110236"));
+    }
+    
+    @Test
+    void noCandidatesForTextThatIsNoIsbn() {
+        assertTrue(Isbn.candidateBodies("not an isbn").isEmpty());
+        assertTrue(Isbn.candidateBodies("97802611").isEmpty());
+    }
+}
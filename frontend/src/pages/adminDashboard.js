@@ -37,6 +37,8 @@ import { booksAPI, usersAPI, loansAPI, penaltiesAPI } from "../services/api";
 const { Content } = Layout;
 const { TabPane } = Tabs;
 
+const USER_PAGE_SIZE = 10;
+
 const AdminDashboard = () => {
   const navigate = useNavigate();
   const [activeTab, setActiveTab] = useState("overview");
@@ -59,8 +61,12 @@ const AdminDashboard = () => {
   const [bookLoading, setBookLoading] = useState(false);
   const [bookForm] = Form.useForm();
 
-  // User Management State
+  // User Management State — searched and paged by the backend (GET /users/search)
   const [users, setUsers] = useState([]);
+  const [userQuery, setUserQuery] = useState("");
+  const [userPage, setUserPage] = useState(1);
+  const [userTotal, setUserTotal] = useState(0);
+  const [usersLoading, setUsersLoading] = useState(false);
 
   // Loans Management State
   const [loans, setLoans] = useState([]);
@@ -115,17 +121,38 @@ const AdminDashboard = () => {
     }
   };
 
-  const loadUsers = async () => {
+  const loadUsers = async (query = userQuery, page = userPage) => {
+    setUsersLoading(true);
     try {
-      const res = await usersAPI.getAll();
-      const userList = res.data;
-      setUsers(userList.map((u) => ({ ...u, key: u.id })));
-      setStats((prev) => ({ ...prev, totalUsers: userList.length }));
+      const res = await usersAPI.search(query.trim(), {
+        page: page - 1,
+        size: USER_PAGE_SIZE,
+      });
+      const total = res.data.totalElements ?? res.data.page?.totalElements ?? 0;
+      setUsers(res.data.content.map((u) => ({ ...u, key: u.id })));
+      setUserTotal(total);
+      // Without a query the total is every account
+      if (!query.trim()) {
+        setStats((prev) => ({ ...prev, totalUsers: total }));
+      }
     } catch (e) {
       message.error("Failed to load users");
+    } finally {
+      setUsersLoading(false);
     }
   };
 
+  const handleUserSearch = (value) => {
+    setUserQuery(value);
+    setUserPage(1);
+    loadUsers(value, 1);
+  };
+
+  const handleUserPageChange = (page) => {
+    setUserPage(page);
+    loadUsers(userQuery, page);
+  };
+
   const loadLoans = async () => {
     try {
       const [loansRes, overdueRes, penaltiesRes] = await Promise.all([
@@ -242,9 +269,18 @@ const AdminDashboard = () => {
     setIsBookModalVisible(true);
   };
 
-  const handleEditBook = (book) => {
-    setEditingBook(book);
-    bookForm.setFieldsValue(book);
+  // The book list leaves out descriptions, so load the whole book before editing it
+  const handleEditBook = async (book) => {
+    let fullBook;
+    try {
+      const { data } = await booksAPI.getById(book.id);
+      fullBook = data;
+    } catch (e) {
+      message.error("Failed to load book details");
+      return;
+    }
+    setEditingBook(fullBook);
+    bookForm.setFieldsValue(fullBook);
     setIsBookModalVisible(true);
   };
 
@@ -693,27 +729,26 @@ const AdminDashboard = () => {
             {/* Manage Users Tab */}
             <TabPane tab="Manage Users" key="users">
               <div style={{ marginBottom: "16px" }}>
-                <Input
-                  placeholder="Search by name or email..."
-                  prefix={<SearchOutlined />}
-                  value={searchText}
-                  onChange={(e) => setSearchText(e.target.value)}
+                <Input.Search
+                  placeholder="Search by name, email or phone..."
+                  value={userQuery}
+                  onChange={(e) => setUserQuery(e.target.value)}
+                  onSearch={handleUserSearch}
                   style={{ width: "300px" }}
                   allowClear
                 />
               </div>
               <Table
                 columns={userColumns}
-                dataSource={users.filter(
-                  (user) =>
-                    user.fullName
-                      ?.toLowerCase()
-                      .includes(searchText.toLowerCase()) ||
-                    user.email
-                      ?.toLowerCase()
-                      .includes(searchText.toLowerCase()),
-                )}
-                pagination={{ pageSize: 10 }}
+                dataSource={users}
+                loading={usersLoading}
+                pagination={{
+                  current: userPage,
+                  pageSize: USER_PAGE_SIZE,
+                  total: userTotal,
+                  showSizeChanger: false,
+                  onChange: handleUserPageChange,
+                }}
                 scroll={{ x: "max-content" }}
               />
             </TabPane>
@@ -835,7 +870,7 @@ const AdminDashboard = () => {
             <Form.Item name="description" label="Description">
               <Input.TextArea
                 rows={3}
-                placeholder="Book description (optional — will be fetched from Open Library via ISBN)"
+                placeholder="Book description (optional — if left blank, filled in from Open Library by ISBN)"
               />
             </Form.Item>
             <Form.Item>
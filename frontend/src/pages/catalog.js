@@ -20,10 +20,7 @@ import BookCard from "../components/book/bookcard";
 import BookDetailModal from "../components/book/bookDetails";
 import { useNavigate } from "react-router-dom";
 import { booksAPI, loansAPI } from "../services/api";
-import {
-  enrichBooksWithCovers,
-  getDescriptionByISBN,
-} from "../services/openLibrary";
+import { enrichBooksWithCovers } from "../services/openLibrary";
 
 const { Content } = Layout;
 const { Title, Text } = Typography;
@@ -48,6 +45,30 @@ const Catalog = () => {
     loadBooks();
   }, []);
 
+  // Keep availableCopies current without polling; reload after a reconnect in case
+  // changes were missed while disconnected
+  useEffect(() => {
+    let connected = false;
+    const unsubscribe = booksAPI.subscribeAvailability(applyAvailability, () => {
+      if (connected) {
+        loadBooks();
+      }
+      connected = true;
+    });
+    return unsubscribe;
+  }, []);
+
+  const applyAvailability = (changes) => {
+    const copies = new Map(changes);
+    const update = (book) =>
+      copies.has(book.id)
+        ? { ...book, availableCopies: copies.get(book.id) }
+        : book;
+    setAllBooks((prev) => prev.map(update));
+    setBooks((prev) => prev.map(update));
+    setSelectedBook((prev) => (prev ? update(prev) : prev));
+  };
+
   const loadBooks = async () => {
     setLoading(true);
     try {
@@ -72,6 +93,7 @@ const Catalog = () => {
           label: g === "all" ? "All Genres" : g,
         })),
       );
+      loadGenreFacets();
     } catch (error) {
       console.error("Error loading books:", error);
       message.error("Failed to load books. Is the backend running?");
@@ -80,6 +102,24 @@ const Catalog = () => {
     }
   };
 
+  // Genre options with counts for the whole catalog (or the search), e.g. "Fiction (1,204)";
+  // keeps the plain list when facets are unavailable
+  const loadGenreFacets = async (keyword) => {
+    try {
+      const response = await booksAPI.getFacets({ keyword });
+      const { total, genres: counts } = response.data;
+      setGenres([
+        { value: "all", label: `All Genres (${total.toLocaleString()})` },
+        ...Object.entries(counts).map(([g, count]) => ({
+          value: g,
+          label: `${g} (${count.toLocaleString()})`,
+        })),
+      ]);
+    } catch (error) {
+      console.error("Error loading genre counts:", error);
+    }
+  };
+
   const handleSearch = async (value) => {
     const keyword = value?.trim() || searchInput.trim();
     if (!keyword) {
@@ -89,11 +129,19 @@ const Catalog = () => {
     setLoading(true);
     setCurrentPage(1);
     try {
-      const response = await booksAPI.search(keyword, 0, 100);
-      const rawBooks = response.data.content || response.data;
+      let response = await booksAPI.search(keyword, 0, 100);
+      let rawBooks = response.data.content || response.data;
+      // Nothing matched as typed, so look for close spellings (e.g. "tolkein")
+      const fuzzy = rawBooks.length === 0;
+      if (fuzzy) {
+        response = await booksAPI.search(keyword, 0, 100, true);
+        rawBooks = response.data.content || response.data;
+      }
       const enriched = enrichBooksWithCovers(rawBooks);
       setBooks(enriched);
+      loadGenreFacets(keyword);
       if (enriched.length === 0) message.info("No books found.");
+      else if (fuzzy) message.info(`No exact matches, showing ${enriched.length} close matches.`);
       else message.success(`Found ${enriched.length} books!`);
     } catch (error) {
       message.error("Search failed. Please try again.");
@@ -117,22 +165,21 @@ const Catalog = () => {
     setSelectedGenre("all");
     setCurrentPage(1);
     setBooks(allBooks);
+    loadGenreFacets();
   };
 
-  // View book details — fetch description from Open Library by ISBN
+  // View book details — reload the book for a description filled in by the backend
   const handleBookClick = async (book) => {
     setSelectedBook(book);
     setIsModalVisible(true);
 
-    if (book.isbn && !book.description) {
+    if (!book.description) {
       setLoadingDetails(true);
       try {
-        const { getDescriptionByISBN } =
-          await import("../services/openLibrary");
-        const desc = await getDescriptionByISBN(book.isbn);
+        const { data } = await booksAPI.getById(book.id);
         setSelectedBook((prev) => ({
           ...prev,
-          description: desc || book.description || "No description available.",
+          description: data.description || "No description available.",
         }));
       } catch (e) {
         // description not critical
@@ -154,8 +201,7 @@ const Catalog = () => {
       await loansAPI.borrow({ bookId: book.id });
       message.success(`"${book.title}" borrowed successfully! Due in 14 days.`);
       setIsModalVisible(false);
-      // Refresh books to update availableCopies
-      loadBooks();
+      // availableCopies is updated by the availability stream
     } catch (error) {
       if (error.response?.status === 400) {
         message.error(
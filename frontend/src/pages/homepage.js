@@ -5,10 +5,7 @@ import { useNavigate } from "react-router-dom";
 import BookCardHorizontal from "../components/book/BookCardHorizontal";
 import BookDetailModal from "../components/book/bookDetails";
 import { booksAPI, loansAPI } from "../services/api";
-import {
-  enrichBooksWithCovers,
-  getDescriptionByISBN,
-} from "../services/openLibrary";
+import { enrichBooksWithCovers } from "../services/openLibrary";
 
 const { Content } = Layout;
 const { Title } = Typography;
@@ -68,14 +65,14 @@ const HomePage = () => {
     setSelectedBook(book);
     setIsModalVisible(true);
 
-    // Fetch description from Open Library if not already available
-    if (book.isbn && !book.description) {
+    // Descriptions are filled in from Open Library by the backend, reload the book to pick them up
+    if (!book.description) {
       setLoadingDetails(true);
       try {
-        const desc = await getDescriptionByISBN(book.isbn);
+        const { data } = await booksAPI.getById(book.id);
         setSelectedBook((prev) => ({
           ...prev,
-          description: desc || "No description available.",
+          description: data.description || "No description available.",
         }));
       } catch (e) {
         // not critical
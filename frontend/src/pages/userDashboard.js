@@ -20,7 +20,7 @@ import {
   CheckCircleOutlined,
 } from "@ant-design/icons";
 import { useNavigate } from "react-router-dom";
-import { loansAPI, penaltiesAPI } from "../services/api";
+import { booksAPI, loansAPI, penaltiesAPI } from "../services/api";
 
 const { Content } = Layout;
 
@@ -60,6 +60,16 @@ const UserDashboard = () => {
       const loans = loansResponse.data || [];
       const penalties = penaltiesResponse.data || [];
 
+      // Titles and authors of all loaned books in one request instead of one per loan
+      const bookIds = [
+        ...new Set(loans.map((loan) => loan.book?.id ?? loan.bookId).filter(Boolean)),
+      ];
+      const booksById = new Map();
+      for (let i = 0; i < bookIds.length; i += 100) {
+        const { data } = await booksAPI.getByIds(bookIds.slice(i, i + 100));
+        data.forEach((book) => booksById.set(book.id, book));
+      }
+
       console.log("Loans:", loans); // DEBUG
       console.log("Penalties:", penalties); // DEBUG
 
@@ -82,8 +92,16 @@ const UserDashboard = () => {
       const formattedLoans = loans.map((loan) => ({
         key: loan.id,
         id: loan.id,
-        bookTitle: loan.book?.title || loan.bookTitle || "N/A",
-        author: loan.book?.author || loan.author || "N/A",
+        bookTitle:
+          booksById.get(loan.book?.id ?? loan.bookId)?.title ||
+          loan.book?.title ||
+          loan.bookTitle ||
+          "N/A",
+        author:
+          booksById.get(loan.book?.id ?? loan.bookId)?.author ||
+          loan.book?.author ||
+          loan.author ||
+          "N/A",
         borrowingDate: loan.borrowedAt,
         dueDate: loan.dueDate,
         returnDate: loan.returnedAt,
@@ -44,6 +44,35 @@ const getCurrentUserId = () => {
   return null;
 };
 
+// Sends a mutation with one Idempotency-Key for all its attempts, so a retry after a
+// timeout or dropped connection is answered with the original result instead of
+// borrowing (or returning, or waiving) twice
+const newIdempotencyKey = () => {
+  if (window.crypto?.randomUUID) {
+    return window.crypto.randomUUID();
+  }
+  return `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}${Math.random().toString(36).slice(2)}`;
+};
+
+const isRetryable = (error) =>
+  !error.response || error.response.status >= 500 || error.response.status === 429;
+
+const idempotent = async (request, attempts = 3) => {
+  const headers = { 'Idempotency-Key': newIdempotencyKey() };
+  for (let attempt = 1; ; attempt++) {
+    try {
+      return await request({ headers });
+    } catch (error) {
+      if (attempt >= attempts || !isRetryable(error)) {
+        throw error;
+      }
+      const retryAfter = Number(error.response?.headers?.['retry-after']);
+      const delay = retryAfter > 0 ? retryAfter * 1000 : 500 * 2 ** (attempt - 1);
+      await new Promise(resolve => setTimeout(resolve, delay));
+    }
+  }
+};
+
 export const authAPI = {
   register: (userData) => API.post('/auth/register', userData),
   login: (credentials) => API.post('/auth/login', credentials),
@@ -56,17 +85,48 @@ export const booksAPI = {
     API.get('/books', { params: { page, size, sortBy } }),
   // Get book by ID
   getById: (id) => API.get(`/books/${id}`),
+  // Get several books in one request (at most 100 ids)
+  getByIds: (ids) => API.get('/books', { params: { ids: ids.join(',') } }),
+  // Listen for availableCopies changes pushed by the server. onChange gets
+  // [[bookId, availableCopies], ...]; onReady is called on every (re)connect, when
+  // changes may have been missed. Returns a function that closes the stream.
+  subscribeAvailability: (onChange, onReady) => {
+    const source = new EventSource(`${API.defaults.baseURL}/books/stream`);
+    source.addEventListener('availability', (event) => onChange(JSON.parse(event.data)));
+    if (onReady) {
+      source.addEventListener('ready', () => onReady());
+    }
+    return () => source.close();
+  },
+  // Get "patrons who borrowed this also borrowed" recommendations
+  getRelated: (id, limit = 10) => API.get(`/books/${id}/related`, { params: { limit } }),
+  // Get books popular right now (window: hour, day or week)
+  getTrending: (window = 'day', limit = 10) => API.get('/books/trending', { params: { window, limit } }),
   // Search books
-  search: (keyword, page = 0, size = 10) => 
-    API.get('/books/search', { params: { keyword, page, size } }),
+  search: (keyword, page = 0, size = 10, fuzzy = false) => 
+    API.get('/books/search', { params: { keyword, page, size, fuzzy } }),
   // Get available books
   getAvailable: () => API.get('/books/available'),
   // Get all genres
   getGenres: () => API.get('/books/genres'),
+  // Books added, changed or deleted since a catalog version (0 = everything)
+  getChanges: (since = 0, limit = 500) =>
+    API.get('/books/changes', { params: { since, limit } }),
+  // Counts by genre, decade, author initial and availability for a keyword and filters
+  getFacets: ({ keyword, genre, decade, authorInitial, available } = {}) =>
+    API.get('/books/facets', { params: { keyword, genre, decade, authorInitial, available } }),
   // Create book (ADMIN only)
   create: (bookData) => API.post('/books', bookData),
   // Update book (ADMIN only)
   update: (id, bookData) => API.put(`/books/${id}`, bookData),
+  // Upload a cover image (admin only)
+  uploadCover: (id, file) => {
+    const formData = new FormData();
+    formData.append('file', file);
+    return API.post(`/books/${id}/cover`, formData, {
+      headers: { 'Content-Type': 'multipart/form-data' },
+    });
+  },
   // Delete book (ADMIN only)
   delete: (id) => API.delete(`/books/${id}`),
 };
@@ -80,6 +140,14 @@ export const loansAPI = {
     }
     return API.get(`/loans/user/${userId}`);
   },
+  // Get my loan history one page at a time, newest first (includes archived loans)
+  getMyHistory: (page = 0, size = 20) => {
+    const userId = getCurrentUserId();
+    if (!userId) {
+      return Promise.reject(new Error('User ID not found'));
+    }
+    return API.get(`/loans/user/${userId}/history`, { params: { page, size } });
+  },
   // Get my active loans only
   getMyActive: () => {
     const userId = getCurrentUserId();
@@ -95,9 +163,9 @@ export const loansAPI = {
   // Get overdue loans (ADMIN only)
   getOverdue: () => API.get('/loans/overdue'),
   // Borrow a book
-  borrow: (loanData) => API.post('/loans/borrow', loanData),
+  borrow: (loanData) => idempotent(config => API.post('/loans/borrow', loanData, config)),
   // Return a book (ADMIN only)
-  returnBook: (id) => API.put(`/loans/${id}/return`),
+  returnBook: (id) => idempotent(config => API.put(`/loans/${id}/return`, null, config)),
 };
 
 export const penaltiesAPI = {
@@ -130,7 +198,7 @@ export const penaltiesAPI = {
   // Get all penalties (ADMIN only)
   getAll: () => API.get('/penalties'),
   // Waive a penalty (ADMIN only)
-  waive: (id) => API.put(`/penalties/${id}/waive`),
+  waive: (id) => idempotent(config => API.put(`/penalties/${id}/waive`, null, config)),
 };
 
 export const reservationsAPI = {
@@ -147,6 +215,11 @@ export const usersAPI = {
   getAll: () => API.get('/users'),
   // Get user by ID (ADMIN only)
   getById: (id) => API.get(`/users/${id}`),
+  // Get several users in one request (ADMIN only, at most 100 ids)
+  getByIds: (ids) => API.get('/users', { params: { ids: ids.join(',') } }),
+  // Search by name, email or phone, optionally by status/role (ADMIN only, paged)
+  search: (q, { status, role, page = 0, size = 20 } = {}) =>
+    API.get('/users/search', { params: { q, status, role, page, size } }),
   // Get user by email (ADMIN only)
   getByEmail: (email) => API.get(`/users/email/${email}`),
   // Get all patrons (ADMIN only)
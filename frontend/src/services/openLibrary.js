@@ -4,6 +4,8 @@
 // Our DB manages the real book inventory (total_copies, available_copies).
 // Open Library only provides supplementary display info.
 
+import API from "./api";
+
 const OPEN_LIBRARY_BASE_URL = "https://openlibrary.org";
 const OPEN_LIBRARY_COVERS_URL = "https://covers.openlibrary.org";
 
@@ -49,6 +51,17 @@ export const getDescriptionByISBN = async (isbn) => {
   }
 };
 
+/**
+ * Covers uploaded to our backend are stored as paths like /books/covers/{hash},
+ * relative to the API base URL; external URLs are returned as they are.
+ * @param {string} url
+ * @returns {string|null}
+ */
+export const resolveCoverUrl = (url) => {
+  if (!url) return null;
+  return url.startsWith("/") ? `${API.defaults.baseURL}${url}` : url;
+};
+
 /**
  * Enrich a book with cover image URL from Open Library using ISBN.
  * Cover image URL is generated instantly (no API call).
@@ -56,7 +69,7 @@ export const getDescriptionByISBN = async (isbn) => {
  * @returns {Object} - Same book with coverImageUrl filled in if missing
  */
 export const enrichBookWithOpenLibrary = (book) => {
-  const coverImageUrl = book.coverImageUrl || getCoverUrlByISBN(book.isbn, "L");
+  const coverImageUrl = resolveCoverUrl(book.coverImageUrl) || getCoverUrlByISBN(book.isbn, "L");
   return { ...book, coverImageUrl };
 };
 
@@ -66,11 +79,20 @@ export const enrichBookWithOpenLibrary = (book) => {
  * @returns {Array}
  */
 export const enrichBooksWithCovers = (books) => {
-  return books.map(enrichBookWithOpenLibrary);
+  return books.map((book) => {
+    const enriched = enrichBookWithOpenLibrary(book);
+    // Covers uploaded to our backend come with thumbnails, grids only need the medium one
+    if (enriched.coverImageUrl && enriched.coverImageUrl.includes("/books/covers/") &&
+        !enriched.coverImageUrl.includes("?")) {
+      return { ...enriched, coverImageUrl: `${enriched.coverImageUrl}?size=M` };
+    }
+    return enriched;
+  });
 };
 
 export default {
   getCoverUrlByISBN,
+  resolveCoverUrl,
   getDescriptionByISBN,
   enrichBookWithOpenLibrary,
   enrichBooksWithCovers,